@@ -159,6 +159,21 @@ public class PerspectiveContext {
 		}
 	}
 	
+	/**
+	 * Duplicate a PerspectiveContext at a lower resolution: same perspective, pixels per unit and pixel dimensions divided by a scale
+	 * (e.g. preview of progressive rendering)
+	 * @param c the PerspectiveContext to duplicate
+	 * @param scale the resolution divisor (e.g. 4 for a quarter of the resolution)
+	 */
+	public PerspectiveContext(PerspectiveContext c, float scale) {
+		this(c);
+		this.ppu = Math.max(1, (int)(c.ppu/scale));
+		this.pixelWidth = Math.max(1, (int)(c.pixelWidth/scale));
+		this.pixelHeight = Math.max(1, (int)(c.pixelHeight/scale));
+		this.pixelHalfWidth = pixelWidth/2;
+		this.pixelHalfHeight = pixelHeight/2;
+	}
+	
 	/**
 	 * @param pixel_width number of pixel for the width of this perspective
 	 * @param pixel_height number of pixel for the height of this perspective
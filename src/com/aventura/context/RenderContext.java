@@ -76,6 +76,44 @@ public class RenderContext {
 	public static final int SHADOWING_DISABLED = 0;
 	public static final int SHADOWING_ENABLED = 1;
 	
+	public static final int DEFERRED_SHADING_DISABLED = 0;	// Forward shading: each fragment passing the depth test is shaded immediately
+	public static final int DEFERRED_SHADING_ENABLED = 1;	// Fragments stored in a GBuffer, visible pixels shaded once at the end of the frame
+	
+	public static final int DEPTH_PREPASS_DISABLED = 0;
+	public static final int DEPTH_PREPASS_ENABLED = 1;		// zBuffer filled first (depth only), then only fragments at the zBuffer depth are shaded
+	
+	public static final int ELEMENT_ORDERING_WORLD = 0;			// Elements rendered in the order of the World (depth first on sub-elements)
+	public static final int ELEMENT_ORDERING_FRONT_TO_BACK = 1;	// Elements sorted by depth of their bounding sphere center, nearest first
+	
+	public static final int FRUSTUM_CULLING_DISABLED = 0;	// All Elements transformed, triangles tested one by one against the view frustum
+	public static final int FRUSTUM_CULLING_ENABLED = 1;	// Elements whose subtree bounds are outside the view frustum skipped before any transformation
+	
+	public static final int OCCLUSION_CULLING_DISABLED = 0;
+	public static final int OCCLUSION_CULLING_ENABLED = 1;	// Elements hidden behind large occluders (low resolution depth buffer) skipped before any transformation
+	
+	public static final int LEVEL_OF_DETAIL_DISABLED = 0;	// Elements always rendered with their full tessellation
+	public static final int LEVEL_OF_DETAIL_ENABLED = 1;	// Level of detail of each Element selected from its size on the screen (see Element.buildLevelsOfDetail())
+	
+	public static final int RASTERIZATION_SEQUENTIAL = 0;	// All triangles rasterized one after the other on the rendering thread
+	public static final int RASTERIZATION_TILED = 1;		// Triangles binned into screen tiles, tiles rasterized in parallel
+	
+	public static final int TRIANGLE_TRAVERSAL_SCANLINE = 0;	// Triangle split in 2 halves, rasterized scan line by scan line
+	public static final int TRIANGLE_TRAVERSAL_HALFSPACE = 1;	// Edge functions evaluated on the bounding box of the triangle (barycentric coordinates)
+	
+	public static final int SPAN_KERNEL_SCALAR = 0;	// Scan line pixels shaded one by one
+	public static final int SPAN_KERNEL_VECTOR = 1;	// Scan line pixels shaded by blocks of 8 with the Vector API (needs --add-modules jdk.incubator.vector at run time, else scalar)
+	
+	public static final int MULTISAMPLING_DISABLED = 0;	// One sample per pixel, at its center
+	public static final int MULTISAMPLING_ENABLED = 1;	// Coverage and depth at several samples per pixel, shading once per pixel and triangle, samples resolved at the end of the frame
+	
+	public static final int PROGRESSIVE_DISABLED = 0;	// Each frame rendered at full quality
+	public static final int PROGRESSIVE_ENABLED = 1;	// Coarse preview (lower resolution, no shadows, plain shading) first, full quality frame once the scene stops changing (see RenderLoop)
+	
+	public static final int DEFAULT_TILE_SIZE = 64;			// Tile size in pixels (square tiles, rounded up to a multiple of the 8 pixels zBuffer tiles)
+	public static final int DEFAULT_RASTERIZATION_THREADS = 0; // 0 means as many threads as available processors
+	public static final int DEFAULT_MULTISAMPLE_COUNT = 4;	// Samples per pixel in multi-sampling (2, 4 or 8)
+	public static final int DEFAULT_PROGRESSIVE_SCALE = 4;	// Resolution divisor of the preview in progressive rendering (2 or 4)
+	
 	// ------------------------
 	// RenderContext Attributes
 	// ------------------------
@@ -97,6 +135,29 @@ public class RenderContext {
 	
 	// Shading
 	public int shadowing = SHADOWING_DISABLED; // Default
+	// Deferred shading (falls back to forward shading when lines or normals are superimposed, as they would be overwritten by the lighting pass)
+	public int deferredShading = DEFERRED_SHADING_DISABLED; // Default
+	public int depthPrepass = DEPTH_PREPASS_DISABLED; // Default
+	public int elementOrdering = ELEMENT_ORDERING_WORLD; // Default (the line and normal overlays, drawn without depth test, depend on the order)
+	public int frustumCulling = FRUSTUM_CULLING_ENABLED; // Default
+	public int occlusionCulling = OCCLUSION_CULLING_DISABLED; // Default
+	public int levelOfDetail = LEVEL_OF_DETAIL_DISABLED; // Default
+	
+	// Rasterization (tiled mode falls back to sequential when lines or normals are superimposed, as they are drawn immediately)
+	public int rasterization = RASTERIZATION_SEQUENTIAL; // Default
+	public int tileSize = DEFAULT_TILE_SIZE;
+	public int rasterizationThreads = DEFAULT_RASTERIZATION_THREADS;
+	public int triangleTraversal = TRIANGLE_TRAVERSAL_SCANLINE; // Default
+	public int spanKernel = SPAN_KERNEL_SCALAR; // Default
+	
+	// Multi-sample anti-aliasing (falls back to single sample when lines or normals are superimposed, as they would be overwritten by the
+	// resolve, and in deferred shading that stores a single fragment per pixel)
+	public int multisampling = MULTISAMPLING_DISABLED; // Default
+	public int multisampleCount = DEFAULT_MULTISAMPLE_COUNT;
+	
+	// Progressive rendering (interactive use, see RenderLoop)
+	public int progressive = PROGRESSIVE_DISABLED; // Default
+	public int progressiveScale = DEFAULT_PROGRESSIVE_SCALE;
 	
 	// --------------
 	// Default colors
@@ -134,8 +195,30 @@ public class RenderContext {
 		this.displayNormals = r.displayNormals;
 		this.displayLight = r.displayLight;
 		this.renderingType = r.renderingType;
+		this.renderingLines = r.renderingLines;
 		this.backfaceCulling = r.backfaceCulling;
 		this.textureProcessing = r.textureProcessing;
+		this.shadowing = r.shadowing;
+		this.deferredShading = r.deferredShading;
+		this.depthPrepass = r.depthPrepass;
+		this.elementOrdering = r.elementOrdering;
+		this.frustumCulling = r.frustumCulling;
+		this.occlusionCulling = r.occlusionCulling;
+		this.levelOfDetail = r.levelOfDetail;
+		this.rasterization = r.rasterization;
+		this.tileSize = r.tileSize;
+		this.rasterizationThreads = r.rasterizationThreads;
+		this.triangleTraversal = r.triangleTraversal;
+		this.spanKernel = r.spanKernel;
+		this.multisampling = r.multisampling;
+		this.multisampleCount = r.multisampleCount;
+		this.progressive = r.progressive;
+		this.progressiveScale = r.progressiveScale;
+		this.landmarkXColor = r.landmarkXColor;
+		this.landmarkYColor = r.landmarkYColor;
+		this.landmarkZColor = r.landmarkZColor;
+		this.normalsColor = r.normalsColor;
+		this.lightVectorsColor = r.lightVectorsColor;
 	}
 	
 	public RenderContext(int type, int display_landmark) {
@@ -237,6 +320,126 @@ public class RenderContext {
 		return this.shadowing;
 	}
 	
+	public void setDeferredShading(int ds) {
+		this.deferredShading = ds;
+	}
+	
+	public int getDeferredShading() {
+		return this.deferredShading;
+	}
+	
+	public void setDepthPrepass(int dp) {
+		this.depthPrepass = dp;
+	}
+	
+	public int getDepthPrepass() {
+		return this.depthPrepass;
+	}
+	
+	public void setElementOrdering(int ordering) {
+		this.elementOrdering = ordering;
+	}
+	
+	public int getElementOrdering() {
+		return this.elementOrdering;
+	}
+	
+	public void setFrustumCulling(int culling) {
+		this.frustumCulling = culling;
+	}
+	
+	public int getFrustumCulling() {
+		return this.frustumCulling;
+	}
+	
+	public void setOcclusionCulling(int culling) {
+		this.occlusionCulling = culling;
+	}
+	
+	public int getOcclusionCulling() {
+		return this.occlusionCulling;
+	}
+	
+	public void setLevelOfDetail(int lod) {
+		this.levelOfDetail = lod;
+	}
+	
+	public int getLevelOfDetail() {
+		return this.levelOfDetail;
+	}
+	
+	public void setRasterization(int r) {
+		this.rasterization = r;
+	}
+	
+	public int getRasterization() {
+		return this.rasterization;
+	}
+	
+	public void setTileSize(int size) {
+		this.tileSize = size;
+	}
+	
+	public int getTileSize() {
+		return this.tileSize;
+	}
+	
+	public void setRasterizationThreads(int threads) {
+		this.rasterizationThreads = threads;
+	}
+	
+	public int getRasterizationThreads() {
+		return this.rasterizationThreads;
+	}
+	
+	public void setTriangleTraversal(int traversal) {
+		this.triangleTraversal = traversal;
+	}
+	
+	public int getTriangleTraversal() {
+		return this.triangleTraversal;
+	}
+	
+	public void setSpanKernel(int kernel) {
+		this.spanKernel = kernel;
+	}
+	
+	public int getSpanKernel() {
+		return this.spanKernel;
+	}
+	
+	public void setMultisampling(int ms) {
+		this.multisampling = ms;
+	}
+	
+	public int getMultisampling() {
+		return this.multisampling;
+	}
+	
+	public void setMultisampleCount(int samples) {
+		this.multisampleCount = samples;
+	}
+	
+	public int getMultisampleCount() {
+		return this.multisampleCount;
+	}
+	
+	public void setProgressive(int p) {
+		this.progressive = p;
+	}
+	
+	public int getProgressive() {
+		return this.progressive;
+	}
+	
+	public void setProgressiveScale(int scale) {
+		this.progressiveScale = scale;
+	}
+	
+	public int getProgressiveScale() {
+		return this.progressiveScale;
+	}
+	
 	public String toString() {
 		String renderContext = "Render Context:\n";
 		
@@ -334,6 +537,127 @@ public class RenderContext {
 		}
 		renderContext += "\n";
 		
+		renderContext += "* Deferred shading:      ";
+		switch (getDeferredShading()) {
+		case DEFERRED_SHADING_DISABLED:
+			renderContext += "DISABLED";
+			break;
+		case DEFERRED_SHADING_ENABLED:
+			renderContext += "ENABLED";
+			break;
+		}
+		renderContext += "\n";
+		
+		renderContext += "* Depth prepass:         ";
+		switch (getDepthPrepass()) {
+		case DEPTH_PREPASS_DISABLED:
+			renderContext += "DISABLED";
+			break;
+		case DEPTH_PREPASS_ENABLED:
+			renderContext += "ENABLED";
+			break;
+		}
+		renderContext += "\n";
+		
+		renderContext += "* Element ordering:      ";
+		switch (getElementOrdering()) {
+		case ELEMENT_ORDERING_WORLD:
+			renderContext += "WORLD";
+			break;
+		case ELEMENT_ORDERING_FRONT_TO_BACK:
+			renderContext += "FRONT TO BACK";
+			break;
+		}
+		renderContext += "\n";
+		
+		renderContext += "* Frustum culling:       ";
+		switch (getFrustumCulling()) {
+		case FRUSTUM_CULLING_DISABLED:
+			renderContext += "DISABLED";
+			break;
+		case FRUSTUM_CULLING_ENABLED:
+			renderContext += "ENABLED";
+			break;
+		}
+		renderContext += "\n";
+		
+		renderContext += "* Occlusion culling:     ";
+		switch (getOcclusionCulling()) {
+		case OCCLUSION_CULLING_DISABLED:
+			renderContext += "DISABLED";
+			break;
+		case OCCLUSION_CULLING_ENABLED:
+			renderContext += "ENABLED";
+			break;
+		}
+		renderContext += "\n";
+		
+		renderContext += "* Level of detail:       ";
+		switch (getLevelOfDetail()) {
+		case LEVEL_OF_DETAIL_DISABLED:
+			renderContext += "DISABLED";
+			break;
+		case LEVEL_OF_DETAIL_ENABLED:
+			renderContext += "ENABLED";
+			break;
+		}
+		renderContext += "\n";
+		
+		renderContext += "* Rasterization:         ";
+		switch (getRasterization()) {
+		case RASTERIZATION_SEQUENTIAL:
+			renderContext += "SEQUENTIAL";
+			break;
+		case RASTERIZATION_TILED:
+			renderContext += "TILED (tile size: " + getTileSize() + ", threads: " + (getRasterizationThreads() > 0 ? getRasterizationThreads() : "auto") + ")";
+			break;
+		}
+		renderContext += "\n";
+		
+		renderContext += "* Triangle traversal:    ";
+		switch (getTriangleTraversal()) {
+		case TRIANGLE_TRAVERSAL_SCANLINE:
+			renderContext += "SCANLINE";
+			break;
+		case TRIANGLE_TRAVERSAL_HALFSPACE:
+			renderContext += "HALFSPACE";
+			break;
+		}
+		renderContext += "\n";
+		
+		renderContext += "* Span kernel:           ";
+		switch (getSpanKernel()) {
+		case SPAN_KERNEL_SCALAR:
+			renderContext += "SCALAR";
+			break;
+		case SPAN_KERNEL_VECTOR:
+			renderContext += "VECTOR";
+			break;
+		}
+		renderContext += "\n";
+		
+		renderContext += "* Multi-sampling:        ";
+		switch (getMultisampling()) {
+		case MULTISAMPLING_DISABLED:
+			renderContext += "DISABLED";
+			break;
+		case MULTISAMPLING_ENABLED:
+			renderContext += "ENABLED (samples: " + getMultisampleCount() + ")";
+			break;
+		}
+		renderContext += "\n";
+		
+		renderContext += "* Progressive rendering: ";
+		switch (getProgressive()) {
+		case PROGRESSIVE_DISABLED:
+			renderContext += "DISABLED";
+			break;
+		case PROGRESSIVE_ENABLED:
+			renderContext += "ENABLED (preview scale: 1/" + getProgressiveScale() + ")";
+			break;
+		}
+		renderContext += "\n";
+		
 		return renderContext;
 	}
 
@@ -16,6 +16,7 @@ import java.awt.event.*;
 import com.aventura.context.PerspectiveContext;
 import com.aventura.context.RenderContext;
 import com.aventura.engine.RenderEngine;
+import com.aventura.engine.RenderLoop;
 import com.aventura.math.transform.Rotation;
 import com.aventura.math.transform.Transformation;
 import com.aventura.math.vector.Vector3;
@@ -27,7 +28,8 @@ import com.aventura.model.light.Lighting;
 import com.aventura.model.texture.Texture;
 import com.aventura.model.world.World;
 import com.aventura.model.world.WrongArraySizeException;
-import com.aventura.model.world.shape.Trellis;
+import com.aventura.model.world.shape.Terrain;
+import com.aventura.model.world.shape.TerrainChunk;
 import com.aventura.view.SwingView;
 import com.aventura.view.GUIView;
 
@@ -59,6 +61,7 @@ import com.aventura.view.GUIView;
  * This class is a Test class demonstrating usage of the API of the Aventura rendering engine
  * 
  * It generates a landscape through a Treillis material formed through a Fractal recursion with random variations to create the ground
+ * The Treillis is a Terrain split in chunks, so that the chunks out of view are skipped and the far ones use less triangles
  * Goal is to progressively build a complete application on a typical 3D graphic use case
  * 
  * @author Olivier BARRY
@@ -83,17 +86,19 @@ public class FractalLandscape_MouseMoving implements MouseListener, MouseMotionL
 	Vector4 poi;
 	Camera camera;
 	
-	// Render engine
+	// Render engine, rendering on its own thread through the render loop
 	RenderContext rContext;
 	RenderEngine renderer;
+	RenderLoop renderLoop;
 	
 	// World
 	World world;
 	
-	// Trellis element
-	Trellis tre;
+	// Terrain element
+	Terrain tre;
 	float size; // Size of the Treillis (square)
 	int n; // Nb of segments of the Treillis, should be a 2^n number
+	int chunk; // Nb of segments of the chunks of the Terrain, should be a 2^n number
 	float array_land[][]; // Updated array with sea level
 
 	// Movement variables
@@ -111,7 +116,7 @@ public class FractalLandscape_MouseMoving implements MouseListener, MouseMotionL
 
 	/**
 	 * Create the gUIView and associate all needed mouse and key listeners for user interaction with screen
-	 * The renderer will then be called each time Mouse generates a move to the gUIView and a new updated gUIView will be displayed
+	 * Each time Mouse generates a move, the change is posted to the render loop that renders and displays a new updated gUIView
 	 * 
 	 * @param context the PerspectiveContext to be used to create the GUIView
 	 * @return
@@ -228,11 +233,10 @@ public class FractalLandscape_MouseMoving implements MouseListener, MouseMotionL
         
         Rotation rz = new Rotation((float)Math.PI*(float)mouse_dragged_X/frame.getWidth()/8, Vector3.Z_AXIS);
         Rotation ry = new Rotation((float)Math.PI*(float)mouse_dragged_Y/frame.getHeight()/16, Vector3.Y_AXIS);
-        tre.setTransformation(new Transformation(ry.times(rz)));
-        //tre.combineTransformation(ry.times(rz));
 
-        // Render the updated gUIView after zooming camera and rotating Element
-		renderer.render();
+        // Rotate the Element and render the updated gUIView on the render thread
+        renderLoop.post(() -> tre.setTransformation(new Transformation(ry.times(rz))));
+        //tre.combineTransformation(ry.times(rz));
  	}
  	
  	public void mouseMoved(MouseEvent e) {
@@ -243,11 +247,9 @@ public class FractalLandscape_MouseMoving implements MouseListener, MouseMotionL
 		//System.out.println("Mouse wheel moved: " + e.getWheelRotation());
 		// Increment or decrement zoom based on wheel rotation (+1 or -1)
 		zoom-=e.getWheelRotation();
-        // Zoom camera by updating eye on the forward direction
-        camera.updateCamera(eye.plus(camera.getForward().times((float)zoom/10)), poi, camera.getUp());
-        
-        // Render the updated gUIView after zooming camera and rotating Element
-		renderer.render();
+		int z = zoom;
+        // Zoom camera by updating eye on the forward direction and render the updated gUIView on the render thread
+        renderLoop.post(() -> camera.updateCamera(eye.plus(camera.getForward().times((float)z/10)), poi, camera.getUp()));
 	}
 	
 
@@ -255,28 +257,28 @@ public class FractalLandscape_MouseMoving implements MouseListener, MouseMotionL
 		// TODO Auto-generated method stub
 
 		if (e.getSource() == m1e1) { // Generate
-			createLandscape(array_land, size, n);
-			try {
-				tre.updateTrellis(array_land);
-			} catch (WrongArraySizeException exc) {
-				// TODO Auto-generated catch block
-				exc.printStackTrace();
-			}
-			world.rebuild();
-			System.out.println("Number of Triangles in Trellis: "+tre.getNbTriangles()+" Number of vertices: " + tre.getNbVertices());
-			updateTrianglesColorTrellis();
-			renderer.render();
+			// The World is modified on the render thread, between 2 frames
+			renderLoop.post(() -> {
+				createLandscape(array_land, size, n);
+				try {
+					tre.updateTerrain(array_land);
+				} catch (WrongArraySizeException exc) {
+					// TODO Auto-generated catch block
+					exc.printStackTrace();
+				}
+				world.rebuild();
+				System.out.println("Number of chunks in Terrain: "+tre.getNbChunksX()*tre.getNbChunksY()+" of "+chunk+" x "+chunk+" segments");
+				updateTrianglesColorTrellis();
+			});
 		} else if (e.getSource() == m1e2) { // Texture on/off (toggle)
 			
 			if (shading_menu) {
 				if (texture_menu) {
-					rContext.setTextureProcessing(RenderContext.TEXTURE_PROCESSING_DISABLED);
-					renderer.render();
+					renderLoop.post(() -> rContext.setTextureProcessing(RenderContext.TEXTURE_PROCESSING_DISABLED));
 					m1e2.setText("Texture off");
 					texture_menu = false;
 				} else {
-					rContext.setTextureProcessing(RenderContext.TEXTURE_PROCESSING_ENABLED);
-					renderer.render();
+					renderLoop.post(() -> rContext.setTextureProcessing(RenderContext.TEXTURE_PROCESSING_ENABLED));
 					m1e2.setText("Texture on");
 					texture_menu = true;
 				}
@@ -284,16 +286,14 @@ public class FractalLandscape_MouseMoving implements MouseListener, MouseMotionL
 				// no action
 			}
 		} else if (e.getSource() == m2e1) { // Rendering lines
-			rContext.setRenderingType(RenderContext.RENDERING_TYPE_LINE);
-			renderer.render();
+			renderLoop.post(() -> rContext.setRenderingType(RenderContext.RENDERING_TYPE_LINE));
 			m2e1.setText("Lines on");
 			m2e2.setText("Plain off");
 			m2e3.setText("Shading off");
 			m1e2.setEnabled(false);
 			shading_menu = false;
 		} else if (e.getSource() == m2e2) { // Rendering Plain
-			rContext.setRenderingType(RenderContext.RENDERING_TYPE_PLAIN);
-			renderer.render();
+			renderLoop.post(() -> rContext.setRenderingType(RenderContext.RENDERING_TYPE_PLAIN));
 			m2e1.setText("Lines off");
 			m2e2.setText("Plain on");
 			m2e3.setText("Shading off");
@@ -301,8 +301,7 @@ public class FractalLandscape_MouseMoving implements MouseListener, MouseMotionL
 			shading_menu = false;
 			
 		} else if (e.getSource() == m2e3) { // Rendering Shading
-			rContext.setRenderingType(RenderContext.RENDERING_TYPE_INTERPOLATE);
-			renderer.render();
+			renderLoop.post(() -> rContext.setRenderingType(RenderContext.RENDERING_TYPE_INTERPOLATE));
 			m2e1.setText("Lines off");
 			m2e2.setText("Plain off");
 			m2e3.setText("Shading on");
@@ -385,23 +384,64 @@ public class FractalLandscape_MouseMoving implements MouseListener, MouseMotionL
 	}
 	
 	protected void updateVertexColorTrellis( ) {
-		float max_alt = tre.getMaxZ();
-		float min_alt = tre.getMinZ();
-		for (int v=0; v<tre.getVertices().size(); v++) {
-			float v_alt = tre.getVertex(v).getPos().getZ();
-			tre.getVertex(v).setColor(new Color((int)((v_alt-min_alt)/(max_alt-min_alt)*200),(int)((v_alt-min_alt)/(max_alt-min_alt)*255),(int)((max_alt-v_alt)/(max_alt-min_alt)*200)));
+		float max_alt = getMaxAltitude();
+		float min_alt = getMinAltitude();
+		// Vertices of all levels of detail of each chunk
+		for (int i=0; i<tre.getNbChunksX(); i++) {
+			for (int j=0; j<tre.getNbChunksY(); j++) {
+				TerrainChunk c = tre.getChunk(i, j);
+				int level = c.getLevelOfDetail();
+				for (int l=0; l<c.getNbLevelsOfDetail(); l++) {
+					c.setLevelOfDetail(l);
+					for (int v=0; v<c.getVertices().size(); v++) {
+						float v_alt = c.getVertex(v).getPos().getZ();
+						c.getVertex(v).setColor(new Color((int)((v_alt-min_alt)/(max_alt-min_alt)*200),(int)((v_alt-min_alt)/(max_alt-min_alt)*255),(int)((max_alt-v_alt)/(max_alt-min_alt)*200)));
+					}
+				}
+				c.setLevelOfDetail(level);
+			}
 		}
 		
 	}
 
 	protected void updateTrianglesColorTrellis() {
-		float max_alt = tre.getMaxZ();
-		float min_alt = tre.getMinZ();
-		int t = 0;
-		for (t=0; t<tre.getTriangles().size(); t++) {
-			float avg_alt = (tre.getTriangle(t).getV1().getPos().getZ() + tre.getTriangle(t).getV2().getPos().getZ() + tre.getTriangle(t).getV3().getPos().getZ())/3;
-			tre.getTriangle(t).setColor(new Color((int)((avg_alt-min_alt)/(max_alt-min_alt)*200),(int)((avg_alt-min_alt)/(max_alt-min_alt)*255),(int)((max_alt-avg_alt)/(max_alt-min_alt)*200)));
+		float max_alt = getMaxAltitude();
+		float min_alt = getMinAltitude();
+		// Triangles of all levels of detail of each chunk
+		for (int i=0; i<tre.getNbChunksX(); i++) {
+			for (int j=0; j<tre.getNbChunksY(); j++) {
+				TerrainChunk c = tre.getChunk(i, j);
+				int level = c.getLevelOfDetail();
+				for (int l=0; l<c.getNbLevelsOfDetail(); l++) {
+					c.setLevelOfDetail(l);
+					for (int t=0; t<c.getTriangles().size(); t++) {
+						float avg_alt = (c.getTriangle(t).getV1().getPos().getZ() + c.getTriangle(t).getV2().getPos().getZ() + c.getTriangle(t).getV3().getPos().getZ())/3;
+						c.getTriangle(t).setColor(new Color((int)((avg_alt-min_alt)/(max_alt-min_alt)*200),(int)((avg_alt-min_alt)/(max_alt-min_alt)*255),(int)((max_alt-avg_alt)/(max_alt-min_alt)*200)));
+					}
+				}
+				c.setLevelOfDetail(level);
+			}
+		}
+	}
+	
+	protected float getMaxAltitude() {
+		float max = array_land[0][0];
+		for (int i=0; i<=n; i++) {
+			for (int j=0; j<=n; j++) {
+				if (array_land[i][j] > max) max = array_land[i][j];
+			}
+		}
+		return max;
+	}
+
+	protected float getMinAltitude() {
+		float min = array_land[0][0];
+		for (int i=0; i<=n; i++) {
+			for (int j=0; j<=n; j++) {
+				if (array_land[i][j] < min) min = array_land[i][j];
+			}
 		}
+		return min;
 	}
 
 
@@ -435,13 +475,14 @@ public class FractalLandscape_MouseMoving implements MouseListener, MouseMotionL
 		
 		// Create and form the Treillis
 		size = 4; // Size of the Treillis (square)
-		n = 128; // Nb of segments of the Treillis, should be a 2^n number
+		n = 512; // Nb of segments of the Treillis, should be a 2^n number
+		chunk = 32; // Nb of segments of the chunks of the Terrain, should be a 2^n number
 		array_land = new float[n+1][n+1]; // Updated array with sea level
 		createLandscape(array_land, size, n);
 		// Create the Treillis
 		tre = null;
 		try {
-			tre = new Trellis(size, size, n, n, array_land, tex);
+			tre = new Terrain(size, size, n, n, chunk, array_land, tex);
 		} catch (WrongArraySizeException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -455,7 +496,7 @@ public class FractalLandscape_MouseMoving implements MouseListener, MouseMotionL
 		// Generate World (including Triangles)
 		System.out.println("********* Calculating normals");
 		world.build();
-		System.out.println("Number of Triangles in Trellis: "+tre.getNbTriangles()+" Number of vertices: " + tre.getNbVertices());
+		System.out.println("Number of chunks in Terrain: "+tre.getNbChunksX()*tre.getNbChunksY()+" of "+chunk+" x "+chunk+" segments");
 		
 		// Then update Triangles as needed (Colors) to create effect on the Landscape
 		updateTrianglesColorTrellis();
@@ -478,15 +519,20 @@ public class FractalLandscape_MouseMoving implements MouseListener, MouseMotionL
 		//rContext = new RenderContext(RenderContext.RENDER_DEFAULT);
 		rContext = new RenderContext(RenderContext.RENDER_STANDARD_INTERPOLATE);
 		rContext.setTextureProcessing(RenderContext.TEXTURE_PROCESSING_DISABLED);
+		rContext.setLevelOfDetail(RenderContext.LEVEL_OF_DETAIL_ENABLED); // Geomipmapping of the Terrain chunks, to stay interactive
 		//rContext.setDisplayNormals(RenderContext.DISPLAY_NORMALS_ENABLED);
 		//rContext.setDisplayLandmark(RenderContext.DISPLAY_LANDMARK_ENABLED);
+		//rContext.setProgressive(RenderContext.PROGRESSIVE_ENABLED); // Coarse preview while the mouse moves, full quality frame when it stops
 
 		//rContext.setRendering(RenderContext.RENDERING_TYPE_INTERPOLATE);
 		
-		// Initialize Render Engine and render a first gUIView
+		// Initialize Render Engine and its render loop, and render a first gUIView
 		renderer = new RenderEngine(world, light, camera, rContext, pContext);
 		renderer.setView(gUIView);
-		renderer.render();
+		renderLoop = new RenderLoop(renderer);
+		//renderLoop.setGovernor(new com.aventura.engine.ResolutionGovernor(renderer, 33, 0.25f, 1)); // Dynamic resolution holding 30 FPS
+		renderLoop.start();
+		renderLoop.requestRender();
 		
 		System.out.println("********* APPLICATION LAUNCHED *********");
 	}
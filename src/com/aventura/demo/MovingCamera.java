@@ -11,6 +11,7 @@ import javax.swing.WindowConstants;
 import com.aventura.context.PerspectiveContext;
 import com.aventura.context.RenderContext;
 import com.aventura.engine.RenderEngine;
+import com.aventura.engine.RenderLoop;
 import com.aventura.math.transform.Rotation;
 import com.aventura.math.transform.Translation;
 import com.aventura.math.vector.Vector3;
@@ -71,6 +72,7 @@ public class MovingCamera {
 	private static float increment_rotation = (float)Math.PI/180;
 	private static Camera camera;
 	private static RenderEngine renderer;
+	private static RenderLoop renderLoop; // Renders on its own thread, key events only post the camera moves
 	
 	// This method will create a basic Swing gUIView
 	public GUIView createView(PerspectiveContext context) {
@@ -104,49 +106,55 @@ public class MovingCamera {
 	}
 	
 	public void rotateCameraLeft() {
-		Rotation r = new Rotation(increment_rotation, Vector3.Z_AXIS);
-		direction.timesEquals(r);
-		Vector4 poi = new Vector4(eye.plus(direction));
-		camera.updateCamera(eye, poi, Vector4.Z_AXIS);
-		renderer.render();
+		renderLoop.post(() -> {
+			Rotation r = new Rotation(increment_rotation, Vector3.Z_AXIS);
+			direction.timesEquals(r);
+			Vector4 poi = new Vector4(eye.plus(direction));
+			camera.updateCamera(eye, poi, Vector4.Z_AXIS);
+		});
 	}
 
 	public void rotateCameraRight() {
-		Rotation r = new Rotation(-increment_rotation, Vector3.Z_AXIS);
-		direction.timesEquals(r);		
-		Vector4 poi = new Vector4(eye.plus(direction));
-		camera.updateCamera(eye, poi, Vector4.Z_AXIS);
-		renderer.render();
+		renderLoop.post(() -> {
+			Rotation r = new Rotation(-increment_rotation, Vector3.Z_AXIS);
+			direction.timesEquals(r);		
+			Vector4 poi = new Vector4(eye.plus(direction));
+			camera.updateCamera(eye, poi, Vector4.Z_AXIS);
+		});
 	}
 
 	public void rotateCameraUp() {
-		Rotation r = new Rotation(-increment_rotation, Vector4.Z_AXIS.times(direction));
-		direction.timesEquals(r);
-		Vector4 poi = new Vector4(eye.plus(direction));
-		camera.updateCamera(eye, poi, Vector4.Z_AXIS);
-		renderer.render();
+		renderLoop.post(() -> {
+			Rotation r = new Rotation(-increment_rotation, Vector4.Z_AXIS.times(direction));
+			direction.timesEquals(r);
+			Vector4 poi = new Vector4(eye.plus(direction));
+			camera.updateCamera(eye, poi, Vector4.Z_AXIS);
+		});
 	}
 
 	public void rotateCameraDown() {
-		Rotation r = new Rotation(increment_rotation, Vector4.Z_AXIS.times(direction));
-		direction.timesEquals(r);		
-		Vector4 poi = new Vector4(eye.plus(direction));
-		camera.updateCamera(eye, poi, Vector4.Z_AXIS);
-		renderer.render();
+		renderLoop.post(() -> {
+			Rotation r = new Rotation(increment_rotation, Vector4.Z_AXIS.times(direction));
+			direction.timesEquals(r);		
+			Vector4 poi = new Vector4(eye.plus(direction));
+			camera.updateCamera(eye, poi, Vector4.Z_AXIS);
+		});
 	}
 	
 	public void moveCameraFront() {
-		eye.plusEquals(direction.times(increment_direction));
-		Vector4 poi = new Vector4(eye.plus(direction));
-		camera.updateCamera(eye, poi, Vector4.Z_AXIS);
-		renderer.render();
+		renderLoop.post(() -> {
+			eye.plusEquals(direction.times(increment_direction));
+			Vector4 poi = new Vector4(eye.plus(direction));
+			camera.updateCamera(eye, poi, Vector4.Z_AXIS);
+		});
 	}
 
 	public void moveCameraBack() {
-		eye.minusEquals(direction.times(increment_direction));
-		Vector4 poi = new Vector4(eye.plus(direction));
-		camera.updateCamera(eye, poi, Vector4.Z_AXIS);
-		renderer.render();	
+		renderLoop.post(() -> {
+			eye.minusEquals(direction.times(increment_direction));
+			Vector4 poi = new Vector4(eye.plus(direction));
+			camera.updateCamera(eye, poi, Vector4.Z_AXIS);
+		});
 	}
 
 
@@ -270,7 +278,9 @@ public class MovingCamera {
 		
 		renderer = new RenderEngine(world, lighting, camera, rContext, context);
 		renderer.setView(gUIView);
-		renderer.render();
+		renderLoop = new RenderLoop(renderer);
+		renderLoop.start();
+		renderLoop.requestRender();
 		
 //		System.out.println("********* Rendering...");
 //		int nb_images = 360;
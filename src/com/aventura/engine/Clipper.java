@@ -0,0 +1,308 @@
+package com.aventura.engine;
+
+import java.awt.Color;
+import java.util.ArrayList;
+
+import com.aventura.math.vector.Vector3;
+import com.aventura.math.vector.Vector4;
+import com.aventura.model.world.Vertex;
+import com.aventura.model.world.triangle.Triangle;
+
+/**
+ * ------------------------------------------------------------------------------
+ * MIT License
+ *
+ * Copyright (c) 2016-2026 Olivier BARRY
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ------------------------------------------------------------------------------
+ *
+ * This class clips the triangles against the view frustum in homogeneous (clip) coordinates, between the projection of the
+ * vertices (ModelViewProjection.transformElement) and the Rasterizer.
+ *
+ * The frustum is the intersection of 6 half-spaces: -W <= X <= W, -W <= Y <= W and -W <= Z <= W. Around the screen, a guard band
+ * extends the side planes to -GUARD_BAND*W <= X, Y <= GUARD_BAND*W: the Rasterizer restricts its traversal to the screen, so a
+ * triangle crossing the screen borders but inside the guard band does not need to be clipped. Outcodes (1 bit per plane) are
+ * calculated for each vertex:
+ * - Frustum outcodes sharing a bit: all vertices are outside the same plane, the triangle is rejected
+ * - All guard band outcodes null: the triangle is rasterized as is (general case, no allocation)
+ * - Else the triangle is clipped plane by plane (Sutherland-Hodgman) against the guard band planes (and the near and far planes)
+ * into a convex polygon of up to 9 vertices, triangulated in fan.
+ *
+ * The guard band also bounds the screen coordinates of the vertices given to the Rasterizer, so they fit in its fixed point sub-pixel grid.
+ *
+ *          \         /
+ *       +---\-------/---+		Triangle crossing the frustum:
+ *       |    \_____/    |		clipped into a polygon then
+ *       |               |		into sub-triangles
+ *       +---------------+
+ *
+ * Clipping is done before the division by W, so a triangle crossing the near plane (or the plane of the eye) is clipped properly,
+ * and all attributes of the new vertices (projected, world and model positions, world normals, texture vectors) are linearly
+ * interpolated at the intersection.
+ *
+ * New vertices and triangles are created for each clipped triangle (not recycled), as the Rasterizer may keep references to them
+ * until the end of the frame (tiled rasterization, deferred shading).
+ *
+ * @author Olivier BARRY
+ * @since October 2026
+ */
+
+public class Clipper {
+
+	// Result of the clipping
+	public static final int INSIDE = 0;		// Triangle inside the guard band (not clipped)
+	public static final int CLIPPED = 1;	// Triangle partially inside, clipped into sub-triangles
+	public static final int OUTSIDE = 2;	// Triangle totally outside the frustum
+
+	// Number of planes of the frustum (left, right, bottom, top, near, far)
+	protected static final int NB_PLANES = 6;
+	// Guard band: factor applied to the side planes of the frustum for the clipping
+	public static final float GUARD_BAND = 4;
+	// Maximum number of vertices of the polygon: each plane adds at most 1 vertex
+	protected static final int MAX_VERTICES = 3 + NB_PLANES;
+
+	// Clipped polygon (ping-pong buffers) with the texture vectors of its vertices
+	protected Vertex[] polygon = new Vertex[MAX_VERTICES];
+	protected Vector4[] polygonTex = new Vector4[MAX_VERTICES];
+	protected Vertex[] clipped = new Vertex[MAX_VERTICES];
+	protected Vector4[] clippedTex = new Vector4[MAX_VERTICES];
+	protected int nbVertices;
+
+	// Sub-triangles of the last clipped triangle
+	protected ArrayList<Triangle> triangles = new ArrayList<Triangle>();
+
+	// Statistics
+	int clipped_triangles = 0;
+	int created_triangles = 0;
+
+	public Clipper() {
+	}
+
+	/**
+	 * Reset the statistics before a new frame
+	 */
+	public void init() {
+		clipped_triangles = 0;
+		created_triangles = 0;
+	}
+
+	/**
+	 * Clip a Triangle against the view frustum. The vertices of the triangle should be projected in homogeneous coordinates.
+	 * @param t the Triangle
+	 * @return INSIDE, OUTSIDE or CLIPPED. When CLIPPED, the sub-triangles are given by getTriangles()
+	 */
+	public int clip(Triangle t) {
+
+		Vector4 p1 = t.getV1().getProjPos();
+		Vector4 p2 = t.getV2().getProjPos();
+		Vector4 p3 = t.getV3().getProjPos();
+
+		// Trivial reject: all vertices outside the same plane of the frustum
+		if ((outcode(p1, 1) & outcode(p2, 1) & outcode(p3, 1)) != 0) return OUTSIDE;
+
+		// Trivial accept: all vertices inside the guard band
+		int o1 = outcode(p1, GUARD_BAND);
+		int o2 = outcode(p2, GUARD_BAND);
+		int o3 = outcode(p3, GUARD_BAND);
+		if ((o1 | o2 | o3) == 0) return INSIDE;
+
+		// Polygon initialized with the triangle
+		nbVertices = 3;
+		polygon[0] = t.getV1();
+		polygon[1] = t.getV2();
+		polygon[2] = t.getV3();
+		polygonTex[0] = t.getTexVec1();
+		polygonTex[1] = t.getTexVec2();
+		polygonTex[2] = t.getTexVec3();
+
+		// Clip the polygon against each guard band plane crossed by at least one vertex
+		int crossed = o1 | o2 | o3;
+		for (int plane=0; plane<NB_PLANES; plane++) {
+			if ((crossed & (1 << plane)) != 0) {
+				clipPlane(plane);
+				if (nbVertices < 3) return OUTSIDE;
+			}
+		}
+
+		// Fan triangulation of the polygon
+		triangles.clear();
+		for (int i=1; i<nbVertices-1; i++) {
+			Triangle ct = new Triangle(polygon[0], polygon[i], polygon[i+1], t.getTexture(), t.getTextureOrientation());
+			if (polygonTex[0] != null) ct.setTexture(polygonTex[0], polygonTex[i], polygonTex[i+1]);
+			ct.setColor(t.getColor());
+			ct.setRectoVerso(t.isRectoVerso());
+			ct.setTriangleNormal(t.isTriangleNormal());
+			if (t.getNormal() != null) ct.setNormal(t.getNormal());
+			triangles.add(ct);
+		}
+		clipped_triangles++;
+		created_triangles += triangles.size();
+
+		return CLIPPED;
+	}
+
+	/**
+	 * @return the sub-triangles of the last triangle clipped (valid until next call to clip)
+	 */
+	public ArrayList<Triangle> getTriangles() {
+		return triangles;
+	}
+
+	/**
+	 * Calculate the outcode of a point in homogeneous coordinates: bit i is set if the point is outside the plane i
+	 * @param p the point in homogeneous coordinates
+	 * @param band the factor of the side planes (1 for the frustum, GUARD_BAND for the guard band)
+	 * @return the outcode
+	 */
+	protected static int outcode(Vector4 p, float band) {
+		int code = 0;
+		for (int plane=0; plane<NB_PLANES; plane++) {
+			if (distance(p, plane, band) < 0) code |= 1 << plane;
+		}
+		return code;
+	}
+
+	/**
+	 * Signed distance (not normalized) of a point to a plane of the frustum, positive inside
+	 * @param p the point in homogeneous coordinates
+	 * @param plane the index of the plane
+	 * @param band the factor of the side planes (1 for the frustum, GUARD_BAND for the guard band)
+	 * @return the distance
+	 */
+	protected static float distance(Vector4 p, int plane, float band) {
+		switch (plane) {
+		case 0:
+			return band*p.getW() + p.getX(); // Left
+		case 1:
+			return band*p.getW() - p.getX(); // Right
+		case 2:
+			return band*p.getW() + p.getY(); // Bottom
+		case 3:
+			return band*p.getW() - p.getY(); // Top
+		case 4:
+			return p.getW() + p.getZ(); // Near
+		default:
+			return p.getW() - p.getZ(); // Far
+		}
+	}
+
+	/**
+	 * Sutherland-Hodgman clipping of the polygon against one plane
+	 * @param plane the index of the plane
+	 */
+	protected void clipPlane(int plane) {
+		int n = 0;
+		Vertex a = polygon[nbVertices-1];
+		Vector4 ta = polygonTex[nbVertices-1];
+		float da = distance(a.getProjPos(), plane, GUARD_BAND);
+
+		for (int i=0; i<nbVertices; i++) {
+			Vertex b = polygon[i];
+			Vector4 tb = polygonTex[i];
+			float db = distance(b.getProjPos(), plane, GUARD_BAND);
+
+			if ((da >= 0) != (db >= 0)) {
+				// Edge crossing the plane: add the intersection. Always interpolate from the inside vertex so that an edge shared by
+				// 2 triangles gives the same intersection whatever its orientation
+				float g;
+				if (da >= 0) {
+					g = da / (da - db);
+					clipped[n] = interpolate(a, b, g);
+					clippedTex[n] = interpolate(ta, tb, g);
+				} else {
+					g = db / (db - da);
+					clipped[n] = interpolate(b, a, g);
+					clippedTex[n] = interpolate(tb, ta, g);
+				}
+				n++;
+			}
+			if (db >= 0) {
+				clipped[n] = b;
+				clippedTex[n] = tb;
+				n++;
+			}
+			a = b;
+			ta = tb;
+			da = db;
+		}
+
+		// Swap buffers
+		Vertex[] v = polygon;
+		polygon = clipped;
+		clipped = v;
+		Vector4[] tv = polygonTex;
+		polygonTex = clippedTex;
+		clippedTex = tv;
+		nbVertices = n;
+	}
+
+	/**
+	 * Create a new Vertex between 2 vertices, interpolating all its attributes
+	 * @param a the first Vertex
+	 * @param b the second Vertex
+	 * @param g the interpolation factor (0 gives a, 1 gives b)
+	 * @return the new Vertex
+	 */
+	protected static Vertex interpolate(Vertex a, Vertex b, float g) {
+		Vertex v = new Vertex(interpolate(a.getPos(), b.getPos(), g));
+		v.setWorldPos(interpolate(a.getWorldPos(), b.getWorldPos(), g));
+		v.setProjPos(interpolate(a.getProjPos(), b.getProjPos(), g));
+		if (a.getWorldNormal() != null && b.getWorldNormal() != null) {
+			Vector3 n = new Vector3(a.getWorldNormal().getX() + g*(b.getWorldNormal().getX() - a.getWorldNormal().getX()),
+					a.getWorldNormal().getY() + g*(b.getWorldNormal().getY() - a.getWorldNormal().getY()),
+					a.getWorldNormal().getZ() + g*(b.getWorldNormal().getZ() - a.getWorldNormal().getZ()));
+			n.normalize();
+			v.setWorldNormal(n);
+		}
+		if (a.getProjNormal() != null && b.getProjNormal() != null) {
+			v.setProjNormal(new Vector3(a.getProjNormal().getX() + g*(b.getProjNormal().getX() - a.getProjNormal().getX()),
+					a.getProjNormal().getY() + g*(b.getProjNormal().getY() - a.getProjNormal().getY()),
+					a.getProjNormal().getZ() + g*(b.getProjNormal().getZ() - a.getProjNormal().getZ())));
+		}
+		v.setColor(interpolate(a.getColor(), b.getColor(), g));
+		return v;
+	}
+
+	/**
+	 * Interpolate 2 Vector4 (null if one of them is null)
+	 */
+	protected static Vector4 interpolate(Vector4 a, Vector4 b, float g) {
+		if (a == null || b == null) return null;
+		return new Vector4(a.getX() + g*(b.getX() - a.getX()),
+				a.getY() + g*(b.getY() - a.getY()),
+				a.getZ() + g*(b.getZ() - a.getZ()),
+				a.getW() + g*(b.getW() - a.getW()));
+	}
+
+	/**
+	 * Interpolate 2 Colors (color of the first one if the other is null)
+	 */
+	protected static Color interpolate(Color a, Color b, float g) {
+		if (a == null || b == null) return a;
+		return new Color(Math.round(a.getRed() + g*(b.getRed() - a.getRed())),
+				Math.round(a.getGreen() + g*(b.getGreen() - a.getGreen())),
+				Math.round(a.getBlue() + g*(b.getBlue() - a.getBlue())),
+				Math.round(a.getAlpha() + g*(b.getAlpha() - a.getAlpha())));
+	}
+
+	public String renderStats() {
+		return "Clipper - Triangles clipped: " + clipped_triangles + ", sub-triangles created: " + created_triangles;
+	}
+}
@@ -0,0 +1,140 @@
+package com.aventura.engine;
+
+import com.aventura.math.tools.BoundingBox4;
+import com.aventura.math.vector.Matrix4;
+import com.aventura.math.vector.Vector4;
+import com.aventura.model.camera.Camera;
+import com.aventura.model.perspective.Perspective;
+import com.aventura.model.world.Octree;
+
+/**
+ * ------------------------------------------------------------------------------
+ * MIT License
+ *
+ * Copyright (c) 2016-2026 Olivier BARRY
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ------------------------------------------------------------------------------
+ *
+ * This class is the view frustum of the camera in World coordinates, as 6 planes (near, far, top, bottom and both sides), used to
+ * cull whole subtrees of Elements from their bounding box before transforming any vertex (see RenderQueue).
+ *
+ * The planes are built from the 8 corners given by Perspective.getFrustumFromEye(): [0][*] on the near plane, [1][*] on the far plane,
+ * in the order +up+side, +up-side, -up-side, -up+side. Each plane is a*x + b*y + c*z + d = 0, oriented so that the inside of the
+ * frustum is positive.
+ *
+ * It can also be built from a view-projection matrix (e.g. the orthographic box of a shadowing light), from the clipping planes of the
+ * homogeneous coordinates -w <= x, y, z <= w (see Clipper).
+ *
+ * A box is outside the frustum if it is entirely on the negative side of at least one plane: only its corner the most in the direction
+ * of the normal of the plane (p-vertex) needs to be tested. This test is conservative: a box outside but crossing several planes near a
+ * corner of the frustum is kept, its triangles being rejected one by one as before.
+ *
+ * @author Olivier BARRY
+ * @since October 2026
+ */
+
+public class Frustum implements Octree.Region {
+
+	protected float[][] planes = new float[6][4]; // a, b, c, d of each plane
+
+	/**
+	 * Create the Frustum from its 8 corners
+	 * @param corners the corners as given by Perspective.getFrustumFromEye()
+	 */
+	public Frustum(Vector4[][] corners) {
+		Vector4[] n = corners[0];
+		Vector4[] f = corners[1];
+		setPlane(0, n[0], n[1], n[2]); // Near
+		setPlane(1, f[0], f[1], f[2]); // Far
+		setPlane(2, n[0], n[1], f[1]); // Top
+		setPlane(3, n[2], n[3], f[3]); // Bottom
+		setPlane(4, n[0], n[3], f[3]); // Side
+		setPlane(5, n[1], n[2], f[2]); // Opposite side
+
+		// Orientation: the center of the frustum is inside
+		float cx = 0, cy = 0, cz = 0;
+		for (int i=0; i<2; i++) {
+			for (int j=0; j<4; j++) {
+				cx += corners[i][j].getX();
+				cy += corners[i][j].getY();
+				cz += corners[i][j].getZ();
+			}
+		}
+		cx /= 8; cy /= 8; cz /= 8;
+		for (int i=0; i<6; i++) {
+			float[] p = planes[i];
+			if (p[0]*cx + p[1]*cy + p[2]*cz + p[3] < 0) {
+				for (int k=0; k<4; k++) p[k] = -p[k];
+			}
+		}
+	}
+
+	/**
+	 * Create the Frustum of a view-projection matrix: the volume of World space projected inside the clipping box
+	 * @param vp the view-projection matrix (Projection * View)
+	 */
+	public Frustum(Matrix4 vp) {
+		for (int k=0; k<3; k++) {
+			for (int j=0; j<4; j++) {
+				planes[2*k][j] = vp.get(3, j) + vp.get(k, j); // w + x, w + y, w + z >= 0 : left, bottom, near
+				planes[2*k+1][j] = vp.get(3, j) - vp.get(k, j); // w - x, w - y, w - z >= 0 : right, top, far
+			}
+		}
+	}
+
+	/**
+	 * Create the Frustum of a camera
+	 * @param perspective the Perspective
+	 * @param camera the Camera
+	 * @return the Frustum, or null if the Perspective does not give its frustum (e.g. orthographic)
+	 */
+	public static Frustum fromEye(Perspective perspective, Camera camera) {
+		Vector4[][] corners = perspective.getFrustumFromEye(camera);
+		return corners != null ? new Frustum(corners) : null;
+	}
+
+	protected void setPlane(int i, Vector4 p1, Vector4 p2, Vector4 p3) {
+		float ux = p2.getX()-p1.getX(), uy = p2.getY()-p1.getY(), uz = p2.getZ()-p1.getZ();
+		float vx = p3.getX()-p1.getX(), vy = p3.getY()-p1.getY(), vz = p3.getZ()-p1.getZ();
+		float a = uy*vz - uz*vy;
+		float b = uz*vx - ux*vz;
+		float c = ux*vy - uy*vx;
+		planes[i][0] = a;
+		planes[i][1] = b;
+		planes[i][2] = c;
+		planes[i][3] = -(a*p1.getX() + b*p1.getY() + c*p1.getZ());
+	}
+
+	/**
+	 * @param box a box in World coordinates
+	 * @return false if the box is outside the frustum, true if it is (or may be) at least partially inside
+	 */
+	@Override
+	public boolean intersects(BoundingBox4 box) {
+		for (int i=0; i<6; i++) {
+			float[] p = planes[i];
+			float x = p[0] >= 0 ? box.getMaxX() : box.getMinX();
+			float y = p[1] >= 0 ? box.getMaxY() : box.getMinY();
+			float z = p[2] >= 0 ? box.getMaxZ() : box.getMinZ();
+			if (p[0]*x + p[1]*y + p[2]*z + p[3] < 0) return false;
+		}
+		return true;
+	}
+}
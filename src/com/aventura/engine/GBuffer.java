@@ -0,0 +1,224 @@
+package com.aventura.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.aventura.context.PerspectiveContext;
+import com.aventura.tools.tracing.Tracer;
+
+/**
+ * ------------------------------------------------------------------------------
+ * MIT License
+ *
+ * Copyright (c) 2016-2026 Olivier BARRY
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ------------------------------------------------------------------------------
+ *
+ * The GBuffer (geometry buffer) is used for deferred shading.
+ *
+ * During the geometry pass, the Rasterizer does not shade the fragments that pass the depth test: it stores their interpolated
+ * attributes in the GBuffer, overwriting the fragment previously stored for the same pixel. The stored attributes are the depth,
+ * the triangle (texture, colors, flags and shadow maps) and, as lighting is computed at vertex level (Gouraud's shading), the
+ * interpolated shaded and specular colors of each light, the position in each light's coordinates and the texture vector.
+ *
+ * At the end of the frame, the lighting pass shades each visible pixel exactly once (with the same kernel than forward shading:
+ * Rasterizer.shadeFragment), rows in parallel. Pixels hidden by overdraw are never textured, shadow tested nor lit.
+ *
+ * Attributes of a pixel are stored contiguously, row by row:
+ *
+ *     | shaded colors (3 x lights) | specular colors (3 x lights) | light coordinates (3 x lights) | texture vector (3) |
+ *
+ * @author Olivier BARRY
+ * @since October 2026
+ */
+
+public class GBuffer {
+
+	// Threshold of rows under which a task is not split anymore
+	private static final int ROWS_PER_TASK = 8;
+
+	// Rasterizer of the RenderEngine, used as template for the lighting pass
+	protected Rasterizer rasterizer;
+
+	// Dimensions (zBuffer coordinates) and attributes
+	protected int width, height;
+	protected int nb_lights;
+	protected int stride; // Number of attributes per pixel
+	protected Rasterizer.TriangleParam[] triangles; // Triangle of each pixel, null if no fragment (background)
+	protected float[] depth;
+	protected float[] attributes;
+
+	// Thread pool of the lighting pass
+	protected ForkJoinPool pool;
+	protected int poolSize;
+
+	// Statistics
+	LongAdder written_fragments = new LongAdder();
+	int shaded_pixels = 0;
+
+	/**
+	 * Creation of a GBuffer
+	 * @param rasterizer the Rasterizer of the RenderEngine, its zBuffer must be initialized
+	 * @param poolSize the number of threads of the lighting pass, 0 to use the number of available processors
+	 */
+	public GBuffer(Rasterizer rasterizer, int poolSize) {
+		this.rasterizer = rasterizer;
+		this.poolSize = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+		this.pool = new ForkJoinPool(this.poolSize);
+		if (Tracer.info) Tracer.traceInfo(this.getClass(), "GBuffer created. Lighting pass threads: " + this.poolSize);
+	}
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	/**
+	 * Prepare the GBuffer for a new frame, (re)allocating the buffers if the dimensions or the number of lights have changed
+	 * @param nb_lights the number of shadowing lights
+	 */
+	public void init(int nb_lights) {
+		int w = rasterizer.zBuf_width;
+		int h = rasterizer.zBuf_height;
+		if (triangles == null || w != width || h != height || nb_lights != this.nb_lights) {
+			width = w;
+			height = h;
+			this.nb_lights = nb_lights;
+			stride = 9 * nb_lights + 3;
+			triangles = new Rasterizer.TriangleParam[width * height];
+			depth = new float[width * height];
+			attributes = new float[width * height * stride];
+			if (Tracer.info) Tracer.traceInfo(this.getClass(), "GBuffer allocated. Width: " + width + ", height: " + height + ", attributes per pixel: " + stride);
+		} else {
+			Arrays.fill(triangles, null);
+		}
+		written_fragments.reset();
+		shaded_pixels = 0;
+	}
+
+	/**
+	 * Store a fragment, replacing the one previously stored for this pixel
+	 * @param x_zBuf x coordinate of the pixel (zBuffer coordinates)
+	 * @param y_zBuf y coordinate of the pixel (zBuffer coordinates)
+	 * @param z depth of the fragment
+	 * @param tp the triangle of the fragment
+	 * @param shc shaded colors of each light (weighted by the projection factor)
+	 * @param spc specular colors of each light (weighted by the projection factor)
+	 * @param vl position in each light's coordinates
+	 * @param tex texture vector (weighted by the projection factor)
+	 */
+	void write(int x_zBuf, int y_zBuf, float z, Rasterizer.TriangleParam tp, float[] shc, float[] spc, float[] vl, float[] tex) {
+		int pixel = y_zBuf * width + x_zBuf;
+		int base = pixel * stride;
+		int n = 3 * tp.nb_sl;
+		triangles[pixel] = tp;
+		depth[pixel] = z;
+		if (n > 0) {
+			System.arraycopy(shc, 0, attributes, base, n);
+			System.arraycopy(spc, 0, attributes, base + 3 * nb_lights, n);
+			System.arraycopy(vl, 0, attributes, base + 6 * nb_lights, n);
+		}
+		System.arraycopy(tex, 0, attributes, base + 9 * nb_lights, 3);
+		written_fragments.increment();
+	}
+
+	/**
+	 * Lighting pass: shade each pixel having a fragment and draw it in the GUIView of the Rasterizer, rows in parallel
+	 */
+	public void shade() {
+		if (Tracer.function) Tracer.traceFunction(this.getClass(), "Lighting pass. Fragments written: " + written_fragments.sum());
+		shaded_pixels = pool.invoke(new RowsTask(0, height));
+	}
+
+	/**
+	 * Shade a range of rows with a Rasterizer of the current thread
+	 * @param first the first row (included)
+	 * @param last the last row (excluded)
+	 * @return the number of shaded pixels
+	 */
+	protected int shadeRows(int first, int last) {
+		Rasterizer r = new Rasterizer(rasterizer);
+		r.initFragmentBuffers(nb_lights);
+		boolean frustum = r.perspectiveCtx.getPerspectiveType() == PerspectiveContext.PERSPECTIVE_TYPE_FRUSTUM;
+		int shaded = 0;
+
+		for (int y = first; y < last; y++) {
+			for (int x = 0; x < width; x++) {
+				int pixel = y * width + x;
+				Rasterizer.TriangleParam tp = triangles[pixel];
+				if (tp == null) continue; // Background
+
+				// Restore the fragment attributes then shade it
+				int base = pixel * stride;
+				int n = 3 * tp.nb_sl;
+				if (n > 0) {
+					System.arraycopy(attributes, base, r.frag_shc, 0, n);
+					System.arraycopy(attributes, base + 3 * nb_lights, r.frag_spc, 0, n);
+					System.arraycopy(attributes, base + 6 * nb_lights, r.frag_vl, 0, n);
+				}
+				System.arraycopy(attributes, base + 9 * nb_lights, r.frag_tex, 0, 3);
+
+				// zBuffer to screen coordinates
+				r.gUIView.drawPixel(x - r.pixelHalfWidth, y - r.pixelHalfHeight, r.shadeFragment(tp, depth[pixel], frustum));
+				shaded++;
+			}
+		}
+		return shaded;
+	}
+
+	/**
+	 * Fork-join task shading a range of rows, split in halves until reaching ROWS_PER_TASK
+	 */
+	@SuppressWarnings("serial")
+	protected class RowsTask extends RecursiveTask<Integer> {
+		int first, last; // Range of rows [first, last[
+
+		public RowsTask(int first, int last) {
+			this.first = first;
+			this.last = last;
+		}
+
+		@Override
+		protected Integer compute() {
+			if (last - first <= ROWS_PER_TASK) {
+				return shadeRows(first, last);
+			} else {
+				int middle = (first + last) / 2;
+				RowsTask t1 = new RowsTask(first, middle);
+				t1.fork();
+				int shaded = new RowsTask(middle, last).compute();
+				return shaded + t1.join();
+			}
+		}
+	}
+
+	/**
+	 * Release the threads of the pool
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	public String renderStats() {
+		long written = written_fragments.sum();
+		return "GBuffer - Deferred shading, threads: " + poolSize + ". Fragments written: " + written + ", pixels shaded: " + shaded_pixels + (shaded_pixels > 0 ? ", overdraw: " + (float)written / shaded_pixels : "");
+	}
+}
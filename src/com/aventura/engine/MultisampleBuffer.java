@@ -0,0 +1,190 @@
+package com.aventura.engine;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+import com.aventura.tools.tracing.Tracer;
+
+/**
+ * ------------------------------------------------------------------------------
+ * MIT License
+ *
+ * Copyright (c) 2016-2026 Olivier BARRY
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ------------------------------------------------------------------------------
+ *
+ * The GBuffer (geometry buffer) is used for deferred shading.
+ * The MultisampleBuffer holds the colors of the samples of each pixel for multi-sample anti-aliasing (MSAA).
+ *
+ * The Rasterizer evaluates the coverage and the depth of a triangle at several samples per pixel (the zBuffer then has a per-sample
+ * layout, see MapView) but shades the pixel only once per triangle, and writes this color in all the samples of the pixel that are
+ * covered by the triangle and pass the depth test. The resolve step, at the end of the frame, averages the samples of each pixel into
+ * the GUIView: pixels on the edges of the triangles get the blend of the colors of the triangles (or background) covering them.
+ *
+ * Samples are at fixed positions in the pixel, given in the sub-pixel grid of the Rasterizer (1/16 of pixel) from the pixel center,
+ * so the coverage of each sample is exact (integer edge functions) and never crosses the border of its pixel. The 4 samples pattern
+ * is a rotated grid: each sample has its own row and column, so near horizontal and near vertical edges get 4 levels of coverage.
+ *
+ * Samples not written during the frame keep the background color. Only the pixels having at least one sample written are resolved, the
+ * other ones keep the background of the GUIView.
+ *
+ * @author Olivier BARRY
+ * @since October 2026
+ */
+
+public class MultisampleBuffer {
+
+	// Sample positions (x, y offsets from the pixel center in 1/16 of pixel, see Rasterizer.SUBPIXEL_BITS) for 2, 4 and 8 samples
+	private static final int[][] PATTERN_2 = {{-4, -4}, {4, 4}};
+	private static final int[][] PATTERN_4 = {{-2, -6}, {6, -2}, {-6, 2}, {2, 6}};
+	private static final int[][] PATTERN_8 = {{1, -3}, {-1, 3}, {5, 1}, {-3, -5}, {-5, 5}, {-7, -1}, {3, 7}, {7, -7}};
+
+	// Rasterizer of the RenderEngine, giving the dimensions of the buffer and the GUIView of the resolve
+	protected Rasterizer rasterizer;
+
+	// Samples
+	protected int samples;
+	protected int[] sampleX, sampleY; // Sample positions (sub-pixel grid)
+
+	// Dimensions (zBuffer coordinates) and colors
+	protected int width, height;
+	protected int[] colors; // Packed RGB color of sample s of pixel (x,y) at index (y*width+x)*samples+s
+	protected boolean[] written; // Pixels having at least one sample written during the frame
+	protected int[] row; // Resolved colors of a row, drawn by spans of written pixels
+	protected int background;
+
+	// Statistics
+	int resolved_pixels = 0;
+	int edge_pixels = 0;
+
+	/**
+	 * Creation of a MultisampleBuffer
+	 * @param rasterizer the Rasterizer of the RenderEngine
+	 * @param samples the number of samples per pixel: 2, 4 or 8 (other values are rounded up to the next supported one, 8 at most)
+	 */
+	public MultisampleBuffer(Rasterizer rasterizer, int samples) {
+		this.rasterizer = rasterizer;
+		this.samples = getSupportedSamples(samples);
+		int[][] pattern = this.samples == 2 ? PATTERN_2 : this.samples == 4 ? PATTERN_4 : PATTERN_8;
+		sampleX = new int[this.samples];
+		sampleY = new int[this.samples];
+		for (int s=0; s<this.samples; s++) {
+			sampleX[s] = pattern[s][0];
+			sampleY[s] = pattern[s][1];
+		}
+		if (Tracer.info) Tracer.traceInfo(this.getClass(), "Multisample buffer created. Samples per pixel: " + this.samples);
+	}
+
+	/**
+	 * Get the number of samples per pixel used for a requested number of samples
+	 * @param samples the requested number of samples
+	 * @return 2, 4 or 8
+	 */
+	public static int getSupportedSamples(int samples) {
+		return samples <= 2 ? 2 : samples <= 4 ? 4 : 8;
+	}
+
+	public int getSamples() {
+		return samples;
+	}
+
+	/**
+	 * Prepare the buffer for a new frame, (re)allocating it if the dimensions of the zBuffer have changed. All samples are set to the
+	 * background color.
+	 * @param backgroundColor the background color of the frame
+	 */
+	public void init(Color backgroundColor) {
+		int w = rasterizer.zBuf_width;
+		int h = rasterizer.zBuf_height;
+		if (colors == null || w != width || h != height) {
+			width = w;
+			height = h;
+			colors = new int[width * height * samples];
+			written = new boolean[width * height];
+			row = new int[width];
+			if (Tracer.info) Tracer.traceInfo(this.getClass(), "Multisample buffer allocated. Width: " + width + ", height: " + height + ", samples per pixel: " + samples);
+		} else {
+			Arrays.fill(written, false);
+		}
+		background = backgroundColor.getRGB();
+		Arrays.fill(colors, background);
+		resolved_pixels = 0;
+		edge_pixels = 0;
+	}
+
+	/**
+	 * Write the color of a pixel in some of its samples
+	 * @param x_zBuf x coordinate of the pixel (zBuffer coordinates)
+	 * @param y_zBuf y coordinate of the pixel (zBuffer coordinates)
+	 * @param mask the samples to write, bit s set for sample s
+	 * @param rgb the packed RGB color
+	 */
+	void write(int x_zBuf, int y_zBuf, int mask, int rgb) {
+		int pixel = y_zBuf * width + x_zBuf;
+		int base = pixel * samples;
+		for (int s=0; s<samples; s++) {
+			if ((mask & (1 << s)) != 0) colors[base + s] = rgb;
+		}
+		written[pixel] = true;
+	}
+
+	/**
+	 * Resolve: draw in the GUIView of the Rasterizer the average color of the samples of each pixel written during the frame,
+	 * by spans of consecutive written pixels of a row
+	 */
+	public void resolve() {
+		if (Tracer.function) Tracer.traceFunction(this.getClass(), "Resolve samples");
+		for (int y = 0; y < height; y++) {
+			int start = -1; // First pixel of the current span of written pixels
+			for (int x = 0; x <= width; x++) {
+				int pixel = y * width + x;
+				if (x == width || !written[pixel]) {
+					// End of a span: draw it in one go
+					if (start >= 0) rasterizer.gUIView.drawSpan(start - rasterizer.pixelHalfWidth, y - rasterizer.pixelHalfHeight, x - start, row, start);
+					start = -1;
+					continue;
+				}
+				if (start < 0) start = x;
+
+				int base = pixel * samples;
+				int first = colors[base];
+				int r = 0, g = 0, b = 0;
+				boolean edge = false;
+				for (int s=0; s<samples; s++) {
+					int c = colors[base + s];
+					r += (c >> 16) & 0xFF;
+					g += (c >> 8) & 0xFF;
+					b += c & 0xFF;
+					if (c != first) edge = true;
+				}
+				int half = samples / 2; // Rounding to the nearest
+				int rgb = 0xFF000000 | ((r + half) / samples) << 16 | ((g + half) / samples) << 8 | (b + half) / samples;
+
+				row[x] = rgb;
+				resolved_pixels++;
+				if (edge) edge_pixels++;
+			}
+		}
+	}
+
+	public String renderStats() {
+		return "Multisample buffer - Samples per pixel: " + samples + ". Pixels resolved: " + resolved_pixels + ", edge pixels: " + edge_pixels;
+	}
+}
@@ -0,0 +1,243 @@
+package com.aventura.engine;
+
+import java.util.ArrayList;
+
+import com.aventura.context.PerspectiveContext;
+import com.aventura.math.tools.BoundingBox4;
+import com.aventura.math.vector.Matrix4;
+import com.aventura.math.vector.Vector4;
+import com.aventura.model.camera.Camera;
+import com.aventura.model.world.Element;
+import com.aventura.model.world.triangle.Triangle;
+import com.aventura.tools.tracing.Tracer;
+import com.aventura.view.MapView;
+
+/**
+ * ------------------------------------------------------------------------------
+ * MIT License
+ *
+ * Copyright (c) 2016-2026 Olivier BARRY
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ------------------------------------------------------------------------------
+ *
+ * This class culls the Elements of the RenderQueue hidden behind large occluders (e.g. walls), before any of their vertices is
+ * transformed or any of their triangles rasterized.
+ *
+ * At each frame:
+ * 1) The occluders are rasterized depth only (same simplified path than the shadow maps) in a low resolution depth buffer: the
+ *    pixel dimensions of the screen divided by SCALE. Occluders are the Elements designated by Element.setOccluder(), and the Elements
+ *    covering at least AUTO_OCCLUDER_AREA of the screen with at most AUTO_OCCLUDER_TRIANGLES triangles.
+ * 2) Each Element of the queue is tested: the 8 corners of its World bounding box are projected, giving its bounding rectangle on
+ *    the screen and its nearest depth. The Element is hidden if all pixels of the depth buffer in the rectangle are nearer.
+ *
+ *     RenderQueue --> [occluders] --> depth buffer (1/SCALE) --> test of each Element rectangle --> Entry.occluded
+ *
+ * The test is conservative: the rectangle and the nearest depth of the box contain those of all triangles of the Element, and the
+ * rectangle is extended by one pixel of the depth buffer so that an Element visible along the silhouette of an occluder, between 2
+ * samples of the depth buffer, is kept. Only gaps between occluders thinner than a pixel of the depth buffer may hide an Element
+ * wrongly. Elements whose box crosses the plane of the eye cannot be bounded on the screen and are always kept.
+ *
+ * Depth is the W coordinate (distance along the view direction) as in the zBuffer, so only the frustum perspective is supported.
+ *
+ * @author Olivier BARRY
+ * @since October 2026
+ */
+
+public class OcclusionCuller {
+
+	// Resolution divisor of the occluder depth buffer
+	public static final int SCALE = 4;
+	// Automatic selection of the occluders: part of the screen covered by the bounding rectangle, and maximum number of triangles
+	public static final float AUTO_OCCLUDER_AREA = 0.05f;
+	public static final int AUTO_OCCLUDER_TRIANGLES = 256;
+
+	protected Camera camera;
+	protected PerspectiveContext perspectiveContext; // Low resolution context of the depth buffer
+	protected Rasterizer rasterizer;
+	protected ModelViewProjection modelViewProjection;
+	protected Clipper clipper = new Clipper();
+	protected MapView map;
+	protected int halfWidth, halfHeight;
+
+	// Bounding rectangle (pixels of the depth buffer, origin in the center) and nearest depth of each Element of the queue
+	protected int[] rectMinX = new int[0], rectMaxX, rectMinY, rectMaxY;
+	protected float[] minDepth;
+	protected boolean[] bounded;
+
+	// Statistics of the last frame
+	protected int occluders = 0;
+	protected int occluder_triangles = 0;
+	protected int tested = 0;
+	protected int unbounded = 0;
+	protected int culled = 0;
+	protected long cull_nanos = 0;
+
+	/**
+	 * Create an OcclusionCuller for the screen of a PerspectiveContext
+	 * @param camera the Camera
+	 * @param perspectiveContext the PerspectiveContext of the screen (frustum perspective)
+	 */
+	public OcclusionCuller(Camera camera, PerspectiveContext perspectiveContext) {
+		this.camera = camera;
+		this.perspectiveContext = new PerspectiveContext(perspectiveContext, SCALE);
+		this.rasterizer = new Rasterizer(camera, this.perspectiveContext);
+		this.modelViewProjection = new ModelViewProjection(camera.getMatrix(), this.perspectiveContext.getPerspective().getProjection());
+		this.halfWidth = this.perspectiveContext.getPixelHalfWidth();
+		this.halfHeight = this.perspectiveContext.getPixelHalfHeight();
+		if (Tracer.info) Tracer.traceInfo(this.getClass(), "Occlusion culler created. Depth buffer: " + (2*halfWidth+1) + "x" + (2*halfHeight+1));
+	}
+
+	/**
+	 * Rasterize the occluders of the queue and mark the Elements hidden behind them (Entry.occluded)
+	 * @param queue the RenderQueue of the frame
+	 */
+	public void cull(RenderQueue queue) {
+		long start = System.nanoTime();
+		occluders = 0;
+		occluder_triangles = 0;
+		tested = 0;
+		unbounded = 0;
+		culled = 0;
+
+		int n = queue.size();
+		if (rectMinX.length < n) {
+			rectMinX = new int[n];
+			rectMaxX = new int[n];
+			rectMinY = new int[n];
+			rectMaxY = new int[n];
+			minDepth = new float[n];
+			bounded = new boolean[n];
+		}
+		map = rasterizer.initZBuffer();
+		clipper.init();
+
+		// View and projection of the frame (the camera matrix is updated in place when the camera moves)
+		Matrix4 vp = perspectiveContext.getPerspective().getProjection().times(camera.getMatrix());
+		float screenArea = (2*halfWidth+1) * (2*halfHeight+1);
+
+		// 1) Occluders, in the order of the queue (front-to-back if sorted, so the nearest occluders are rasterized first)
+		for (int i=0; i<n; i++) {
+			RenderQueue.Entry entry = queue.get(i);
+			bounded[i] = bound(i, entry.element.getWorldBounds(), vp);
+			boolean large = !bounded[i] || (float)(rectMaxX[i]-rectMinX[i]+1)*(rectMaxY[i]-rectMinY[i]+1) >= AUTO_OCCLUDER_AREA*screenArea;
+			if (entry.element.isOccluder() || (large && entry.element.getNbTriangles() <= AUTO_OCCLUDER_TRIANGLES)) {
+				rasterizeOccluder(entry.element);
+			}
+		}
+
+		// 2) Test of each Element against the depth buffer
+		for (int i=0; i<n; i++) {
+			if (!bounded[i]) {
+				unbounded++;
+				continue;
+			}
+			tested++;
+			if (isHidden(i)) {
+				queue.get(i).occluded = true;
+				culled++;
+			}
+		}
+		cull_nanos = System.nanoTime() - start;
+		if (Tracer.info) Tracer.traceInfo(this.getClass(), "Occlusion culling: " + occluders + " occluder(s), " + culled + " Element(s) culled out of " + n);
+	}
+
+	/**
+	 * Calculate the bounding rectangle on the screen and the nearest depth of a box
+	 * @param i the index of the Element in the queue
+	 * @param box the World bounding box of the Element (may be null)
+	 * @param vp the View Projection matrix
+	 * @return false if the box cannot be bounded on the screen (no box, or box crossing the plane of the eye) or is out of the screen
+	 */
+	protected boolean bound(int i, BoundingBox4 box, Matrix4 vp) {
+		if (box == null) return false;
+		float minX = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, minY = Float.MAX_VALUE, maxY = -Float.MAX_VALUE, minW = Float.MAX_VALUE;
+		for (int c=0; c<8; c++) {
+			Vector4 p = vp.times(new Vector4((c & 1) == 0 ? box.getMinX() : box.getMaxX(), (c & 2) == 0 ? box.getMinY() : box.getMaxY(), (c & 4) == 0 ? box.getMinZ() : box.getMaxZ(), 1));
+			float w = p.getW();
+			if (w <= 0) return false;
+			float x = p.getX()/w * halfWidth;
+			float y = p.getY()/w * halfHeight;
+			if (x < minX) minX = x;
+			if (x > maxX) maxX = x;
+			if (y < minY) minY = y;
+			if (y > maxY) maxY = y;
+			if (w < minW) minW = w;
+		}
+		// Extended by one pixel of the depth buffer, restricted to the screen
+		rectMinX[i] = Math.max(-halfWidth, (int)Math.floor(minX) - 1);
+		rectMaxX[i] = Math.min(halfWidth, (int)Math.ceil(maxX) + 1);
+		rectMinY[i] = Math.max(-halfHeight, (int)Math.floor(minY) - 1);
+		rectMaxY[i] = Math.min(halfHeight, (int)Math.ceil(maxY) + 1);
+		minDepth[i] = minW;
+		return rectMinX[i] <= rectMaxX[i] && rectMinY[i] <= rectMaxY[i];
+	}
+
+	/**
+	 * Rasterize an occluder in the depth buffer, its triangles being clipped as in the main rendering
+	 * @param e the occluder
+	 */
+	protected void rasterizeOccluder(Element e) {
+		occluders++;
+		modelViewProjection.setModel(e.getTransformation());
+		modelViewProjection.calculateMVPMatrix();
+		modelViewProjection.transformElement(e, false);
+
+		for (int j=0; j<e.getNbTriangles(); j++) {
+			Triangle t = e.getTriangle(j);
+			switch (clipper.clip(t)) {
+			case Clipper.INSIDE:
+				rasterizer.rasterizeTriangle(t, null, 0, null, false, false, false, true);
+				occluder_triangles++;
+				break;
+			case Clipper.CLIPPED:
+				ArrayList<Triangle> triangles = clipper.getTriangles();
+				for (int k=0; k<triangles.size(); k++) {
+					rasterizer.rasterizeTriangle(triangles.get(k), null, 0, null, false, false, false, true);
+				}
+				occluder_triangles++;
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	/**
+	 * @param i the index of the Element in the queue
+	 * @return true if all pixels of the depth buffer in the rectangle of the Element are nearer than the Element
+	 */
+	protected boolean isHidden(int i) {
+		float z = minDepth[i];
+		for (int y=rectMinY[i]; y<=rectMaxY[i]; y++) {
+			for (int x=rectMinX[i]; x<=rectMaxX[i]; x++) {
+				if (map.get(x + halfWidth, y + halfHeight) >= z) return false;
+			}
+		}
+		return true;
+	}
+
+	public int getCulled() {
+		return culled;
+	}
+
+	public String renderStats() {
+		return "Occlusion culler - Occluders: " + occluders + " (" + occluder_triangles + " triangles), Elements tested: " + tested + ", culled: " + culled + ", not bounded: " + unbounded + ". Time: " + String.format("%.2f", cull_nanos/1000000.0f) + " ms";
+	}
+}
@@ -4,6 +4,7 @@ import java.awt.Color;
 import java.util.ArrayList;
 
 import com.aventura.context.PerspectiveContext;
+import com.aventura.context.RenderContext;
 import com.aventura.math.Constants;
 import com.aventura.math.vector.Tools;
 import com.aventura.math.vector.Vector3;
@@ -18,6 +19,7 @@ import com.aventura.model.world.triangle.Triangle;
 import com.aventura.tools.color.ColorTools;
 import com.aventura.tools.tracing.Tracer;
 import com.aventura.view.GUIView;
+import com.aventura.view.HierarchicalMapView;
 import com.aventura.view.MapView;
 
 /**
@@ -66,8 +68,9 @@ public class Rasterizer {
 	//
 
 	protected class VertexLightParam {
-		public Color shadedColor;
-		public Color specularColor;
+		// Colors as float r, g, b components (in [0,1]) to avoid any Color creation during scan
+		public float[] shadedColor;
+		public float[] specularColor;
 		// Shadowing parameters
 		public Vector4 vl; // Projected position in light coordinates of Vertex
 		public MapView map; // Shadow map of this Light
@@ -75,7 +78,7 @@ public class Rasterizer {
 		public VertexLightParam() {
 		}
 
-		public VertexLightParam(Color shaded, Color specular, Vector4 vl, Vector4 vm, MapView m) {
+		public VertexLightParam(float[] shaded, float[] specular, Vector4 vl, Vector4 vm, MapView m) {
 			this.shadedColor = shaded; // Shaded color of the light at Vertex position (calculated with normal)
 			this.specularColor = specular; // Specular color of the light at Vertex position
 			this.vl = vl; // 
@@ -87,6 +90,8 @@ public class Rasterizer {
 		public Vertex v; // Vertex
 		public Vector4 t; // Texture vector
 		public VertexLightParam [] l; // one parameter for each light (except ambient)
+		public int fx, fy; // Screen position snapped to the sub-pixel grid (fixed point, see snapVertex)
+		public float x, y; // Snapped screen position in pixels (exact conversion of fx, fy)
 
 		public VertexParam() {
 		}
@@ -107,6 +112,31 @@ public class Rasterizer {
 		}
 	}
 
+	/**
+	 * Result of the triangle setup: ordered VertexParam containers and all data computed once per triangle.
+	 * Once set up, a triangle can be scanned by any Rasterizer sharing the same zBuffer and GUIView (e.g. one per screen tile).
+	 */
+	protected class TriangleParam {
+		public VertexParam vp1, vp2, vp3; // Ordered Vertex containers (vp1 lowest, vp3 highest on screen)
+		public Texture tex;
+		public float[] shadedCol; // r, g, b components
+		public float[] ambientCol; // r, g, b components
+		public boolean interpolate;
+		public boolean texture;
+		public int tex_orientation;
+		public boolean shadows;
+		public int nb_sl;
+		public boolean shadowmap;
+		public boolean p2Right; // true if P2 is on the right of the [P1, P3] segment
+		// Screen bounds of the pixels that may be produced by this triangle (screen coordinates, bounds included)
+		public int minX, maxX, minY, maxY;
+		// Nearest depth of the triangle (W for frustum, projected Z for orthographic)
+		public float minZ;
+
+		public TriangleParam() {
+		}
+	}
+
 	// End Parameter classes definition
 	// --------------------------------------------------------------------------------------------------------------------
 
@@ -114,15 +144,23 @@ public class Rasterizer {
 	// References
 	protected PerspectiveContext perspectiveCtx;
 	protected GUIView gUIView;
+	protected int[] pixels; // Pixels of the back buffer of the GUIView for direct writes, null if not available (see initPixelBuffer)
 	protected Lighting lighting;
 	protected Camera camera;
 
 	// Static data
+	private static final float HIZ_EPSILON = 1.0E-5f; // Relative margin of the hierarchical Z tests
+	// Sub-pixel grid of the triangle setup: screen coordinates in 28.4 fixed point (1/16 of pixel)
+	protected static final int SUBPIXEL_BITS = 4;
+	protected static final int SUBPIXEL_ONE = 1 << SUBPIXEL_BITS;
+	protected static final int SUBPIXEL_MASK = SUBPIXEL_ONE - 1;
+	// Range of the fixed point coordinates, far beyond the guard band of the Clipper (protection of the integer edge functions)
+	private static final float SUBPIXEL_MAX = 1 << 26;
 	private static Color DARK_SHADING_COLOR = Color.BLACK;
 	private static Color DEFAULT_SPECULAR_COLOR = Color.WHITE;
 
-	// Z buffer
-	private MapView zBuffer = null;
+	// Z buffer, with the maximum depth of each 8x8 tile (hierarchical Z) to reject hidden triangles and blocks of pixels
+	private HierarchicalMapView zBuffer = null;
 	int zBuf_width, zBuf_height;
 
 	// Pixel statistics
@@ -141,6 +179,11 @@ public class Rasterizer {
 	int lines_with_no_pixel = 0;
 	int reversed_lines = 0;
 	int rendered_triangles = 0;
+	int hiz_rejected_triangles = 0;
+	int hiz_rejected_blocks = 0;
+	// Frame statistics: pixels written in the zBuffer only (depth prepass) and fragments drawn or stored (color pass)
+	int frame_depth_pixels = 0;
+	int frame_fragment_pixels = 0;
 	int triangles_with_lines = 0;
 	int triangles_with_pixels = 0;
 
@@ -149,6 +192,48 @@ public class Rasterizer {
 	int pixelHalfWidth = 0;
 	int pixelHalfHeight = 0;
 
+	// Scan line buffers: r, g, b components of the shaded and specular colors and x, y, z light coordinates, for each light
+	// at the beginning (1) and end (2) of the scan line. Reused from one scan line to the other to avoid allocations
+	float[] ishc1, ishc2, ispc1, ispc2, vl1, vl2;
+
+	// Fragment buffers: attributes of the pixel being shaded (see shadeFragment), filled by the triangle traversal
+	float[] frag_shc, frag_spc, frag_vl;
+	float[] frag_tex = new float[3];
+
+	// Span deltas: increment per pixel of each fragment attribute along the scan line (forward differencing)
+	float[] dfrag_shc, dfrag_spc, dfrag_vl;
+	float[] dfrag_tex = new float[3];
+
+	// Half-space buffers: attributes of the 3 vertices of the triangle and of the fragment, in a single array each (see setVertexAttributes)
+	float[] vtx0_att, vtx1_att, vtx2_att, frag_att;
+
+	// Triangle traversal algorithm (see RenderContext)
+	int triangleTraversal = RenderContext.TRIANGLE_TRAVERSAL_SCANLINE;
+
+	// Span kernel of the scan line traversal (see RenderContext), the vector kernel being created at first use
+	int spanKernel = RenderContext.SPAN_KERNEL_SCALAR;
+	VectorSpanKernel vectorKernel = null;
+	// Availability of the Vector API (jdk.incubator.vector module), checked once
+	private static Boolean vectorKernelAvailable = null;
+
+	// GBuffer receiving the fragments in deferred shading, null in forward shading (fragments shaded immediately)
+	GBuffer gBuffer = null;
+
+	// Depth test: pixel discarded if z > zBuffer (default) or if z != zBuffer (color pass after a depth prepass)
+	boolean depthTestEqual = false;
+
+	// Multi-sample anti-aliasing: buffer receiving the colors of the samples (null if single sample) and number of samples per pixel,
+	// also the number of samples per pixel of the zBuffer
+	MultisampleBuffer multisample = null;
+	int samples = 1;
+
+	// Multi-sample buffers: offsets of the 3 edge functions and depth at each sample of a pixel
+	long[] sample_e12, sample_e20, sample_e01;
+	float[] sample_z;
+
+	// Rasterization window (screen coordinates, bounds included). Whole screen by default, restricted to a tile by the TileRasterizer
+	int windowMinX, windowMaxX, windowMinY, windowMaxY;
+
 	/**
 	 * Creation of Rasterizer with requested references for run time.
 	 * @param camera : a pointer to the Camera created offline by user
@@ -161,7 +246,8 @@ public class Rasterizer {
 		this.lighting = lighting;
 		pixelHalfWidth = graphic.getPixelHalfWidth();
 		pixelHalfHeight = graphic.getPixelHalfHeight();
-		// TODO Be cautious here : if PerspectiveContext has changed between 2 calls to previously created Rasterizer, the 2 above variables won't be refreshed accordingly -> potential bug
+		// If PerspectiveContext is resized after the creation of this Rasterizer, the 2 above variables are refreshed by initZBuffer()
+		resetWindow();
 	}
 
 	/**
@@ -173,17 +259,171 @@ public class Rasterizer {
 		this.lighting = null;
 		pixelHalfWidth = graphic.getPixelHalfWidth();
 		pixelHalfHeight = graphic.getPixelHalfHeight();
+		resetWindow();
+	}
+
+	/**
+	 * Creation of a Rasterizer sharing the references, the zBuffer and the GUIView of another Rasterizer.
+	 * Used to rasterize tiles in parallel: each tile Rasterizer is restricted to its own window so they never write the same pixel.
+	 * @param r the Rasterizer to share references and buffers with
+	 */
+	Rasterizer(Rasterizer r) {
+		this.camera = r.camera;
+		this.perspectiveCtx = r.perspectiveCtx;
+		this.lighting = r.lighting;
+		this.gUIView = r.gUIView;
+		this.pixels = r.pixels;
+		this.zBuffer = r.zBuffer;
+		this.zBuf_width = r.zBuf_width;
+		this.zBuf_height = r.zBuf_height;
+		pixelHalfWidth = r.pixelHalfWidth;
+		pixelHalfHeight = r.pixelHalfHeight;
+		triangleTraversal = r.triangleTraversal;
+		spanKernel = r.spanKernel;
+		gBuffer = r.gBuffer;
+		depthTestEqual = r.depthTestEqual;
+		multisample = r.multisample;
+		samples = r.samples;
+		resetWindow();
 	}
 
 	public void setView(GUIView v) {
 		this.gUIView = v;
 	}
 
+	/**
+	 * Get the pixels of the back buffer of the GUIView for direct writes. To be called after each initView() of the GUIView as the
+	 * back buffer may be recreated.
+	 */
+	public void initPixelBuffer() {
+		this.pixels = gUIView.getPixelBuffer();
+	}
+
+	/**
+	 * Set the GBuffer for deferred shading: fragments are stored in the GBuffer instead of being shaded
+	 * @param gBuffer the GBuffer, or null for forward shading
+	 */
+	public void setGBuffer(GBuffer gBuffer) {
+		this.gBuffer = gBuffer;
+	}
+
+	/**
+	 * Set the MultisampleBuffer for multi-sample anti-aliasing: coverage and depth are evaluated at each sample of the pixels, the pixels
+	 * are shaded once per triangle and their color is written in the samples. To be set before initZBuffer() as the zBuffer holds the
+	 * depth of each sample.
+	 * @param multisample the MultisampleBuffer, or null for a single sample per pixel
+	 */
+	public void setMultisampleBuffer(MultisampleBuffer multisample) {
+		this.multisample = multisample;
+		this.samples = multisample != null ? multisample.getSamples() : 1;
+	}
+
+	/**
+	 * Set the depth test. After a depth prepass, the zBuffer contains the depth of the visible fragments: the color pass only draws
+	 * fragments whose depth is equal to the zBuffer, so each pixel is shaded once (or a few times if several fragments have the same depth)
+	 * @param equal true to draw only fragments with the same depth than the zBuffer, false to draw fragments nearer or at the same depth
+	 */
+	public void setDepthTestEqual(boolean equal) {
+		this.depthTestEqual = equal;
+	}
+
+	/**
+	 * Reset the frame statistics (depth only pixels and fragments)
+	 */
+	public void initFrameStats() {
+		frame_depth_pixels = 0;
+		frame_fragment_pixels = 0;
+	}
+
+	/**
+	 * Add the frame statistics of another Rasterizer (e.g. the Rasterizer of a tile) to the ones of this Rasterizer
+	 * @param r the other Rasterizer
+	 */
+	synchronized void addFrameStats(Rasterizer r) {
+		frame_depth_pixels += r.frame_depth_pixels;
+		frame_fragment_pixels += r.frame_fragment_pixels;
+	}
+
+	public int getFrameDepthPixels() {
+		return frame_depth_pixels;
+	}
+
+	public int getFrameFragmentPixels() {
+		return frame_fragment_pixels;
+	}
+
+	/**
+	 * Select the triangle traversal algorithm
+	 * @param traversal RenderContext.TRIANGLE_TRAVERSAL_SCANLINE or RenderContext.TRIANGLE_TRAVERSAL_HALFSPACE
+	 */
+	public void setTriangleTraversal(int traversal) {
+		this.triangleTraversal = traversal;
+	}
+
+	/**
+	 * Select the kernel rasterizing the pixels of the scan lines. The vector kernel falls back to the scalar one if the Vector API is not available
+	 * @param kernel RenderContext.SPAN_KERNEL_SCALAR or RenderContext.SPAN_KERNEL_VECTOR
+	 */
+	public void setSpanKernel(int kernel) {
+		if (kernel == RenderContext.SPAN_KERNEL_VECTOR && !isVectorKernelAvailable()) kernel = RenderContext.SPAN_KERNEL_SCALAR;
+		this.spanKernel = kernel;
+	}
+
+	public int getSpanKernel() {
+		return spanKernel;
+	}
+
+	/**
+	 * Check if the Vector API can be used by the vector span kernel: the jdk.incubator.vector module needs to be added at run time
+	 * (java --add-modules jdk.incubator.vector)
+	 * @return true if the vector span kernel can be used
+	 */
+	public static synchronized boolean isVectorKernelAvailable() {
+		if (vectorKernelAvailable == null) {
+			try {
+				Class.forName("jdk.incubator.vector.FloatVector");
+				vectorKernelAvailable = true;
+			} catch (ClassNotFoundException | LinkageError e) {
+				vectorKernelAvailable = false;
+				if (Tracer.warning) Tracer.traceWarning(Rasterizer.class, "Vector API not available (module jdk.incubator.vector not added), scalar span kernel used");
+			}
+		}
+		return vectorKernelAvailable;
+	}
+
+	/**
+	 * Restrict the pixels produced by this Rasterizer to a window of the screen
+	 * @param minX left bound (screen coordinates, included)
+	 * @param maxX right bound (screen coordinates, included)
+	 * @param minY bottom bound (screen coordinates, included)
+	 * @param maxY top bound (screen coordinates, included)
+	 */
+	public void setWindow(int minX, int maxX, int minY, int maxY) {
+		// Restricted to the screen and to the zBuffer (a shadow map may be 1 pixel smaller than the screen), so that the traversal
+		// never produces a pixel out of them and needs no bounds check per pixel
+		int screenMaxX = zBuffer != null ? Math.min(pixelHalfWidth, zBuf_width - 1 - pixelHalfWidth) : pixelHalfWidth;
+		int screenMaxY = zBuffer != null ? Math.min(pixelHalfHeight, zBuf_height - 1 - pixelHalfHeight) : pixelHalfHeight;
+		this.windowMinX = Math.max(minX, -pixelHalfWidth);
+		this.windowMaxX = Math.min(maxX, screenMaxX);
+		this.windowMinY = Math.max(minY, -pixelHalfHeight);
+		this.windowMaxY = Math.min(maxY, screenMaxY);
+	}
+
+	/**
+	 * Reset the rasterization window to the whole screen
+	 */
+	public void resetWindow() {
+		setWindow(-pixelHalfWidth, pixelHalfWidth, -pixelHalfHeight, pixelHalfHeight);
+	}
+
 	/**
 	 * Initialize zBuffer using the pixelHalfWidth and pixelHalfHeight values from the Constructor
 	 */
 	public MapView initZBuffer() {
 
+		// The PerspectiveContext may have been resized since the creation of this Rasterizer (e.g. setPPU())
+		pixelHalfWidth = perspectiveCtx.getPixelHalfWidth();
+		pixelHalfHeight = perspectiveCtx.getPixelHalfHeight();
 		return initZBuffer(2 * pixelHalfWidth  + 1, 2 * pixelHalfHeight + 1, perspectiveCtx.getPerspective().getFar());
 	}
 	
@@ -203,15 +443,17 @@ public class Rasterizer {
 		if (Tracer.info) Tracer.traceInfo(this.getClass(), "zBuffer init value: "+zBuffer_init);
 
 		// Only create buffer if needed, otherwise reuse it, it will be reinitialized below
-		if (zBuffer == null) zBuffer = new MapView(zBuf_width, zBuf_height);
+		// One depth per sample of each pixel in multi-sampling (per-sample layout)
+		if (zBuffer == null) {
+			zBuffer = new HierarchicalMapView(zBuf_width, zBuf_height, samples);
+		} else if (zBuffer.getViewWidth() != zBuf_width || zBuffer.getViewHeight() != zBuf_height || zBuffer.getSamples() != samples) {
+			zBuffer.initView(zBuf_width, zBuf_height, samples);
+		}
 
-		// Initialization loop with initialization value ( 1 or -1 in homogeneous coordinates ?) that is the farest value for the gUIView Frustum
+		// Initialization with initialization value ( 1 or -1 in homogeneous coordinates ?) that is the farest value for the gUIView Frustum
 		// Any value closer will be drawn and the zBuffer in this place will be updated by new value
-		for (int i=0; i<zBuf_width; i++)  {
-			for (int j=0; j<zBuf_height; j++) {
-				zBuffer.set(i, j, zBuffer_init); // Far value of the perspectiveCtx
-			}
-		}
+		zBuffer.initView(zBuffer_init); // Far value of the perspectiveCtx, also the maximum of each tile
+		resetWindow(); // Window restricted to the zBuffer
 		return zBuffer;
 	}
 
@@ -228,6 +470,28 @@ public class Rasterizer {
 		return v.getProjPos().get3DY()*pixelHalfHeight;
 	}
 
+	/**
+	 * Snap the screen position of a Vertex to the sub-pixel grid (28.4 fixed point). All the triangle traversal is done from
+	 * the snapped positions, so the edges shared by 2 triangles are exactly the same for both of them.
+	 * @param vp the VertexParam of the Vertex
+	 */
+	protected void snapVertex(VertexParam vp) {
+		vp.fx = Math.round(Math.max(-SUBPIXEL_MAX, Math.min(SUBPIXEL_MAX, xScreen(vp.v)*SUBPIXEL_ONE)));
+		vp.fy = Math.round(Math.max(-SUBPIXEL_MAX, Math.min(SUBPIXEL_MAX, yScreen(vp.v)*SUBPIXEL_ONE)));
+		vp.x = (float)vp.fx / SUBPIXEL_ONE;
+		vp.y = (float)vp.fy / SUBPIXEL_ONE;
+	}
+
+	// Smallest pixel coordinate greater or equal to a fixed point coordinate
+	protected static int ceilFixed(int f) {
+		return (f + SUBPIXEL_MASK) >> SUBPIXEL_BITS;
+	}
+
+	// Greatest pixel coordinate lower or equal to a fixed point coordinate
+	protected static int floorFixed(int f) {
+		return f >> SUBPIXEL_BITS;
+	}
+
 
 	// Z buffer is [0, width][0, height] while screen is centered to origin -> need translation
 	protected  int getXzBuf(int x) {
@@ -311,20 +575,32 @@ public class Rasterizer {
 
 		if (Tracer.debug) Tracer.traceDebug(this.getClass(), "Rasterize triangle. Color: "+surfCol);
 
-		// Init pixel stats
-		rendered_pixels = 0;
-		discarded_pixels = 0;
-		not_rendered_pixels = 0;
-		//rendered_dark_pixels = 0;
-		//rendered_red =0;
-		//rendered_green = 0;
-		//rendered_blue = 0;
-		outOfBounds_pixels = 0;
-		calculated_pixels = 0;
-		processed_pixels = 0;
-		rasterized_lines = 0;
-		lines_with_no_pixel = 0;
-		reversed_lines = 0;
+		rasterizeTriangle(setupTriangle(t, surfCol, specExp, specCol, interpolate, texture, shadows, shadowmap));
+	}
+
+	/**
+	 * Triangle setup: order the vertices on screen and compute all data needed once per triangle (colors at vertices, light coordinates, etc.)
+	 * The returned TriangleParam can then be scanned by rasterizeTriangle(TriangleParam) of this Rasterizer or of any tile Rasterizer.
+	 * 
+	 * @param t				the triangle to render
+	 * @param surfCol		the base surface color of the triangle, may be inherited from the element or world (default)
+	 * @param specExp		the specular exponent of the Element
+	 * @param specCol		the specular color of the Element
+	 * @param interpolate	a boolean to indicate if interpolation of colors is activated (true) or not (false)
+	 * @param texture		a boolean to indicate if texture processing is activated (true) or not (false)
+	 * @param shadows		a boolean to indicate if shadowing is enabled (true) or not (false)
+	 * @param shadowmap		a boolean to indicate whether this is a rasterization only for a shadow map (true) or not (false)
+	 * @return the TriangleParam ready to be scanned
+	 */
+	protected TriangleParam setupTriangle(
+			Triangle t,
+			Color surfCol,
+			float specExp,
+			Color specCol,
+			boolean interpolate,
+			boolean texture,
+			boolean shadows,
+			boolean shadowmap) {
 
 		Color shadedCol = null;
 		Color ambientCol = null; // Let's compute Ambient color once per triangle (not needed at each line or pixel)
@@ -352,16 +628,20 @@ public class Rasterizer {
 		VertexParam vp1, vp2, vp3; // Ordered Vertex containers
 
 		// TODO use color at Vertex level if defined. This requires to manage 3 colors for a triangle in this case
-		// TODO check if .get3DY() (=y/w)  is really needed for this comparison because in theory this is the y in homogeneous coordinates that should be used here. May be no impact.
 
-		if (vpb.v.getProjPos().get3DY()<vpa.v.getProjPos().get3DY()) { // p2 lower than p1
-			if (vpc.v.getProjPos().get3DY()<vpb.v.getProjPos().get3DY()) { // p3 lower than p2
+		// Screen positions snapped to the sub-pixel grid, the order is done on the snapped ordinates
+		snapVertex(vpa);
+		snapVertex(vpb);
+		snapVertex(vpc);
+
+		if (vpb.fy<vpa.fy) { // p2 lower than p1
+			if (vpc.fy<vpb.fy) { // p3 lower than p2
 				vp1 = vpc;
 				vp2 = vpb;
 				vp3 = vpa;
 
 			} else { // p2 lower or equal than p3
-				if (vpc.v.getProjPos().get3DY()<vpa.v.getProjPos().get3DY()) { // p3 lower than p1
+				if (vpc.fy<vpa.fy) { // p3 lower than p1
 					vp1 = vpb;
 					vp2 = vpc;
 					vp3 = vpa;
@@ -374,13 +654,13 @@ public class Rasterizer {
 				}
 			}
 		} else { // p1 lower than p2
-			if (vpc.v.getProjPos().get3DY()<vpa.v.getProjPos().get3DY()) { // p3 lower than p1
+			if (vpc.fy<vpa.fy) { // p3 lower than p1
 				vp1 = vpc;
 				vp2 = vpa;
 				vp3 = vpb;
 
 			} else { // p1 lower than p3
-				if (vpc.v.getProjPos().get3DY()<vpb.v.getProjPos().get3DY()) { // p3 lower than p2
+				if (vpc.fy<vpb.fy) { // p3 lower than p2
 					vp1 = vpa;
 					vp2 = vpc;
 					vp3 = vpb;
@@ -464,14 +744,15 @@ public class Rasterizer {
 
 					ShadowingLight sl = shadowingLights.get(i); // Used several times
 
-					vp1.l[i].shadedColor = computeShadedColor(surfCol, vp1.v.getWorldPos(), vp1.v.getWorldNormal(), t.isRectoVerso(), sl);
-					vp2.l[i].shadedColor = computeShadedColor(surfCol, vp2.v.getWorldPos(), vp2.v.getWorldNormal(), t.isRectoVerso(), sl);
-					vp3.l[i].shadedColor = computeShadedColor(surfCol, vp3.v.getWorldPos(), vp3.v.getWorldNormal(), t.isRectoVerso(), sl);	
+					// Colors are converted once per Vertex into float components
+					vp1.l[i].shadedColor = computeShadedColor(surfCol, vp1.v.getWorldPos(), vp1.v.getWorldNormal(), t.isRectoVerso(), sl).getRGBColorComponents(null);
+					vp2.l[i].shadedColor = computeShadedColor(surfCol, vp2.v.getWorldPos(), vp2.v.getWorldNormal(), t.isRectoVerso(), sl).getRGBColorComponents(null);
+					vp3.l[i].shadedColor = computeShadedColor(surfCol, vp3.v.getWorldPos(), vp3.v.getWorldNormal(), t.isRectoVerso(), sl).getRGBColorComponents(null);	
 
 					if (lighting.hasSpecular()) {
-						vp1.l[i].specularColor = computeSpecularColor(vp1.v.getWorldNormal(), viewer1, vp1.v.getWorldPos(), specExp, specCol, t.isRectoVerso(), sl);
-						vp2.l[i].specularColor = computeSpecularColor(vp2.v.getWorldNormal(), viewer2, vp2.v.getWorldPos(), specExp, specCol, t.isRectoVerso(), sl);
-						vp3.l[i].specularColor = computeSpecularColor(vp3.v.getWorldNormal(), viewer3, vp3.v.getWorldPos(), specExp, specCol, t.isRectoVerso(), sl);
+						vp1.l[i].specularColor = computeSpecularColor(vp1.v.getWorldNormal(), viewer1, vp1.v.getWorldPos(), specExp, specCol, t.isRectoVerso(), sl).getRGBColorComponents(null);
+						vp2.l[i].specularColor = computeSpecularColor(vp2.v.getWorldNormal(), viewer2, vp2.v.getWorldPos(), specExp, specCol, t.isRectoVerso(), sl).getRGBColorComponents(null);
+						vp3.l[i].specularColor = computeSpecularColor(vp3.v.getWorldNormal(), viewer3, vp3.v.getWorldPos(), specExp, specCol, t.isRectoVerso(), sl).getRGBColorComponents(null);
 					}
 				}
 			}
@@ -539,24 +820,138 @@ public class Rasterizer {
 		//		}
 
 
-		// Invert slopes
-		float dP1P2, dP1P3;
-
-		// http://en.wikipedia.org/wiki/Slope
-		// Computing invert slopes
-		if (yScreen(vp2.v) - yScreen(vp1.v) > 0) {
-			dP1P2 = (xScreen(vp2.v)-xScreen(vp1.v))/(yScreen(vp2.v)-yScreen(vp1.v));
-		} else { // horizontal segment, infinite invert slope
-			dP1P2 = Float.MAX_VALUE;
+		// Side of P2 relatively to the [P1, P3] segment, exact on the sub-pixel grid (cross product in integer arithmetic)
+		// When P1 and P2 are on the same line, P2 is on the right if it is on the right of P1
+		long cross = (long)(vp3.fx-vp1.fx)*(vp2.fy-vp1.fy) - (long)(vp3.fy-vp1.fy)*(vp2.fx-vp1.fx);
+
+		TriangleParam tp = new TriangleParam();
+		tp.vp1 = vp1;
+		tp.vp2 = vp2;
+		tp.vp3 = vp3;
+		tp.tex = t.getTexture();
+		// Colors are converted once per triangle into float components
+		tp.shadedCol = shadedCol != null ? shadedCol.getRGBColorComponents(null) : null;
+		tp.ambientCol = ambientCol != null ? ambientCol.getRGBColorComponents(null) : null;
+		tp.interpolate = interpolate && !t.isTriangleNormal();
+		tp.texture = texture;
+		tp.tex_orientation = t.getTextureOrientation();
+		tp.shadows = shadows;
+		tp.nb_sl = nb_sl;
+		tp.shadowmap = shadowmap;
+		tp.p2Right = cross < 0 || (cross == 0 && vp2.fx > vp1.fx);
+
+		// Bounds of the pixels that may be produced (pixels are sampled at integer coordinates, inside the snapped triangle)
+		// In multi-sampling, the samples of a pixel are less than half a pixel away from its center
+		int margin = samples > 1 ? SUBPIXEL_ONE/2 : 0;
+		tp.minX = floorFixed(Math.min(vp1.fx, Math.min(vp2.fx, vp3.fx)) - margin);
+		tp.maxX = floorFixed(Math.max(vp1.fx, Math.max(vp2.fx, vp3.fx)) + margin);
+		tp.minY = floorFixed(vp1.fy - margin);
+		tp.maxY = floorFixed(vp3.fy + margin);
+
+		// Nearest depth: depth is interpolated between the depths of the vertices (1/W interpolation for frustum, linear for orthographic)
+		if (perspectiveCtx.getPerspectiveType() == PerspectiveContext.PERSPECTIVE_TYPE_FRUSTUM) {
+			tp.minZ = Math.min(vp1.v.getProjPos().getW(), Math.min(vp2.v.getProjPos().getW(), vp3.v.getProjPos().getW()));
+		} else {
+			tp.minZ = Math.min(vp1.v.getProjPos().getZ(), Math.min(vp2.v.getProjPos().getZ(), vp3.v.getProjPos().getZ()));
 		}
 
-		if (yScreen(vp3.v) - yScreen(vp1.v) > 0) {
-			dP1P3 = (xScreen(vp3.v)-xScreen(vp1.v))/(yScreen(vp3.v)-yScreen(vp1.v));
-		} else { // horizontal segment, infinite invert slope
-			dP1P3 = Float.MAX_VALUE;
+		return tp;
+	}
+
+	/**
+	 * Scan a triangle previously set up, restricted to the rasterization window of this Rasterizer.
+	 * The triangle is traversed either scan line by scan line or with edge functions (half-space) depending on the triangle traversal of this Rasterizer,
+	 * or with edge functions evaluated at each sample of the pixels in multi-sampling.
+	 * 
+	 * @param tp the TriangleParam obtained from setupTriangle
+	 */
+	protected void rasterizeTriangle(TriangleParam tp) {
+
+		// Init pixel stats
+		rendered_pixels = 0;
+		discarded_pixels = 0;
+		not_rendered_pixels = 0;
+		//rendered_dark_pixels = 0;
+		//rendered_red =0;
+		//rendered_green = 0;
+		//rendered_blue = 0;
+		outOfBounds_pixels = 0;
+		calculated_pixels = 0;
+		processed_pixels = 0;
+		rasterized_lines = 0;
+		lines_with_no_pixel = 0;
+		reversed_lines = 0;
+
+		if (!tp.shadowmap) initFragmentBuffers(tp.nb_sl);
+
+		if (isHidden(tp)) {
+			// The whole triangle is behind the zBuffer tiles it covers
+			hiz_rejected_triangles++;
+		} else if (samples > 1) {
+			rasterizeMultisample(tp);
+		} else if (triangleTraversal == RenderContext.TRIANGLE_TRAVERSAL_HALFSPACE) {
+			rasterizeHalfSpace(tp);
+		} else {
+			rasterizeScanLines(tp);
 		}
+		
+		// Global stats for Rasterizer
+		rendered_triangles++;
+		if (rasterized_lines >0) triangles_with_lines++;
+		if (rendered_pixels > 0) triangles_with_pixels++;
+
+		//if (Tracer.debug) Tracer.traceDebug(this.getClass(), "Rendered pixels for this triangle: "+rendered_pixels+". Discarded: "+discarded_pixels+". Not rendered: "+not_rendered_pixels+", Dark pixels rendered: " + rendered_dark_pixels + ", red: " + rendered_red + ", green: " + rendered_green + ", blue: " + rendered_blue + ". Out of bounds pixels: "+outOfBounds_pixels+". Rasterized lines: "+rasterized_lines+". Discarded lines: "+discarded_lines);
+		if (Tracer.debug) Tracer.traceDebug(this.getClass(), "Rendered pixels for this triangle: "+rendered_pixels+". Discarded: "+discarded_pixels+". Not rendered: "+not_rendered_pixels + ". Out of bounds pixels: "+outOfBounds_pixels+". Rasterized lines: "+rasterized_lines+". Discarded lines: "+discarded_lines);
+		if (rendered_pixels == 0) if (Tracer.info) Tracer.traceInfo(this.getClass(), "No pixels rendered for this triangle : discarded: " + discarded_pixels + ", not rendered: " + not_rendered_pixels + ", out of bound: " + outOfBounds_pixels + ", calculated: " + calculated_pixels + ", processed: " + processed_pixels + " Lines : rasterized: " + rasterized_lines + ", discarded: " + discarded_lines + " with no pixels: " + lines_with_no_pixel + ", reversed: " + reversed_lines);
+
+	}
+
+	/**
+	 * Hierarchical Z test of a triangle: the triangle is hidden if its nearest depth is behind the maximum depth of all
+	 * the zBuffer tiles covering its bounds (restricted to the rasterization window)
+	 * 
+	 * @param tp the TriangleParam obtained from setupTriangle
+	 * @return true if no pixel of the triangle can pass the depth test
+	 */
+	protected boolean isHidden(TriangleParam tp) {
+		int xMin = Math.max(tp.minX, windowMinX);
+		int xMax = Math.min(tp.maxX, windowMaxX);
+		int yMin = Math.max(tp.minY, windowMinY);
+		int yMax = Math.min(tp.maxY, windowMaxY);
+		if (xMin > xMax || yMin > yMax) return false; // Nothing to scan, let the traversal handle it
+
+		return zBuffer.isHidden(getXzBuf(xMin), getXzBuf(xMax), getYzBuf(yMin), getYzBuf(yMax), tp.minZ + HIZ_EPSILON * Math.abs(tp.minZ));
+	}
 
-		if (dP1P2 > dP1P3) {
+	/**
+	 * Hierarchical Z test of a block of pixels, with a relative margin: the nearest depth of a block or a triangle is estimated from its
+	 * ends or vertices and may differ from the depth of its pixels by a few float roundings. The margin keeps the rejection conservative
+	 * (and exact in the color pass after a depth prepass, where visible pixels have the same depth than the zBuffer)
+	 * @param zmin the estimated nearest depth of the block
+	 * @param max the maximum depth of the zBuffer tile
+	 * @return true if the block is behind the tile
+	 */
+	protected static boolean isBehind(float zmin, float max) {
+		return zmin - max > HIZ_EPSILON * Math.abs(max);
+	}
+
+	/**
+	 * Scan line traversal: the triangle is split in 2 halves at P2 and each half is rasterized line by line.
+	 * 
+	 * @param tp the TriangleParam obtained from setupTriangle
+	 */
+	protected void rasterizeScanLines(TriangleParam tp) {
+
+		VertexParam vp1 = tp.vp1;
+		VertexParam vp2 = tp.vp2;
+		VertexParam vp3 = tp.vp3;
+
+		// Scan lines sampled at integer ordinates y1 < y <= y3 (an edge shared by 2 triangles gives each row to one of them only,
+		// same top-left rule than the half-space traversal), restricted to the rasterization window
+		int yStart = Math.max(floorFixed(vp1.fy) + 1, windowMinY);
+		int yEnd = Math.min(floorFixed(vp3.fy), windowMaxY);
+
+		if (tp.p2Right) {
 
 			// First case where triangle is like that:
 			//   P3
@@ -571,39 +966,11 @@ public class Rasterizer {
 			//   +
 			//   P1
 
-			for (int y = (int)yScreen(vp1.v); y <= (int)yScreen(vp3.v); y++) {
-				if (y < yScreen(vp2.v)) {
-					rasterizeScanLine(
-							y,
-							vp1,
-							vp3,
-							vp1,
-							vp2,
-							t.getTexture(),
-							shadedCol,
-							ambientCol,
-							interpolate && !t.isTriangleNormal(),
-							texture,
-							t.getTextureOrientation(),
-							shadows,
-							nb_sl,
-							shadowmap);
+			for (int y = yStart; y <= yEnd; y++) {
+				if (y <= vp2.y) {
+					rasterizeScanLine(y, vp1, vp3, vp1, vp2, tp);
 				} else {
-					rasterizeScanLine(
-							y,
-							vp1,
-							vp3,
-							vp2,
-							vp3,
-							t.getTexture(),
-							shadedCol,
-							ambientCol,
-							interpolate && !t.isTriangleNormal(),
-							texture,
-							t.getTextureOrientation(),
-							shadows,
-							nb_sl,
-							shadowmap);
+					rasterizeScanLine(y, vp1, vp3, vp2, vp3, tp);
 				}
 			}
 
@@ -622,55 +989,16 @@ public class Rasterizer {
 			//             +
 			//             P1
 
-			for (int y = (int)yScreen(vp1.v); y <= (int)yScreen(vp3.v); y++) {
-				if (y < yScreen(vp2.v)) {
-					rasterizeScanLine(
-							y,
-							vp1,
-							vp2,
-							vp1,
-							vp3,
-							t.getTexture(),
-							shadedCol,
-							ambientCol,
-							interpolate && !t.isTriangleNormal(),
-							texture,
-							t.getTextureOrientation(),
-							shadows,
-							nb_sl,
-							shadowmap);
+			for (int y = yStart; y <= yEnd; y++) {
+				if (y <= vp2.y) {
+					rasterizeScanLine(y, vp1, vp2, vp1, vp3, tp);
 				} else {
-					rasterizeScanLine(
-							y,
-							vp2,
-							vp3,
-							vp1,
-							vp3,
-							t.getTexture(),
-							shadedCol,
-							ambientCol,
-							interpolate && !t.isTriangleNormal(),
-							texture,
-							t.getTextureOrientation(),
-							shadows,
-							nb_sl,
-							shadowmap);
+					rasterizeScanLine(y, vp2, vp3, vp1, vp3, tp);
 				}
 			}
 		}
-		
-		// Global stats for Rasterizer
-		rendered_triangles++;
-		if (rasterized_lines >0) triangles_with_lines++;
-		if (rendered_pixels > 0) triangles_with_pixels++;
-
-		//if (Tracer.debug) Tracer.traceDebug(this.getClass(), "Rendered pixels for this triangle: "+rendered_pixels+". Discarded: "+discarded_pixels+". Not rendered: "+not_rendered_pixels+", Dark pixels rendered: " + rendered_dark_pixels + ", red: " + rendered_red + ", green: " + rendered_green + ", blue: " + rendered_blue + ". Out of bounds pixels: "+outOfBounds_pixels+". Rasterized lines: "+rasterized_lines+". Discarded lines: "+discarded_lines);
-		if (Tracer.debug) Tracer.traceDebug(this.getClass(), "Rendered pixels for this triangle: "+rendered_pixels+". Discarded: "+discarded_pixels+". Not rendered: "+not_rendered_pixels + ". Out of bounds pixels: "+outOfBounds_pixels+". Rasterized lines: "+rasterized_lines+". Discarded lines: "+discarded_lines);
-		if (rendered_pixels == 0) if (Tracer.info) Tracer.traceInfo(this.getClass(), "No pixels rendered for this triangle : discarded: " + discarded_pixels + ", not rendered: " + not_rendered_pixels + ", out of bound: " + outOfBounds_pixels + ", calculated: " + calculated_pixels + ", processed: " + processed_pixels + " Lines : rasterized: " + rasterized_lines + ", discarded: " + discarded_lines + " with no pixels: " + lines_with_no_pixel + ", reversed: " + reversed_lines);
-
 	}
 
-
 	/**
 	 * Rasterization of an horizontal "scan line" of pixels.
 	 * The scan line is at ordinate y and will start x from segment AB to segment CD
@@ -687,36 +1015,14 @@ public class Rasterizer {
 	 * 	+---------+----------------+-------------> X
 	 * 			  xAB			   xCD
 	 * 
-	 * @param y					Ordinate of the scan line
-	 * @param vpa				VertexParam of Vertex A of first segment: AB
-	 * @param vpb				VertexParam of Vertex B of first segment: AB
-	 * @param vpc				VertexParam of Vertex C of second segment: CD
-	 * @param vpd				VertexParam of Vertex D of second segment: CD
-	 * @param tex				Texture object for this triangle
-	 * @param shadedCol			Shaded color if Normal at triangle level (else should be null and will be calculated by interpolation)
-	 * @param ambientCol		Ambient color (independent of the position in space)
-	 * @param interpolate		Flag for interpolation (true) or not (false), also for normal at triangle level (false)
-	 * @param texture			Flag for texture calculation (true) or not (false)
-	 * @param tex_orientation	Selector for isotropic, vertical or horizontal texture interpolation
-	 * @param shadows			Flag for shadowing enabled (true) or disabled (false)
-	 * @param nb_lights			Number of Lights (ambient light not included)
-	 * @param shadowmap			Flag for shadow map rasterization (true) or full rasterization (false)
+	 * @param y		Ordinate of the scan line
+	 * @param vpa	VertexParam of Vertex A of first segment: AB
+	 * @param vpb	VertexParam of Vertex B of first segment: AB
+	 * @param vpc	VertexParam of Vertex C of second segment: CD
+	 * @param vpd	VertexParam of Vertex D of second segment: CD
+	 * @param tp	TriangleParam containing the data of the triangle (texture, colors, flags, number of lights)
 	 */
-	protected void rasterizeScanLine(
-			int 		y,
-			VertexParam vpa,
-			VertexParam vpb,
-			VertexParam vpc,
-			VertexParam vpd,
-			Texture 	tex,
-			Color 		shadedCol,
-			Color 		ambientCol,
-			boolean 	interpolate,
-			boolean 	texture,
-			int 		tex_orientation,
-			boolean 	shadows,
-			int 		nb_lights,
-			boolean 	shadowmap) {
+	protected void rasterizeScanLine(int y, VertexParam vpa, VertexParam vpb, VertexParam vpc, VertexParam vpd, TriangleParam tp) {
 
 
 		// ***************************************************
@@ -728,127 +1034,136 @@ public class Rasterizer {
 		// - calculate ShadowMap vectors at beginning and end of the scan line
 		// - interpolate at each pixel
 		//
-		// For each pixel of the scan line from left to right
-		// - Eliminate pixel out of screen
-		// - Protect to avoid if out of bounds (should not happen)
+		// For each pixel of the scan line from left to right (restricted to the rasterization window, so always in the screen and the zBuffer)
 		// - zBuffer elimination
-		// - Declare an array of csh and csp colors for each Light
-		// - For each Light
-		// 		* If shadows enabled
-		//			. Calculate if pixel is in shadow based on ShadowMap
-		//			. If pixel in shadow -> color for this light is dark -> exit / go to next light iteration
-		// 		* Otherwise (either because shadows are disabled or pixel not in shadow)
-		// 			. Calculate csh (shaded color) for this Light
-		// 			. Calculate csp (specular color) for this Light
-		// - If texture enabled, calculate ctx (texture color) for this Pixel based on Texture Map
-		//
-		// Once all colors are calculated
-		// - Add/multiply various light colors + ambient colors as needed to get Pixel's color
+		// - Attributes of the fragment (1/z, colors, light coordinates, texture vector) advanced by their per pixel delta (forward differencing)
+		// - Shade the fragment (see shadeFragment)
+		// With the vector span kernel, a whole block of pixels of the same zBuffer tile is processed at once (see VectorSpanKernel)
 		//
 		// Draw pixel with resulting color
+		//
+		// All colors are handled as float r, g, b components from the triangle setup to the pixel drawing: no object is created for each pixel
 
+		int nb_lights = tp.nb_sl;
+		boolean interpolate = tp.interpolate;
+		boolean shadows = tp.shadows;
+		boolean shadowmap = tp.shadowmap;
 
-		if (isInScreenY(y)) { // Eliminate immediately lines of pixels outside the gUIView screen
-			rasterized_lines++;
-			
-			// Thanks to current Y, we can compute the gradient to compute others values like
-			// the starting X (sx) and ending X (ex) to draw between
-			// if pa.Y == pb.Y or pc.Y == pd.Y, gradient is forced to 1
-			float ya = yScreen(vpa.v);
-			float yb = yScreen(vpb.v);
-			float yc = yScreen(vpc.v);
-			float yd = yScreen(vpd.v);
-
-			float xa = xScreen(vpa.v);
-			float xb = xScreen(vpb.v);
-			float xc = xScreen(vpc.v);
-			float xd = xScreen(vpd.v);
-			//if (Tracer.debug) Tracer.traceDebug(this.getClass(), "Rasterizing Scan Line for y = " + y + ". xa: " + xa + " ya: " + ya + " xb: " + xb + " yb: " + yb + " xc: " + xc + " yc: " + yc + " xd: " + xd + " yd: " + yd);
-
-			// Gradient 1 is the gradient on VA VB segment
-			float gradient1 = ya != yb ? (y - ya) / (yb - ya) : 1;
-			// Gradient 2 is the gradient on VC VD segment
-			float gradient2 = yc != yd ? (y - yc) / (yd - yc) : 1;
-			
-			int sx, ex, smin, smax, emin, emax;
-			
-			//if ((xa+xb) <= (xc+xd)) {
+		rasterized_lines++;
+		
+		// Thanks to current Y, we can compute the gradient to compute others values like
+		// the starting X (xs) and ending X (xe) to draw between
+		// if pa.Y == pb.Y or pc.Y == pd.Y, gradient is forced to 1
+		// Positions snapped to the sub-pixel grid (see snapVertex)
+		float ya = vpa.y;
+		float yb = vpb.y;
+		float yc = vpc.y;
+		float yd = vpd.y;
+
+		float xa = vpa.x;
+		float xb = vpb.x;
+		float xc = vpc.x;
+		float xd = vpd.x;
+		//if (Tracer.debug) Tracer.traceDebug(this.getClass(), "Rasterizing Scan Line for y = " + y + ". xa: " + xa + " ya: " + ya + " xb: " + xb + " yb: " + yb + " xc: " + xc + " yc: " + yc + " xd: " + xd + " yd: " + yd);
+
+		// Gradient 1 is the gradient on VA VB segment
+		float gradient1 = ya != yb ? (y - ya) / (yb - ya) : 1;
+		// Gradient 2 is the gradient on VC VD segment
+		float gradient2 = yc != yd ? (y - yc) / (yd - yc) : 1;
+		
+		float xs = Tools.interpolate(xa, xb, gradient1);
+		float xe = Tools.interpolate(xc, xd, gradient2);
+
+		// To avoid gradient effect on x axis for small y variations (flat slopes) -> "cap" the xs and xe to x min and max of the segments
+		xs = Math.max(Math.min(xa, xb), Math.min(Math.max(xa, xb), xs));
+		xe = Math.max(Math.min(xc, xd), Math.min(Math.max(xc, xd), xe));
+
+		// Pixels sampled at integer abscissas from the left end (included) to the right end (excluded), as the top-left rule of the
+		// half-space traversal: a pixel on an edge shared by 2 triangles is drawn by one of them only. An edge shared by 2 triangles is
+		// computed from the same snapped vertices, in the same order (lowest vertex first), so both triangles get exactly the same end
+		// on this edge: no crack and no pixel drawn twice
+		int sx = (int)Math.ceil(Math.min(xs, xe));
+		int ex = (int)Math.ceil(Math.max(xs, xe));
+
+		// Exit as early as possible in case of sx and ex are identical meaning no pixel would be drawn
+		if (sx == ex) {
+			lines_with_no_pixel++;
+			if (Tracer.debug) Tracer.traceDebug(this.getClass(), "sx = ex, no pixels drawn on rasterized scan line");
+			return;
+		}
 
-			sx = (int)Tools.interpolate(xa, xb, gradient1);
-			ex = (int)Tools.interpolate(xc, xd, gradient2);
+		float z1 = 0, z2 = 0, za = 0, zb = 0, zc = 0, zd = 0;
+		boolean frustum = perspectiveCtx.getPerspectiveType() == PerspectiveContext.PERSPECTIVE_TYPE_FRUSTUM;
 
-			// To avoid gradient effect on x axis for small y variations (flat slopes) -> "cap" the sx and ex to x min and max of the triangle 
-			smin = (int)Math.min(xa, xb);
-			smax = (int)Math.max(xa, xb);
-			emin = (int)Math.min(xc, xd);
-			emax = (int)Math.max(xc, xd);
+		switch (perspectiveCtx.getPerspectiveType()) {
 
-			//} else {
-				
-			//	sx = (int)Tools.interpolate(xc, xd, gradient2);
-			//	ex = (int)Tools.interpolate(xa, xb, gradient1);
+		case PerspectiveContext.PERSPECTIVE_TYPE_FRUSTUM :
+			// Vertices z
+			// W = -Z in camera coordinates, before Frustum projection
+			za = vpa.v.getProjPos().getW();
+			zb = vpb.v.getProjPos().getW();
+			zc = vpc.v.getProjPos().getW();
+			zd = vpd.v.getProjPos().getW();
 
-				// To avoid gradient effect on x axis for small y variations (flat slopes) -> "cap" the sx and ex to x min and max of the triangle 
-			//	smin = (int)Math.min(xc, xd);
-			//	emax = (int)Math.max(xa, xb);
+			// Starting Z & ending Z
+			z1 = 1/Tools.interpolate(1/za, 1/zb, gradient1);
+			z2 = 1/Tools.interpolate(1/zc, 1/zd, gradient2);
 
-			//}
-			
-			if (sx < smin) sx = smin;
-			if (sx > smax) sx = smax;
-			if (ex < emin) ex = emin;
-			if (ex > emax) ex = emax;
-
-			// Exit as early as possible in case of sx and ex are identical meaning no pixel would be drawn
-			if (sx == ex) {
-				lines_with_no_pixel++;
-				if (Tracer.debug) Tracer.traceDebug(this.getClass(), "sx = ex, no pixels drawn on rasterized scan line");
-				return;
-			}
+			break;
 
-			
-			// Instrumentation for Rasterizer artifact investigation (due to calculated gradient>1 fixed by rounding in gradient calculation)
-			// TODO possible optimization in Rasterizer to avoid calculation in double, to avoid rounding and use int computation as most as possible then avoid duplicate calculation in several places (x and yScreen for example)
+		case PerspectiveContext.PERSPECTIVE_TYPE_ORTHOGRAPHIC :
+			// Orthographic projection -> don't use W but use rather Z instead because W always = 1 in Orthographic projection
+			za = vpa.v.getProjPos().getZ();
+			zb = vpb.v.getProjPos().getZ();
+			zc = vpc.v.getProjPos().getZ();
+			zd = vpd.v.getProjPos().getZ();
 
-			float z1 = 0, z2 = 0, za = 0, zb = 0, zc = 0, zd = 0;
+			// Starting Z & ending Z
+			z1 = Tools.interpolate(za, zb, gradient1);
+			z2 = Tools.interpolate(zc, zd, gradient2);
 
-			switch (perspectiveCtx.getPerspectiveType()) {
+			break;
 
-			case PerspectiveContext.PERSPECTIVE_TYPE_FRUSTUM :
-				// Vertices z
-				// W = -Z in camera coordinates, before Frustum projection
-				za = vpa.v.getProjPos().getW();
-				zb = vpb.v.getProjPos().getW();
-				zc = vpc.v.getProjPos().getW();
-				zd = vpd.v.getProjPos().getW();
+		default :
+			// Not implemented, should never happen
+			// TODO raise an UnimplementedException
+		}
 
-				// Starting Z & ending Z
-				z1 = 1/Tools.interpolate(1/za, 1/zb, gradient1);
-				z2 = 1/Tools.interpolate(1/zc, 1/zd, gradient2);
 
-				break;
+		// Gouraud's shading (Vertex calculation and interpolation across triangle)
+		// Starting Colors & ending Colors for Shaded color and Specular color, and Light vectors at beginning and end of the segment
+		// are stored in the scan line buffers (3 components for each light)
+		boolean specular = false;
+		boolean textured = false;
 
-			case PerspectiveContext.PERSPECTIVE_TYPE_ORTHOGRAPHIC :
-				// Orthographic projection -> don't use W but use rather Z instead because W always = 1 in Orthographic projection
-				za = vpa.v.getProjPos().getZ();
-				zb = vpb.v.getProjPos().getZ();
-				zc = vpc.v.getProjPos().getZ();
-				zd = vpd.v.getProjPos().getZ();
-				
-//				za = vpa.v.getProjPos().getZ() * 0.5f + 0.5f; // TODO to confirm
-//				zb = vpb.v.getProjPos().getZ() * 0.5f + 0.5f; // TODO to confirm 
-//				zc = vpc.v.getProjPos().getZ() * 0.5f + 0.5f; // TODO to confirm
-//				zd = vpd.v.getProjPos().getZ() * 0.5f + 0.5f; // TODO to confirm
-				
-				//if (vpa.v.getProjPos().getZ() == 0) if (Tracer.info) Tracer.traceInfo(this.getClass(), "Proj Ortho and Z equal to 0 for VPA: " + vpa.v.getProjPos().getZ());
-				//if (vpb.v.getProjPos().getZ() == 0) if (Tracer.info) Tracer.traceInfo(this.getClass(), "Proj Ortho and Z equal to 0 for VPB: " + vpa.v.getProjPos().getZ());
-				//if (vpc.v.getProjPos().getZ() == 0) if (Tracer.info) Tracer.traceInfo(this.getClass(), "Proj Ortho and Z equal to 0 for VPC: " + vpa.v.getProjPos().getZ());
-				//if (vpd.v.getProjPos().getZ() == 0) if (Tracer.info) Tracer.traceInfo(this.getClass(), "Proj Ortho and Z equal to 0 for VPD: " + vpa.v.getProjPos().getZ());
+		// Starting Texture & ending Texture coordinates (x, y and w components)
+		float vt1x = 0, vt1y = 0, vt1w = 0;
+		float vt2x = 0, vt2y = 0, vt2w = 0;
 
-				// Starting Z & ending Z
-				z1 = Tools.interpolate(za, zb, gradient1);
-				z2 = Tools.interpolate(zc, zd, gradient2);
+		if (!shadowmap) {
 
+			specular = lighting.hasSpecular();
+			textured = tp.texture && tp.tex!=null;
+			initScanLineBuffers(nb_lights);
+
+			float za_proj = 0, zb_proj = 0, zc_proj = 0, zd_proj = 0;
+			switch (perspectiveCtx.getPerspectiveType()) {
+
+			case PerspectiveContext.PERSPECTIVE_TYPE_FRUSTUM :
+				
+				// For 1/z interpolation
+				za_proj = 1/za;
+				zb_proj = 1/zb;
+				zc_proj = 1/zc;
+				zd_proj = 1/zd;
+				break;
+			case PerspectiveContext.PERSPECTIVE_TYPE_ORTHOGRAPHIC :
+				
+				// For normal interpolation
+				za_proj = za;
+				zb_proj = zb;
+				zc_proj = zc;
+				zd_proj = zd;
 				break;
 
 			default :
@@ -857,405 +1172,801 @@ public class Rasterizer {
 			}
 
 
-			// Gouraud's shading (Vertex calculation and interpolation across triangle)
-			// Starting Colors & ending Colors for Shaded color and Specular color
-			// Arrays of shaded colors for each Light to be interpolated
-			Color [] ishc1 = null;
-			Color [] ishc2 = null;
-			// Arrays of specular colors for each light to be interpolated
-			Color [] ispc1 = null;
-			Color [] ispc2 = null;
+			// For each Light
+			for (int i=0; i<nb_lights; i++) {
+				
+				if (interpolate) {
+					// Shaded color
+					interpolateComponents(ishc1, i, vpa.l[i].shadedColor, za_proj, vpb.l[i].shadedColor, zb_proj, gradient1);
+					interpolateComponents(ishc2, i, vpc.l[i].shadedColor, zc_proj, vpd.l[i].shadedColor, zd_proj, gradient2);
+					// Specular color
+					if (specular) {
+						interpolateComponents(ispc1, i, vpa.l[i].specularColor, za_proj, vpb.l[i].specularColor, zb_proj, gradient1);
+						interpolateComponents(ispc2, i, vpc.l[i].specularColor, zc_proj, vpd.l[i].specularColor, zd_proj, gradient2);
+					}
+				} // Else (!interpolate) : do nothing (no interpolation or normal at triangle level)
+
+				if (shadows) {
+					// Interpolate on each [VA, VB] and [VC, VD] segments for each Light
+					Vector4 vla = vpa.l[i].vl, vlb = vpb.l[i].vl, vlc = vpc.l[i].vl, vld = vpd.l[i].vl;
+					vl1[3*i] = Tools.interpolate(vla.getX(), vlb.getX(), gradient1);
+					vl1[3*i+1] = Tools.interpolate(vla.getY(), vlb.getY(), gradient1);
+					vl1[3*i+2] = Tools.interpolate(vla.getZ(), vlb.getZ(), gradient1);
+					vl2[3*i] = Tools.interpolate(vlc.getX(), vld.getX(), gradient2);
+					vl2[3*i+1] = Tools.interpolate(vlc.getY(), vld.getY(), gradient2);
+					vl2[3*i+2] = Tools.interpolate(vlc.getZ(), vld.getZ(), gradient2);
+				}
+			} // End for each Light
+
+			//
+			// If texture enabled, calculate Texture vectors at beginning and end of the scan line
+			//
+			if (textured) {
+				vt1x = Tools.interpolate(vpa.t.getX()*za_proj, vpb.t.getX()*zb_proj, gradient1);
+				vt1y = Tools.interpolate(vpa.t.getY()*za_proj, vpb.t.getY()*zb_proj, gradient1);
+				vt1w = Tools.interpolate(vpa.t.getW()*za_proj, vpb.t.getW()*zb_proj, gradient1);
+				vt2x = Tools.interpolate(vpc.t.getX()*zc_proj, vpd.t.getX()*zd_proj, gradient2);
+				vt2y = Tools.interpolate(vpc.t.getY()*zc_proj, vpd.t.getY()*zd_proj, gradient2);
+				vt2w = Tools.interpolate(vpc.t.getW()*zc_proj, vpd.t.getW()*zd_proj, gradient2);
+			}
+		}
+		
+		
+		// drawing a line from left (sx) to right (ex)			
+		// Restricted to the rasterization window (the gradient is still computed from xs and xe)
+		int startx = Math.max(sx, windowMinX);
+		int endx = Math.min(ex, windowMaxX + 1);
+
+		// Forward differencing: each attribute is set up once for the span as a per pixel delta, then advanced by addition only
+		// from one pixel to the next (gradient on scan line from xs (0) to xe (1) is never computed per pixel).
+		// Values are anchored at the beginning of each block of pixels of a same zBuffer tile (at most 8 pixels): the values of a pixel
+		// then only depend on its position in its block, not on where the span starts (rasterization window) nor on skipped blocks.
+		// So a pixel gets exactly the same depth in all passes (e.g. depth prepass then color pass)
+		float dg = 1/(xe-xs); // Gradient delta per pixel
+
+		// 1/z (frustum) or z (orthographic) is linear on the scan line
+		float q1 = frustum ? 1/z1 : z1;
+		float q2 = frustum ? 1/z2 : z2;
+		float q = 0;
+		float dq = (q2-q1)*dg;
+
+		if (!shadowmap) {
+			if (interpolate) {
+				setupSpan(dfrag_shc, ishc1, ishc2, 3*nb_lights, dg);
+				if (specular) setupSpan(dfrag_spc, ispc1, ispc2, 3*nb_lights, dg);
+			}
+			if (shadows) setupSpan(dfrag_vl, vl1, vl2, 3*nb_lights, dg);
+			if (textured) {
+				dfrag_tex[0] = (vt2x-vt1x)*dg;
+				dfrag_tex[1] = (vt2y-vt1y)*dg;
+				dfrag_tex[2] = (vt2w-vt1w)*dg;
+			}
+		}
+		
+		// Blocks of pixels rasterized at once by the vector kernel, if selected and supporting this triangle
+		boolean vector = spanKernel == RenderContext.SPAN_KERNEL_VECTOR && VectorSpanKernel.supports(tp, gBuffer != null);
+		if (vector && vectorKernel == null) vectorKernel = new VectorSpanKernel();
+
+		int blockEnd = startx; // End (excluded) of the current block of pixels in the same zBuffer tile
+		int y_zBuf = getYzBuf(y);
+		int row_zBuf = zBuffer.getRowOffset(y_zBuf); // zBuffer row of the scan line, pixels of the row are contiguous
 
-			// Light vectors at begining and end of the segment to interpolate
-			Vector4 [] vl1 = null;
-			Vector4 [] vl2 = null;
+		for (int x = startx; x < endx; x++, q += dq) {
 			
-			// Starting Texture & ending Texture coordinates
-			Vector4 vt1 = null;
-			Vector4 vt2 = null;
-			Vector4 vt = null;
+			processed_pixels++;
+
+			// Beginning of a block of pixels in the same zBuffer tile
+			if (x == blockEnd) {
+				int x_zBuf = getXzBuf(x);
+				int n = Math.min(HierarchicalMapView.TILE_SIZE - (x_zBuf & HierarchicalMapView.TILE_MASK), endx - x);
+				blockEnd = x + n;
+				float g = (x-xs)*dg; // Gradient at the beginning of the block
+				q = Tools.interpolate(q1, q2, g);
+
+				// Hierarchical Z: skip the whole block if it is hidden
+				// z is monotonic on the scan line so the nearest depth of the block is at one of its ends
+				float qn = q + dq*(n-1);
+				float zmin = frustum ? Math.min(1/q, 1/qn) : Math.min(q, qn);
+				if (isBehind(zmin, zBuffer.getTileMax(x_zBuf, y_zBuf))) {
+					hiz_rejected_blocks++;
+					processed_pixels += n-1;
+					discarded_pixels += n;
+					// Skip the block: next pixel is blockEnd, where values are anchored again
+					x = blockEnd - 1;
+					continue;
+				}
 
-			if (!shadowmap) {
+				// Anchor the values of the fragment attributes at the beginning of the block
+				if (!shadowmap) {
+					if (interpolate) {
+						anchorSpan(frag_shc, ishc1, ishc2, 3*nb_lights, g);
+						if (specular) anchorSpan(frag_spc, ispc1, ispc2, 3*nb_lights, g);
+					}
+					if (shadows) anchorSpan(frag_vl, vl1, vl2, 3*nb_lights, g);
+					if (textured) {
+						frag_tex[0] = Tools.interpolate(vt1x, vt2x, g);
+						frag_tex[1] = Tools.interpolate(vt1y, vt2y, g);
+						frag_tex[2] = Tools.interpolate(vt1w, vt2w, g);
+					}
+				}
+
+				if (vector && n >= 4) {
+					// Whole block at once, then next pixel is blockEnd
+					int drawn = vectorKernel.rasterizeBlock(this, zBuffer, gUIView, x, y, n, q, dq, tp, frustum, specular, textured);
+					processed_pixels += n-1;
+					calculated_pixels += drawn;
+					rendered_pixels += drawn;
+					frame_fragment_pixels += drawn;
+					discarded_pixels += n - drawn;
+					x = blockEnd - 1;
+					continue;
+				}
+			}
+
+			// Calculate z using 1/z interpolation (frustum) or normal interpolation (orthographic)
+			float z = frustum ? 1/q : q;
+
+			// zBuffer elimination at earliest stage of computation (as soon as we know z)
+			// Z buffer is [0, width][0, height] while screen is centered to origin -> need translation
+			float zBuf = zBuffer.get(row_zBuf + getXzBuf(x));
+			if (z>zBuf || (depthTestEqual && z!=zBuf)) { // Discard pixel
+				discarded_pixels++;
+				// Exit here
+
+			} else if (!shadowmap) { // General rasterization case, not a shadow map rasterization
+
+				calculated_pixels++;
+
+				// ----------------------------------------------
+				// Pixel drawing
+				// Draw the point with calculated Combined Color
+				// ----------------------------------------------
+				drawFragment(x, y, z, tp, frustum);
+
+			} else { // Shadow map rasterization
 
+				drawMap(x, y, z); // Only update the zBuffer that will become the shadow map at the end of the rasterization
+			}
+
+			// Advance the fragment attributes to the next pixel
+			if (!shadowmap) {
 				if (interpolate) {
-					ishc1 = new Color [nb_lights];
-					ishc2 = new Color [nb_lights];
-					ispc1 = new Color [nb_lights];
-					ispc2 = new Color [nb_lights];
+					advanceSpan(frag_shc, dfrag_shc, 3*nb_lights);
+					if (specular) advanceSpan(frag_spc, dfrag_spc, 3*nb_lights);
 				}
+				if (shadows) advanceSpan(frag_vl, dfrag_vl, 3*nb_lights);
+				if (textured) advanceSpan(frag_tex, dfrag_tex, 3);
+			}
+		}
 
-				if (shadows) {
-					vl1 = new Vector4 [nb_lights];
-					vl2 = new Vector4 [nb_lights];
+	}
+
+	/**
+	 * Half-space traversal: 3 edge functions are evaluated for each pixel of the bounding box of the triangle (clipped to the rasterization window).
+	 * A pixel is inside the triangle if it is inside the 3 half-spaces defined by the edges. Edge functions are incremented from one pixel
+	 * to the next, so there is no division per row or per pixel, and they give the barycentric coordinates used to interpolate the attributes.
+	 * 
+	 * Pixels exactly on an edge are drawn only if the edge is a top or left edge (top-left fill rule), so a pixel shared by 2 adjacent
+	 * triangles is drawn only once. Edge functions are computed exactly (integer arithmetic on the snapped vertices), so this rule
+	 * holds without any rounding error.
+	 * 
+	 * 				   P2
+	 * 				   +
+	 * 	 +-----------/---\-----+	bounding box
+	 * 	 |	   E20 /       \ E12
+	 * 	 |	     /           \ |
+	 * 	 |	   /    inside     \
+	 * 	 |	 +-------------------+ P1
+	 * 	 +--P0-------E01-------+
+	 * 
+	 * @param tp the TriangleParam obtained from setupTriangle
+	 */
+	protected void rasterizeHalfSpace(TriangleParam tp) {
+
+		VertexParam vp0 = tp.vp1;
+		VertexParam vp1 = tp.vp2;
+		VertexParam vp2 = tp.vp3;
+
+		// Vertices snapped to the sub-pixel grid (28.4 fixed point)
+		int x0 = vp0.fx, y0 = vp0.fy;
+		int x1 = vp1.fx, y1 = vp1.fy;
+		int x2 = vp2.fx, y2 = vp2.fy;
+
+		// Signed area (x2) of the triangle, positive if P0, P1, P2 are counter clockwise (Y axis up), exact in integer arithmetic
+		long area = (long)(x1-x0)*(y2-y0) - (long)(y1-y0)*(x2-x0);
+		if (area == 0) return; // Degenerated triangle, no pixel
+
+		// Make the triangle counter clockwise so that inside is on the left of each edge
+		if (area < 0) {
+			VertexParam vp = vp1; vp1 = vp2; vp2 = vp;
+			int t = x1; x1 = x2; x2 = t;
+			t = y1; y1 = y2; y2 = t;
+			area = -area;
+		}
+
+		// Bounding box of the triangle clipped to the rasterization window (pixels are sampled at integer coordinates)
+		int minX = Math.max(ceilFixed(Math.min(x0, Math.min(x1, x2))), windowMinX);
+		int maxX = Math.min(floorFixed(Math.max(x0, Math.max(x1, x2))), windowMaxX);
+		int minY = Math.max(ceilFixed(Math.min(y0, Math.min(y1, y2))), windowMinY);
+		int maxY = Math.min(floorFixed(Math.max(y0, Math.max(y1, y2))), windowMaxY);
+		if (minX > maxX || minY > maxY) return;
+
+		// Edge functions E(x,y) = A*x + B*y + C, positive on the left of the edge (inside), evaluated exactly in integer arithmetic
+		// at the pixels (x, y) of the sub-pixel grid: A and B are given per pixel (sub-pixel deltas shifted by SUBPIXEL_BITS)
+		// E12 is the edge opposite to P0, its value is the (non normalized) barycentric coordinate of P0, and so on
+		long a12 = (long)(y1-y2) << SUBPIXEL_BITS, b12 = (long)(x2-x1) << SUBPIXEL_BITS, c12 = (long)x1*y2 - (long)x2*y1;
+		long a20 = (long)(y2-y0) << SUBPIXEL_BITS, b20 = (long)(x0-x2) << SUBPIXEL_BITS, c20 = (long)x2*y0 - (long)x0*y2;
+		long a01 = (long)(y0-y1) << SUBPIXEL_BITS, b01 = (long)(x1-x0) << SUBPIXEL_BITS, c01 = (long)x0*y1 - (long)x1*y0;
+
+		// Top-left fill rule: in counter clockwise order (Y axis up), left edges go down and top edges go left
+		boolean tl12 = isTopLeft(x1, y1, x2, y2);
+		boolean tl20 = isTopLeft(x2, y2, x0, y0);
+		boolean tl01 = isTopLeft(x0, y0, x1, y1);
+
+		float invArea = 1/(float)area;
+		boolean frustum = perspectiveCtx.getPerspectiveType() == PerspectiveContext.PERSPECTIVE_TYPE_FRUSTUM;
+
+		// Projection factors of the 3 vertices: 1/W for perspective correct interpolation (frustum) or Z (orthographic)
+		float q0 = frustum ? 1/vp0.v.getProjPos().getW() : vp0.v.getProjPos().getZ();
+		float q1 = frustum ? 1/vp1.v.getProjPos().getW() : vp1.v.getProjPos().getZ();
+		float q2 = frustum ? 1/vp2.v.getProjPos().getW() : vp2.v.getProjPos().getZ();
+
+		int nb_lights = tp.nb_sl;
+		boolean specular = false;
+		boolean textured = false;
+		if (!tp.shadowmap) {
+			specular = lighting.hasSpecular();
+			textured = tp.texture && tp.tex!=null;
+			initVertexBuffers(nb_lights);
+			// Attributes of the 3 vertices weighted by their projection factor (same as the scan line interpolation)
+			setVertexAttributes(vtx0_att, vp0, q0, tp, specular, textured);
+			setVertexAttributes(vtx1_att, vp1, q1, tp, specular, textured);
+			setVertexAttributes(vtx2_att, vp2, q2, tp, specular, textured);
+		}
+		int nb_att = 9*nb_lights + 3;
+
+		for (int y = minY; y <= maxY; y++) {
+
+			rasterized_lines++;
+
+			// Constant part of the edge functions for this row. Edge functions are then evaluated from x only, without accumulation,
+			// so that a pixel gets the same values whatever the window (tile) it is rasterized in
+			long r12 = b12*y + c12;
+			long r20 = b20*y + c20;
+			long r01 = b01*y + c01;
+			boolean inside = false;
+			int blockEnd = minX; // End (excluded) of the current block of pixels in the same zBuffer tile
+			int y_zBuf = getYzBuf(y);
+			int row_zBuf = zBuffer.getRowOffset(y_zBuf); // zBuffer row, pixels of the row are contiguous
+
+			for (int x = minX; x <= maxX; x++) {
+
+				processed_pixels++;
+
+				// Hierarchical Z: at the beginning of each block of pixels in the same zBuffer tile, skip the whole block if it is hidden
+				// 1/W (frustum) or Z (orthographic) is linear on the row so the nearest depth of the block is at one of its ends
+				if (x == blockEnd) {
+					int n = Math.min(HierarchicalMapView.TILE_SIZE - (getXzBuf(x) & HierarchicalMapView.TILE_MASK), maxX + 1 - x);
+					blockEnd = x + n;
+					int xn = blockEnd - 1;
+					float qs = ((float)(a12*x + r12)*q0 + (float)(a20*x + r20)*q1 + (float)(a01*x + r01)*q2)*invArea;
+					float qn = ((float)(a12*xn + r12)*q0 + (float)(a20*xn + r20)*q1 + (float)(a01*xn + r01)*q2)*invArea;
+					float zmin = frustum ? Math.min(1/qs, 1/qn) : Math.min(qs, qn);
+					if (isBehind(zmin, zBuffer.getTileMax(getXzBuf(x), y_zBuf))) {
+						hiz_rejected_blocks++;
+						processed_pixels += n-1;
+						x = xn;
+						continue;
+					}
 				}
-				
-				float za_proj = 0, zb_proj = 0, zc_proj = 0, zd_proj = 0;
-				switch (perspectiveCtx.getPerspectiveType()) {
 
-				case PerspectiveContext.PERSPECTIVE_TYPE_FRUSTUM :
-					
-					// For 1/z interpolation
-					za_proj = 1/za;
-					zb_proj = 1/zb;
-					zc_proj = 1/zc;
-					zd_proj = 1/zd;
-					break;
-				case PerspectiveContext.PERSPECTIVE_TYPE_ORTHOGRAPHIC :
-					
-					// For normal interpolation
-					za_proj = za;
-					zb_proj = zb;
-					zc_proj = zc;
-					zd_proj = zd;
-					break;
-
-				default :
-					// Not implemented, should never happen
-					// TODO raise an UnimplementedException
+				long e12 = a12*x + r12;
+				long e20 = a20*x + r20;
+				long e01 = a01*x + r01;
+
+				// Inside test on the 3 edges with top-left fill rule
+				if (!((e12 > 0 || (e12 == 0 && tl12)) && (e20 > 0 || (e20 == 0 && tl20)) && (e01 > 0 || (e01 == 0 && tl01)))) {
+					if (inside) break; // The triangle is convex: once out of it there is no more pixel on this row
+					continue;
 				}
+				inside = true;
 
+				// Barycentric coordinates
+				float l0 = e12*invArea;
+				float l1 = e20*invArea;
+				float l2 = e01*invArea;
 
-				// For each Light
-				for (int i=0; i<nb_lights; i++) {
-					
-					if (interpolate) {
-						// Shaded color
-						ishc1[i] = ColorTools.interpolateColors(ColorTools.multColor(vpa.l[i].shadedColor,za_proj), ColorTools.multColor(vpb.l[i].shadedColor,zb_proj), gradient1);
-						ishc2[i] = ColorTools.interpolateColors(ColorTools.multColor(vpc.l[i].shadedColor,zc_proj), ColorTools.multColor(vpd.l[i].shadedColor,zd_proj), gradient2);
-						// Specular color
-						if (lighting.hasSpecular()) {
-							ispc1[i] = ColorTools.interpolateColors(ColorTools.multColor(vpa.l[i].specularColor,za_proj), ColorTools.multColor(vpb.l[i].specularColor,zb_proj), gradient1);
-							ispc2[i] = ColorTools.interpolateColors(ColorTools.multColor(vpc.l[i].specularColor,zc_proj), ColorTools.multColor(vpd.l[i].specularColor,zd_proj), gradient2);
-						}
-					} // Else (!interpolate) : do nothing (no interpolation or normal at triangle level)
-
-					if (shadows) {
-						// Interpolate on each [VA, VB] and [VC, VD] segments for each Light
-						//vl1[i] = Tools.interpolate(vpa.l[i].vl.times(za_proj), vpb.l[i].vl.times(zb_proj), gradient1);
-						//vl2[i] = Tools.interpolate(vpc.l[i].vl.times(zc_proj), vpd.l[i].vl.times(zd_proj), gradient2);	
-						vl1[i] = Tools.interpolate(vpa.l[i].vl, vpb.l[i].vl, gradient1);
-						vl2[i] = Tools.interpolate(vpc.l[i].vl, vpd.l[i].vl, gradient2);
+				// z is W (frustum) obtained by 1/W interpolation or projected Z (orthographic)
+				float q = l0*q0 + l1*q1 + l2*q2;
+				float z = frustum ? 1/q : q;
+
+				int x_zBuf = getXzBuf(x);
+
+				// zBuffer elimination at earliest stage of computation (as soon as we know z)
+				float zBuf = zBuffer.get(row_zBuf + x_zBuf);
+				if (z>zBuf || (depthTestEqual && z!=zBuf)) { // Discard pixel
+					discarded_pixels++;
+
+				} else if (!tp.shadowmap) { // General rasterization case, not a shadow map rasterization
+
+					calculated_pixels++;
+
+					// Interpolate the fragment attributes with the barycentric coordinates
+					for (int k=0; k<nb_att; k++) {
+						frag_att[k] = l0*vtx0_att[k] + l1*vtx1_att[k] + l2*vtx2_att[k];
 					}
-				} // End for each Light
-
-				//
-				// If texture enabled, calculate Texture vectors at beginning and end of the scan line
-				//
-				if (texture && tex!=null) {
-					vt1 = Tools.interpolate(vpa.t.times(za_proj), vpb.t.times(zb_proj), gradient1);
-					vt2 = Tools.interpolate(vpc.t.times(zc_proj), vpd.t.times(zd_proj), gradient2);
+					copyFragmentAttributes(nb_lights);
+
+					drawFragment(x, y, z, tp, frustum);
+
+				} else { // Shadow map rasterization
+
+					drawMap(x, y, z); // Only update the zBuffer that will become the shadow map at the end of the rasterization
+				}
+			}
+		}
+	}
+
+	/**
+	 * Multi-sample traversal: same edge functions than the half-space traversal, evaluated at each sample of the pixels of the bounding box
+	 * (samples at fixed offsets from the pixel center, see MultisampleBuffer). For each pixel:
+	 * - coverage: samples inside the triangle (top-left fill rule at each sample, so a sample shared by 2 adjacent triangles is covered once)
+	 * - depth of each covered sample and depth test against the depth of this sample in the zBuffer (per-sample layout)
+	 * - if at least one sample is visible, the pixel is shaded once: attributes are interpolated at the centroid of the visible samples,
+	 *   always inside the triangle (unlike the pixel center on the edges), and the color is written in the visible samples
+	 * The MultisampleBuffer resolves the samples into pixels at the end of the frame.
+	 * 
+	 * @param tp the TriangleParam obtained from setupTriangle
+	 */
+	protected void rasterizeMultisample(TriangleParam tp) {
+
+		VertexParam vp0 = tp.vp1;
+		VertexParam vp1 = tp.vp2;
+		VertexParam vp2 = tp.vp3;
+
+		// Vertices snapped to the sub-pixel grid (28.4 fixed point)
+		int x0 = vp0.fx, y0 = vp0.fy;
+		int x1 = vp1.fx, y1 = vp1.fy;
+		int x2 = vp2.fx, y2 = vp2.fy;
+
+		// Signed area (x2) of the triangle, made counter clockwise (see rasterizeHalfSpace)
+		long area = (long)(x1-x0)*(y2-y0) - (long)(y1-y0)*(x2-x0);
+		if (area == 0) return; // Degenerated triangle, no pixel
+		if (area < 0) {
+			VertexParam vp = vp1; vp1 = vp2; vp2 = vp;
+			int t = x1; x1 = x2; x2 = t;
+			t = y1; y1 = y2; y2 = t;
+			area = -area;
+		}
+
+		// Bounding box of the triangle extended by half a pixel (pixels having samples in the triangle), clipped to the rasterization window
+		int margin = SUBPIXEL_ONE/2;
+		int minX = Math.max(ceilFixed(Math.min(x0, Math.min(x1, x2)) - margin), windowMinX);
+		int maxX = Math.min(floorFixed(Math.max(x0, Math.max(x1, x2)) + margin), windowMaxX);
+		int minY = Math.max(ceilFixed(Math.min(y0, Math.min(y1, y2)) - margin), windowMinY);
+		int maxY = Math.min(floorFixed(Math.max(y0, Math.max(y1, y2)) + margin), windowMaxY);
+		if (minX > maxX || minY > maxY) return;
+
+		// Edge functions at the pixel centers (see rasterizeHalfSpace)
+		long a12 = (long)(y1-y2) << SUBPIXEL_BITS, b12 = (long)(x2-x1) << SUBPIXEL_BITS, c12 = (long)x1*y2 - (long)x2*y1;
+		long a20 = (long)(y2-y0) << SUBPIXEL_BITS, b20 = (long)(x0-x2) << SUBPIXEL_BITS, c20 = (long)x2*y0 - (long)x0*y2;
+		long a01 = (long)(y0-y1) << SUBPIXEL_BITS, b01 = (long)(x1-x0) << SUBPIXEL_BITS, c01 = (long)x0*y1 - (long)x1*y0;
+
+		// Offsets of the edge functions from the pixel center to each sample, exact as samples are on the sub-pixel grid
+		initSampleBuffers();
+		for (int s=0; s<samples; s++) {
+			int sx = multisample.sampleX[s], sy = multisample.sampleY[s];
+			sample_e12[s] = (long)(y1-y2)*sx + (long)(x2-x1)*sy;
+			sample_e20[s] = (long)(y2-y0)*sx + (long)(x0-x2)*sy;
+			sample_e01[s] = (long)(y0-y1)*sx + (long)(x1-x0)*sy;
+		}
+
+		boolean tl12 = isTopLeft(x1, y1, x2, y2);
+		boolean tl20 = isTopLeft(x2, y2, x0, y0);
+		boolean tl01 = isTopLeft(x0, y0, x1, y1);
+
+		float invArea = 1/(float)area;
+		boolean frustum = perspectiveCtx.getPerspectiveType() == PerspectiveContext.PERSPECTIVE_TYPE_FRUSTUM;
+
+		// Projection factors of the 3 vertices: 1/W for perspective correct interpolation (frustum) or Z (orthographic)
+		float q0 = frustum ? 1/vp0.v.getProjPos().getW() : vp0.v.getProjPos().getZ();
+		float q1 = frustum ? 1/vp1.v.getProjPos().getW() : vp1.v.getProjPos().getZ();
+		float q2 = frustum ? 1/vp2.v.getProjPos().getW() : vp2.v.getProjPos().getZ();
+
+		int nb_lights = tp.nb_sl;
+		if (!tp.shadowmap) {
+			boolean specular = lighting.hasSpecular();
+			boolean textured = tp.texture && tp.tex!=null;
+			initVertexBuffers(nb_lights);
+			setVertexAttributes(vtx0_att, vp0, q0, tp, specular, textured);
+			setVertexAttributes(vtx1_att, vp1, q1, tp, specular, textured);
+			setVertexAttributes(vtx2_att, vp2, q2, tp, specular, textured);
+		}
+		int nb_att = 9*nb_lights + 3;
+
+		for (int y = minY; y <= maxY; y++) {
+
+			rasterized_lines++;
+
+			long r12 = b12*y + c12;
+			long r20 = b20*y + c20;
+			long r01 = b01*y + c01;
+			int y_zBuf = getYzBuf(y);
+			int row_zBuf = zBuffer.getRowOffset(y_zBuf); // zBuffer row, samples of a pixel are contiguous
+
+			for (int x = minX; x <= maxX; x++) {
+
+				processed_pixels++;
+
+				long e12 = a12*x + r12;
+				long e20 = a20*x + r20;
+				long e01 = a01*x + r01;
+				int x_zBuf = getXzBuf(x);
+				int index = row_zBuf + x_zBuf*samples;
+
+				// Coverage and depth test of each sample, and sums of the barycentric coordinates of the visible samples
+				int visible = 0;
+				float l0 = 0, l1 = 0, l2 = 0;
+				for (int s=0; s<samples; s++) {
+					long f12 = e12 + sample_e12[s];
+					long f20 = e20 + sample_e20[s];
+					long f01 = e01 + sample_e01[s];
+					if (!((f12 > 0 || (f12 == 0 && tl12)) && (f20 > 0 || (f20 == 0 && tl20)) && (f01 > 0 || (f01 == 0 && tl01)))) continue;
+
+					float m0 = f12*invArea;
+					float m1 = f20*invArea;
+					float m2 = f01*invArea;
+					float q = m0*q0 + m1*q1 + m2*q2;
+					float z = frustum ? 1/q : q;
+					float zBuf = zBuffer.get(index + s);
+					if (z>zBuf || (depthTestEqual && z!=zBuf)) continue;
+
+					visible |= 1 << s;
+					sample_z[s] = z;
+					l0 += m0;
+					l1 += m1;
+					l2 += m2;
+				}
+				if (visible == 0) {
+					discarded_pixels++;
+					continue;
+				}
+
+				// Depth of the visible samples
+				for (int s=0; s<samples; s++) {
+					if ((visible & (1 << s)) != 0) zBuffer.set(x_zBuf, y_zBuf, s, sample_z[s]);
+				}
+
+				if (tp.shadowmap) { // Depth only
+					frame_depth_pixels++;
+					rendered_pixels++;
+					continue;
+				}
+
+				calculated_pixels++;
+
+				// Shade the pixel once, at the centroid of its visible samples
+				int n = Integer.bitCount(visible);
+				l0 /= n;
+				l1 /= n;
+				l2 /= n;
+				float q = l0*q0 + l1*q1 + l2*q2;
+				float z = frustum ? 1/q : q;
+				for (int k=0; k<nb_att; k++) {
+					frag_att[k] = l0*vtx0_att[k] + l1*vtx1_att[k] + l2*vtx2_att[k];
+				}
+				copyFragmentAttributes(nb_lights);
+
+				multisample.write(x_zBuf, y_zBuf, visible, shadeFragment(tp, z, frustum));
+				frame_fragment_pixels++;
+				rendered_pixels++;
+			}
+		}
+	}
+
+	/**
+	 * Make sure the multi-sample buffers can hold a value for each sample of a pixel
+	 */
+	protected void initSampleBuffers() {
+		if (sample_z == null || sample_z.length < samples) {
+			sample_e12 = new long[samples];
+			sample_e20 = new long[samples];
+			sample_e01 = new long[samples];
+			sample_z = new float[samples];
+		}
+	}
+
+	/**
+	 * Top-left fill rule: an edge of a counter clockwise triangle (Y axis up) is a left edge if it goes down, a top edge if it is horizontal and goes left
+	 */
+	protected static boolean isTopLeft(int xa, int ya, int xb, int yb) {
+		return yb < ya || (yb == ya && xb < xa);
+	}
+
+	/**
+	 * Store the attributes of a vertex, weighted by its projection factor, in a vertex buffer:
+	 * shaded colors (3 components per light), specular colors (3 per light), light coordinates (3 per light, not weighted) then texture vector (x, y, w)
+	 */
+	protected void setVertexAttributes(float[] att, VertexParam vp, float q, TriangleParam tp, boolean specular, boolean textured) {
+		int nb_lights = tp.nb_sl;
+		for (int i=0; i<nb_lights; i++) {
+			for (int c=0; c<3; c++) {
+				if (tp.interpolate) {
+					att[3*i+c] = vp.l[i].shadedColor[c]*q;
+					att[3*nb_lights+3*i+c] = specular ? vp.l[i].specularColor[c]*q : 0;
 				}
 			}
+			if (tp.shadows) { // Light coordinates are not weighted: they are interpolated linearly in screen space, like in scan line traversal
+				att[6*nb_lights+3*i] = vp.l[i].vl.getX();
+				att[6*nb_lights+3*i+1] = vp.l[i].vl.getY();
+				att[6*nb_lights+3*i+2] = vp.l[i].vl.getZ();
+			}
+		}
+		if (textured) {
+			att[9*nb_lights] = vp.t.getX()*q;
+			att[9*nb_lights+1] = vp.t.getY()*q;
+			att[9*nb_lights+2] = vp.t.getW()*q;
+		}
+	}
+
+	/**
+	 * Dispatch the interpolated attributes of the half-space traversal into the fragment buffers used by shadeFragment
+	 */
+	protected void copyFragmentAttributes(int nb_lights) {
+		System.arraycopy(frag_att, 0, frag_shc, 0, 3*nb_lights);
+		System.arraycopy(frag_att, 3*nb_lights, frag_spc, 0, 3*nb_lights);
+		System.arraycopy(frag_att, 6*nb_lights, frag_vl, 0, 3*nb_lights);
+		System.arraycopy(frag_att, 9*nb_lights, frag_tex, 0, 3);
+	}
+
+	/**
+	 * Shade a fragment (pixel) from its interpolated attributes stored in the fragment buffers:
+	 * - frag_shc and frag_spc: shaded and specular colors of each light (r, g, b), weighted by the projection factor
+	 * - frag_vl: position of the fragment in each light's coordinates (x, y, z)
+	 * - frag_tex: texture vector (x, y, w), weighted by the projection factor
+	 * This kernel is shared by all triangle traversals.
+	 * 
+	 * @param tp the TriangleParam of the triangle
+	 * @param z the depth of the fragment (W for frustum, projected Z for orthographic)
+	 * @param frustum true for a frustum perspective, false for orthographic
+	 * @return the packed RGB color of the fragment
+	 */
+	protected int shadeFragment(TriangleParam tp, float z, boolean frustum) {
+
+		int nb_lights = tp.nb_sl;
+		boolean specular = lighting.hasSpecular();
+		boolean textured = tp.texture && tp.tex!=null;
+
+		// Texture interpolation
+		// Texture color T (white if no texture)
+		float tr = 1, tg = 1, tb = 1;
+		if (textured) {
+
+			float vtx = frag_tex[0]*z;
+			float vty = frag_tex[1]*z;
+			float vtw = frag_tex[2]*z;
+			int ctx = 0;
+			// Projective Texture mapping using the fourth coordinate
+			// By default W of the texture vector is 1 but if not this will help to take account of the potential geometric distortion of the texture
+			switch (tp.tex_orientation) {
+			case Triangle.TEXTURE_ISOTROPIC: // Default for a triangle
+				ctx = tp.tex.getInterpolatedRGB(vtx/vtw, vty/vtw);
+				break;
+			case Triangle.TEXTURE_VERTICAL:
+				ctx = tp.tex.getInterpolatedRGB(vtx/vtw, vty);
+				break;
+			case Triangle.TEXTURE_HORIZONTAL:
+				ctx = tp.tex.getInterpolatedRGB(vtx, vty/vtw);
+				break;
+			default:
+				// Should never happen
+				if (Tracer.error) Tracer.traceError(this.getClass(), "Invalid Texture orientation for this triangle: "+tp.tex_orientation);
+			}
+			tr = ColorTools.getRed(ctx);
+			tg = ColorTools.getGreen(ctx);
+			tb = ColorTools.getBlue(ctx);
+
+		} // End Texture interpolation
+
+		// --------------------------
+		// ---- Color Combination ---
+		// --------------------------
+
+		// Combine colors with the following formula
+		// One Light : Color K = DTA + C(DT + S) = DTA + DTC + SC = DT(A+C) + SC
+		// Multiple Lights : Color K = DTA + SUM(Ci(DT + Si)) = DTA + SUM(CiDT) + SUM(CiSi)
+		// D: diffuse color, T: texture, A: Ambient color, Ci: color of the Light(i) source at point, Si: Specular color of the Light(i)
+
+		// Combine the multiple Light's Colors
+		// ------------------------------------
+		// Sums of Ci x D x T and Ci x Si respectively
+		float dtr = 0, dtg = 0, dtb = 0;
+		float sir = 0, sig = 0, sib = 0;
+
+		// Perspective correction of the interpolated colors
+		float zcorr = frustum ? z : 1/z;
+
+		for (int i=0; i<nb_lights; i++) {
+
+			float shadowCoef = 1; // Full transmission by default (100%), no shadow coefficient reduction
+
+			if (tp.shadows) { // then do the needful to know if the element is in shadow or not
+
+				// Position of the element being rendered in Light's coordinate, obtained by interpolation
+				float vlx = frag_vl[3*i];
+				float vly = frag_vl[3*i+1];
+				float vlz = frag_vl[3*i+2];
 				
+				// Calculate the depth of this position in Shadow Map
+				// Again use the interpolation feature of the map to calculate the depth at this position that is not exactly matching map elements
+				float depth = tp.vp1.l[i].map.getInterpolation((vlx+1)/2, (vly+1)/2); // Map i [0,+1] so to be transformed from [-1,+1] of vl position
 				
-			// Resulting colors
-			Color csp = DARK_SHADING_COLOR; // Specular color
-			Color ctx = null; // Texture color
-			Color cc; // Combined color to be drawn, result of the lighting and shading calculation
-			
-			
-			// drawing a line from left (sx) to right (ex)			
-			// To loop from real min to real max
-			int startx = Math.min(sx,  ex);
-			int endx = Math.max(sx, ex);
+				// If Z distance of this element is > depth in Shadow map then element is "in shadow" for this light -> shadowCoef = 0
+				if (vlz > depth + 10 * Constants.EPSILON) shadowCoef = 0;
+				// Epsilon used to avoid "ACNE EFFECT" (or self-shadowing). To be refined and parameterized.
+			}
+
+			// Calculate the shaded color for this Light - Gouraud's shading
+			float cshr, cshg, cshb; // shaded color for the light
+			float cspr = 0, cspg = 0, cspb = 0; // specular color for the light (no specular by default)
+
+			if (tp.interpolate) {
+				// Color interpolation
+				cshr = ColorTools.clip(frag_shc[3*i]*zcorr);
+				cshg = ColorTools.clip(frag_shc[3*i+1]*zcorr);
+				cshb = ColorTools.clip(frag_shc[3*i+2]*zcorr);
+				if (specular) {
+					cspr = ColorTools.clip(frag_spc[3*i]*zcorr);
+					cspg = ColorTools.clip(frag_spc[3*i+1]*zcorr);
+					cspb = ColorTools.clip(frag_spc[3*i+2]*zcorr);
+				}
+			} else {  // no interpolation or normal at triangle level
+				// In this case csh is the base color passed in arguments and csp won't be used
+				cshr = tp.shadedCol[0];
+				cshg = tp.shadedCol[1];
+				cshb = tp.shadedCol[2];
+
+				// TODO specular color to be implemented in case of normal at triangle level
+			}
 			
-			for (int x = startx; x < endx; x++) {
-				
-				processed_pixels++;
+			if (tp.shadows) {
+				cshr *= shadowCoef;
+				cshg *= shadowCoef;
+				cshb *= shadowCoef;
+				cspr *= shadowCoef;
+				cspg *= shadowCoef;
+				cspb *= shadowCoef;
+			}
 
-				// Eliminate pixels outside the gUIView screen (in y dimension, the lines outside GUIView have already been eliminated earlier)
-				if (isInScreenX(x)) {
-					// Z buffer is [0, width][0, height] while screen is centered to origin -> need translation
-					int x_zBuf = getXzBuf(x);
-					int y_zBuf = getYzBuf(y);
-
-					// Protect against out of bounds (should not happen)
-					if (x_zBuf>=0 && x_zBuf<zBuf_width && y_zBuf>=0 && y_zBuf<zBuf_height) {
-
-						// Interpolation gradient on scan line from sx (0) to ex (1)
-						float gradient = (float)(x-sx)/(float)(ex-sx);
-						// Calculate z using 1/z interpolation
-						//float z = 1/Tools.interpolate(1/z1, 1/z2, gradient);
-						float z = 0;
-						
-						switch (perspectiveCtx.getPerspectiveType()) {
-
-						case PerspectiveContext.PERSPECTIVE_TYPE_FRUSTUM :
-							
-							// Calculate z using 1/z interpolation
-							z = 1/Tools.interpolate(1/z1, 1/z2, gradient);
-							break;
-
-						case PerspectiveContext.PERSPECTIVE_TYPE_ORTHOGRAPHIC :
-
-							// Calculate z using normal interpolation
-							z = Tools.interpolate(z1, z2, gradient);
-							break;
-
-						default :
-							// Not implemented, should never happen
-							// TODO raise an UnimplementedException
-						}
-					
+			// CiDT
+			dtr += cshr * tr;
+			dtg += cshg * tg;
+			dtb += cshb * tb;
 
-						// zBuffer elimination at earliest stage of computation (as soon as we know z)
-						if (z>zBuffer.get(getXzBuf(x), getYzBuf(y))) { // Discard pixel
-							discarded_pixels++;
-							// Exit here
-
-						} else { // General case : compute colors and draw pixel
-
-
-							if (!shadowmap) { // General rasterization case, not a shadow map rasterization
-								
-								calculated_pixels++;
-								
-								cc = null;
-
-								// Texture interpolation
-								if (texture && tex!=null) {
-
-									vt = Tools.interpolate(vt1, vt2, gradient).times(z);
-									try {
-										// Projective Texture mapping using the fourth coordinate
-										// By default W of the texture vector is 1 but if not this will help to take account of the potential geometric distortion of the texture
-										switch (tex_orientation) {
-										case Triangle.TEXTURE_ISOTROPIC: // Default for a triangle
-											ctx = tex.getInterpolatedColor(vt.getX()/vt.getW(), vt.getY()/vt.getW());
-											break;
-										case Triangle.TEXTURE_VERTICAL:
-											ctx = tex.getInterpolatedColor(vt.getX()/vt.getW(), vt.getY());
-											break;
-										case Triangle.TEXTURE_HORIZONTAL:
-											ctx = tex.getInterpolatedColor(vt.getX(), vt.getY()/vt.getW());
-											break;
-										default:
-											// Should never happen
-											if (Tracer.error) Tracer.traceError(this.getClass(), "Invalid Texture orientation for this triangle: "+tex_orientation);
-										}
-									} catch (Exception e) {
-										// TODO Auto-generated catch block
-										e.printStackTrace();
-									}
-
-								} // End Texture interpolation
-
-								// --------------------------
-								// ---- Color Combination ---
-								// --------------------------
-
-								// Combine colors with the following formula
-								// One Light : Color K = DTA + C(DT + S) = DTA + DTC + SC = DT(A+C) + SC
-								// Multiple Lights : Color K = DTA + SUM(Ci(DT + Si)) = DTA + SUM(CiDT) + SUM(CiSi)
-								// D: diffuse color, T: texture, A: Ambient color, Ci: color of the Light(i) source at point, Si: Specular color of the Light(i)
-								// Old : ctx = T, csh_l[i]  = Ci, ambientCol = A, csp_l[i] = Si
-
-								// Combine the multiple Light's Colors
-								// ------------------------------------
-								// Table of Colors for each light : Ci x D x T and Ci x Si respectively that will be combined later							
-								Color[] c_CiDT = new Color[nb_lights];
-								Color[] c_CiSi = new Color[nb_lights];
-
-								Color csh_l = null; // shaded color for the light
-								Color csp_l = null; // specular color for the light
-
-								float shadowCoef[] = new float[nb_lights];
-
-								for (int i=0; i<nb_lights; i++) {
-
-									if (shadows) { // then do the needful to know if the element is in shadow or not
-										
-										shadowCoef[i] = 1; // Full transmission by default (100%), no shadow coefficient reduction
-												
-										// Calculate the position of the element being rendered in Light's coordinate by interpolation
-										// vl1 and vl2 are the start and end points of the scan line in light's coordinates
-										//Vector4 vl = Tools.interpolate(vl1[i], vl2[i], gradient).times(z);
-										// vl is the position vector in homogeneous coordinates (full projection)
-										Vector4 vl = Tools.interpolate(vl1[i], vl2[i], gradient); // Normal interpolation assuming orthographic projection -> to be adapted for PointLights
-										
-										// Calculate the depth of this position in Shadow Map
-										// Again use the interpolation feature of the map to calculate the depth at this position that is not exactly matching map elements
-										//shadowCoef = vpa.l[i].map.getInterpolation(vl.getX()/vl.getW(), vl.getY()/vl.getW());
-										//shadowCoef = vpa.l[i].map.getInterpolation((vl.getX()+1)/2, (vl.getY()+1)/2); // Map i [0,+1] so to be transformed from [-1,+1] of vl position
-										float depth = vpa.l[i].map.getInterpolation((vl.getX()+1)/2, (vl.getY()+1)/2); // Map i [0,+1] so to be transformed from [-1,+1] of vl position
-										//if (Tracer.debug) Tracer.traceDebug(this.getClass(), "Element in light coordinates: vlx = " + vl.getX() + ", vly = " + vl.getY() + ", depth: "+depth);
-										
-										// If Z distance of this element is > depth in Shadow map then element is "in shadow" for this light -> shadowCoef = 0
-										if (vl.getZ() > depth + 10 * Constants.EPSILON) shadowCoef[i] = 0;
-										// Epsilon used to avoid "ACNE EFFECT" (or self-shadowing). To be refined and parameterized.
-
-										// TODO Work in Progress - To Be Completed
-										// For each light
-										//							int xs = 0, ys = 0; // projected position for shadow map
-										// Interpolate across the 2 segments using gradient
-										//							float zs = 1/Tools.interpolate(1/zs1, 1/zs2, gradient);
-										// Calculate xs and ys by
-										// - projection using the Light coordinates matrix
-										// - tranform from [-1.1] coordinates to [0,1] by multiplying the projection matrix appropriately
-										// - transformation in integer indices of the size of the shadow map
-										//							if (zs<lighting.getDirectionalLight().getMap(xs,ys)) {
-
-										//							} else {
-										// in shadow
-										//							}
-
-										// Is there a needed correction using W coordinate ?
-										// Get the depth from the depth map using texture mapping interpolation technique
-										// Compare the 2 depths and if depth of the fragment is deeper than depth map
-										// then this fragment is in shadow and the corresponding shadow light should be 0
-										// else this fragment is in the light and shadow light should be 1
-
-										// TODO
-										// For each light
-										// Get the depth of the vertices in Light coordinates
-										//							float zsa = vsa_d.getW();
-										//							float zsb = vsb_d.getW();
-										//							float zsc = vsc_d.getW();
-										//							float zsd = vsd_d.getW();
-
-										// Interpolate across the 2 segments using gradients
-										// Starting Z & ending Z
-										//							zs1 = 1/Tools.interpolate(1/zsa, 1/zsb, gradient1);
-										//							zs2 = 1/Tools.interpolate(1/zsc, 1/zsd, gradient2);			
-									}
-
-									// Calculate the shaded color for this Light - Gouraud's shading
-									// If interpolation
-									
-									switch (perspectiveCtx.getPerspectiveType()) {
-
-									case PerspectiveContext.PERSPECTIVE_TYPE_FRUSTUM :
-										
-										break;
-
-									case PerspectiveContext.PERSPECTIVE_TYPE_ORTHOGRAPHIC :
-
-										break;
-
-									default :
-										// Not implemented, should never happen
-										// TODO raise an UnimplementedException
-									}
-
-									if (interpolate) {
-										// Color interpolation
-										switch (perspectiveCtx.getPerspectiveType()) {
-										case PerspectiveContext.PERSPECTIVE_TYPE_FRUSTUM :
-											csh_l = ColorTools.multColor(ColorTools.interpolateColors(ishc1[i], ishc2[i], gradient),z); // Shaded color of this light
-											break;
-										case PerspectiveContext.PERSPECTIVE_TYPE_ORTHOGRAPHIC :
-											csh_l = ColorTools.multColor(ColorTools.interpolateColors(ishc1[i], ishc2[i], gradient),1/z); // Shaded color of this light
-											break;
-										default :
-											// Not implemented, should never happen
-										}
-										//csh_l = ColorTools.interpolateColors(ishc1[i], ishc2[i], gradient); // Shaded color of this light
-										//csh_l = shadedCol; // Shaded color passed in argument
-									if (lighting.hasSpecular()) {
-										switch (perspectiveCtx.getPerspectiveType()) {
-										case PerspectiveContext.PERSPECTIVE_TYPE_FRUSTUM :
-											csp_l = ColorTools.multColor(ColorTools.interpolateColors(ispc1[i], ispc2[i], gradient),z); // Specular color of this light											
-											break;
-										case PerspectiveContext.PERSPECTIVE_TYPE_ORTHOGRAPHIC :
-											csp_l = ColorTools.multColor(ColorTools.interpolateColors(ispc1[i], ispc2[i], gradient),1/z); // Specular color of this light
-											break;
-										default :
-											// Not implemented, should never happen
-										}
-											//csp_l = ColorTools.interpolateColors(ispc1[i], ispc2[i], gradient); // Specular color of this light
-											//csp_l = DARK_SHADING_COLOR; // No specular
-										} else {
-											csp_l = DARK_SHADING_COLOR; // No specular
-										}
-									} else {  // no interpolation or normal at triangle level
-										// In this case csh is the base color passed in arguments and csp won't be used
-										csh_l = shadedCol; // Shaded color passed in argument
-										csp_l = DARK_SHADING_COLOR; // No specular
-
-										// TODO specular color to be implemented in case of normal at triangle level
-									}
-									
-									if (shadows) {
-										csh_l = ColorTools.multColor(csh_l, shadowCoef[i]);
-										if (lighting.hasSpecular()) {
-											csp_l = ColorTools.multColor(csp_l, shadowCoef[i]);
-										}
-									}
-
-									if (texture && tex!=null) {
-										c_CiDT[i] = ColorTools.multColors(csh_l, ctx);
-									} else {
-										c_CiDT[i] = csh_l;
-									}
-
-									if (lighting.hasSpecular()) {
-										c_CiSi[i] = ColorTools.multColors(csh_l, csp_l);
-									}
-
-								} // End for each Light
-
-								// Combine each element of the formula to get one Color
-								// ----------------------------------------------------
-								// Multiple Lights : Color K = DTA + SUM(CiDT) + SUM(CiSi)
-
-								Color c_DTA = null;
-								Color c_CiDT_sum = null;
-								Color c_CiSi_sum = null;
-
-								// DTA calculation
-								if (texture && tex != null && ambientCol != null) {
-									c_DTA = ColorTools.multColors(ctx, ambientCol);
-								} else if (ambientCol != null) {
-									c_DTA = ambientCol;
-								} else {
-									c_DTA = DARK_SHADING_COLOR; // In case there is no ambient color
-								}
-
-								// SUM(CiDT) and SUM(CiSi) calculation, then sum the total
-								//if (interpolate) {
-								c_CiDT_sum = ColorTools.addColors(c_CiDT); // Add all CiDT elements together
-								if (lighting.hasSpecular()) c_CiSi_sum = ColorTools.addColors(c_CiSi); // Add all CiSi elements together
-
-								// Sum the total
-								if (lighting.hasSpecular() && csp != null) {
-									// General case with all type of light (shaded and specular)
-									cc = ColorTools.addColors(c_DTA, ColorTools.addColors(c_CiDT_sum, c_CiSi_sum));
-								} else { // No Specular light, formula is simplified
-									cc = ColorTools.addColors(c_DTA, c_CiDT_sum);
-								}
-								
-								// ----------------------------------------------
-								// Pixel drawing
-								// Draw the point with calculated Combined Color
-								// ----------------------------------------------
-								drawPoint(x, y, z, cc);
-
-							} else { // Shadow map rasterization
-								
-								drawMap(x, y, z); // Only update the zBuffer that will become the shadow map at the end of the rasterization
-
-							}
-						} 
-
-					} else { // Out of zBuffer range (should not happen)
-						outOfBounds_pixels++;;	    		
-						if (x_zBuf<0 || x_zBuf>=zBuf_width) {
-							if (Tracer.error) Tracer.traceError(this.getClass(), "Invalid zBuffer_x value: " + x_zBuf + " while drawing points. zBuf_width: " + zBuf_width);
-						}
-						if (y_zBuf<0 || y_zBuf>=zBuf_height) {
-							if (Tracer.error) Tracer.traceError(this.getClass(), "Invalid zBuffer_y value: " + y_zBuf + " while drawing points. zBuf_height: " + zBuf_height);
-						}
-					}
-				} else { // Out of screen
-					not_rendered_pixels++;
-				}
+			// CiSi
+			if (specular) {
+				sir += cshr * cspr;
+				sig += cshg * cspg;
+				sib += cshb * cspb;
 			}
 
-		} else {
-			discarded_lines++;
+		} // End for each Light
+
+		// Combine each element of the formula to get one Color
+		// ----------------------------------------------------
+		// Multiple Lights : Color K = DTA + SUM(CiDT) + SUM(CiSi)
+
+		// DTA calculation
+		float dtar = 0, dtag = 0, dtab = 0; // In case there is no ambient color
+		if (tp.ambientCol != null) {
+			dtar = tp.ambientCol[0] * tr;
+			dtag = tp.ambientCol[1] * tg;
+			dtab = tp.ambientCol[2] * tb;
+		}
+
+		// Sum the total
+		if (specular) {
+			// General case with all type of light (shaded and specular)
+			return ColorTools.getRGB(
+					dtar + ColorTools.clip(ColorTools.clip(dtr) + ColorTools.clip(sir)),
+					dtag + ColorTools.clip(ColorTools.clip(dtg) + ColorTools.clip(sig)),
+					dtab + ColorTools.clip(ColorTools.clip(dtb) + ColorTools.clip(sib)));
+		} else { // No Specular light, formula is simplified
+			return ColorTools.getRGB(dtar + ColorTools.clip(dtr), dtag + ColorTools.clip(dtg), dtab + ColorTools.clip(dtb));
+		}
+	}
+
+	/**
+	 * Make sure the scan line buffers can hold the 3 components of each light. Buffers are reused from one scan line to the other.
+	 * @param nb_lights the number of lights
+	 */
+	protected void initScanLineBuffers(int nb_lights) {
+		if (ishc1 == null || ishc1.length < 3 * nb_lights) {
+			ishc1 = new float[3 * nb_lights];
+			ishc2 = new float[3 * nb_lights];
+			ispc1 = new float[3 * nb_lights];
+			ispc2 = new float[3 * nb_lights];
+			vl1 = new float[3 * nb_lights];
+			vl2 = new float[3 * nb_lights];
+		}
+	}
+
+	/**
+	 * Make sure the fragment buffers can hold the 3 components of each light. Buffers are reused from one fragment to the other.
+	 * @param nb_lights the number of lights
+	 */
+	protected void initFragmentBuffers(int nb_lights) {
+		if (frag_shc == null || frag_shc.length < 3 * nb_lights) {
+			frag_shc = new float[3 * nb_lights];
+			frag_spc = new float[3 * nb_lights];
+			frag_vl = new float[3 * nb_lights];
+			dfrag_shc = new float[3 * nb_lights];
+			dfrag_spc = new float[3 * nb_lights];
+			dfrag_vl = new float[3 * nb_lights];
+		}
+	}
+
+	/**
+	 * Set up the per pixel deltas of values from their values at both ends of the span
+	 * @param dv the deltas per pixel (output)
+	 * @param v1 the values at the beginning of the span (gradient 0)
+	 * @param v2 the values at the end of the span (gradient 1)
+	 * @param n the number of values
+	 * @param dg the gradient delta per pixel
+	 */
+	protected static void setupSpan(float[] dv, float[] v1, float[] v2, int n, float dg) {
+		for (int k=0; k<n; k++) {
+			dv[k] = (v2[k]-v1[k])*dg;
 		}
 	}
 
+	/**
+	 * Anchor values at a given gradient of the span (beginning of a block of pixels)
+	 * @param v the values (output)
+	 * @param v1 the values at the beginning of the span (gradient 0)
+	 * @param v2 the values at the end of the span (gradient 1)
+	 * @param n the number of values
+	 * @param g the gradient
+	 */
+	protected static void anchorSpan(float[] v, float[] v1, float[] v2, int n, float g) {
+		for (int k=0; k<n; k++) {
+			v[k] = Tools.interpolate(v1[k], v2[k], g);
+		}
+	}
+
+	/**
+	 * Advance values to the next pixel of the span by adding their deltas
+	 */
+	protected static void advanceSpan(float[] v, float[] dv, int n) {
+		for (int k=0; k<n; k++) {
+			v[k] += dv[k];
+		}
+	}
+
+	/**
+	 * Make sure the vertex buffers of the half-space traversal can hold all attributes: 9 components per light and the texture vector
+	 * @param nb_lights the number of lights
+	 */
+	protected void initVertexBuffers(int nb_lights) {
+		if (vtx0_att == null || vtx0_att.length < 9 * nb_lights + 3) {
+			vtx0_att = new float[9 * nb_lights + 3];
+			vtx1_att = new float[9 * nb_lights + 3];
+			vtx2_att = new float[9 * nb_lights + 3];
+			frag_att = new float[9 * nb_lights + 3];
+		}
+	}
+
+	/**
+	 * Interpolate the r, g, b components of 2 colors weighted by their projection factor (1/z for perspective correction)
+	 * and store them in the buffer for light i.
+	 * Unlike ColorTools, components are not clipped here: the perspective correction is applied later at pixel level.
+	 */
+	protected void interpolateComponents(float[] buffer, int i, float[] c1, float z1_proj, float[] c2, float z2_proj, float gradient) {
+		buffer[3*i] = Tools.interpolate(c1[0]*z1_proj, c2[0]*z2_proj, gradient);
+		buffer[3*i+1] = Tools.interpolate(c1[1]*z1_proj, c2[1]*z2_proj, gradient);
+		buffer[3*i+2] = Tools.interpolate(c1[2]*z1_proj, c2[2]*z2_proj, gradient);
+	}
+
 	/**
 	 * Draw point with zBuffer management
 	 * @param x X screen coordinate (origin is in the center of the screen)
@@ -1264,11 +1975,27 @@ public class Rasterizer {
 	 * @param c Color of the pixel
 	 */
 	protected void drawPoint(int x, int y, float z, Color c) {
+		drawPoint(x, y, z, c.getRGB());
+	}
+
+	/**
+	 * Draw point with zBuffer management
+	 * @param x X screen coordinate (origin is in the center of the screen)
+	 * @param y Y screen coordinate (origin is in the center of the screen)
+	 * @param z Z homogeneous coordinate for Z buffering
+	 * @param rgb packed RGB Color of the pixel
+	 */
+	protected void drawPoint(int x, int y, float z, int rgb) {
 		// Eliminate pixels outside the gUIView screen is done before calling this method for optimization
 		// So at this stage we only render pixel and update the zBuffer
 
-		// Draw pixel in the GUIView
-		gUIView.drawPixel(x,y,c);
+		// Draw pixel directly in the back buffer of the GUIView if available, through the GUIView otherwise
+		int index = pixels != null ? gUIView.getPixelIndex(x, y) : -1;
+		if (index >= 0) {
+			pixels[index] = rgb;
+		} else {
+			gUIView.drawPixel(x,y,rgb);
+		}
 
 		// Update zBuffer of this pixel to the new z
 		zBuffer.set(getXzBuf(x), getYzBuf(y), z);
@@ -1281,6 +2008,29 @@ public class Rasterizer {
 //		if(c.getRed() <= 5 && c.getGreen() <= 5 && c.getBlue() <= 5) rendered_dark_pixels++;
 	}
 	
+	/**
+	 * Draw a fragment that passed the depth test, its attributes being in the fragment buffers.
+	 * In forward shading, the fragment is shaded and drawn. In deferred shading, it is stored in the GBuffer and will be shaded
+	 * by the lighting pass only if it is still visible at the end of the frame.
+	 * @param x X screen coordinate (origin is in the center of the screen)
+	 * @param y Y screen coordinate (origin is in the center of the screen)
+	 * @param z Z homogeneous coordinate for Z buffering
+	 * @param tp the TriangleParam of the triangle
+	 * @param frustum true for a frustum perspective, false for orthographic
+	 */
+	protected void drawFragment(int x, int y, float z, TriangleParam tp, boolean frustum) {
+		frame_fragment_pixels++;
+		if (gBuffer != null) {
+			int x_zBuf = getXzBuf(x);
+			int y_zBuf = getYzBuf(y);
+			gBuffer.write(x_zBuf, y_zBuf, z, tp, frag_shc, frag_spc, frag_vl, frag_tex);
+			zBuffer.set(x_zBuf, y_zBuf, z);
+			rendered_pixels++;
+		} else {
+			drawPoint(x, y, z, shadeFragment(tp, z, frustum));
+		}
+	}
+
 	/**
 	 * Draw Map only (zBuffer)
 	 * @param x X screen coordinate (origin is in the center of the screen)
@@ -1292,21 +2042,12 @@ public class Rasterizer {
 
 		// Drawing the map means only updating zBuffer of this pixel to the new z
 		zBuffer.set(getXzBuf(x), getYzBuf(y), z);
+		frame_depth_pixels++;
 
 		// Increment counter of rendered pixels
 		rendered_pixels++;
 	}
 
-	protected boolean isInScreenX(int x) {
-		if (Math.abs(x)>pixelHalfWidth) return false;
-		return true;
-	}
-
-	protected boolean isInScreenY(int y) {
-		if (Math.abs(y)>pixelHalfHeight) return false;
-		return true;
-	}
-
 	/**
 	 * This method return the Color resulting from Ambient light
 	 * It is agnostic to any position in space as per definition of Ambient light
@@ -1412,7 +2153,7 @@ public class Rasterizer {
 	}
 
 	public String renderStats() {		
-		return "Rasterizer - Triangles: rendered: "+rendered_triangles+", rendered with lines: "+triangles_with_lines+", rendered with pixels: "+triangles_with_pixels;
+		return "Rasterizer - Triangles: rendered: "+rendered_triangles+", rendered with lines: "+triangles_with_lines+", rendered with pixels: "+triangles_with_pixels+". Hierarchical Z rejected triangles: "+hiz_rejected_triangles+", rejected 8 pixels blocks: "+hiz_rejected_blocks;
 
 	}
 
@@ -0,0 +1,43 @@
+package com.aventura.engine;
+
+/**
+ * ------------------------------------------------------------------------------
+ * MIT License
+ *
+ * Copyright (c) 2016-2026 Olivier BARRY
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ------------------------------------------------------------------------------
+ *
+ * Callback of the RenderEngine for progressive rendering: called each time a refinement level of the frame has been published in the
+ * GUIView (after GUIView.renderView()), so a viewer can show or process the intermediate results.
+ *
+ * @author Olivier BARRY
+ * @since October 2026
+ */
+
+public interface RefinementListener {
+
+	/**
+	 * Called on the rendering thread when a refinement level has been published
+	 * @param level RenderEngine.LEVEL_PREVIEW for the coarse preview, RenderEngine.LEVEL_FULL for the full quality frame
+	 * @param resolution the resolution factor of this level (e.g. 0.25 for a preview at 1/4, 1 for the full resolution)
+	 */
+	public void refined(int level, float resolution);
+}
@@ -2,9 +2,11 @@ package com.aventura.engine;
 
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.HashMap;
 
 import com.aventura.context.PerspectiveContext;
 import com.aventura.context.RenderContext;
+import com.aventura.math.tools.BoundingBox4;
 import com.aventura.math.transform.NotARotationException;
 import com.aventura.math.transform.Rotation;
 import com.aventura.math.transform.Translation;
@@ -14,7 +16,9 @@ import com.aventura.math.vector.Vector4;
 import com.aventura.model.camera.Camera;
 import com.aventura.model.light.Lighting;
 import com.aventura.model.light.ShadowingLight;
+import com.aventura.model.perspective.Perspective;
 import com.aventura.model.world.Element;
+import com.aventura.model.world.Octree;
 import com.aventura.model.world.Vertex;
 import com.aventura.model.world.World;
 import com.aventura.model.world.shape.Cone;
@@ -23,7 +27,9 @@ import com.aventura.model.world.shape.Segment;
 import com.aventura.model.world.triangle.Triangle;
 import com.aventura.tools.tracing.Tracer;
 import com.aventura.view.GUIView;
+import com.aventura.view.ImageSequenceWriter;
 import com.aventura.view.MapView;
+import com.aventura.view.OffscreenView;
 
 /**
  * ------------------------------------------------------------------------------ 
@@ -100,6 +106,10 @@ import com.aventura.view.MapView;
 
 public class RenderEngine {
 	
+	// Refinement levels of progressive rendering (see RefinementListener)
+	public static final int LEVEL_PREVIEW = 0;
+	public static final int LEVEL_FULL = 1;
+	
 	// API Contexts
 	private RenderContext renderContext;
 	private PerspectiveContext perspectiveContext;
@@ -110,6 +120,8 @@ public class RenderEngine {
 	private int nbt_out = 0; // Number of triangles not displayed
 	private int nbt_bf = 0; // Nb of triangles back facing (counted if backface culling is activated)
 	private int nbe = 0; // Number of Elements processed
+	private int nbe_lod = 0; // Number of Elements rendered with a coarser level of detail
+	private int nbe_octree = 0; // Number of top level Elements outside the view frustum skipped from the octree of the World
 	// Model
 	private World world;
 	private Lighting lighting;
@@ -124,6 +136,43 @@ public class RenderEngine {
 	// Rasterizer
 	private Rasterizer rasterizer;
 	
+	// Tiled Rasterizer (created when tiled rasterization is requested in RenderContext) and flag to bin triangles in tiles for the current frame
+	private TileRasterizer tileRasterizer;
+	private boolean tiled = false;
+
+	// GBuffer (created when deferred shading is requested in RenderContext) and flag to store fragments in the GBuffer for the current frame
+	private GBuffer gBuffer = null;
+	private boolean deferred = false;
+
+	// MultisampleBuffer (created when multi-sampling is requested in RenderContext) and flag of the current frame
+	private MultisampleBuffer multisampleBuffer = null;
+	private boolean multisampled = false;
+
+	// ImageSequenceWriter (optional) receiving the rendered frames to write them as image files
+	private ImageSequenceWriter imageWriter = null;
+
+	// Reduced resolution (progressive previews and dynamic resolution): RenderEngines rendering in their own OffscreenView, by resolution
+	// in percent, buffers of the upscale, and listener of the refinement levels
+	private HashMap<Integer, RenderEngine> scaledEngines = new HashMap<Integer, RenderEngine>();
+	private int[] scaledRow = null;
+	private int[] scaledColumns = null;
+	private RefinementListener refinementListener = null;
+
+	// Depth prepass: true while rasterizing depth only (first pass), and flag of the current frame for the statistics
+	private boolean depthOnly = false;
+	private boolean prepass = false;
+	
+	// Render queue: flattened Elements hierarchy, in submission order
+	private RenderQueue renderQueue = new RenderQueue();
+	private Frustum frustum = null; // View frustum of the frame in World coordinates if frustum culling is enabled
+	private ArrayList<Element> frameElements = new ArrayList<Element>(); // Top level Elements in the view frustum found in the octree
+	private OcclusionCuller occlusionCuller = null; // Created at first use
+	private boolean occlusion = false; // Occlusion culling done in this frame
+	
+	// Clipping of triangles against the view frustum (homogeneous coordinates)
+	private Clipper clipper = new Clipper();
+	private int clipping = Clipper.INSIDE; // Result of the clipping of the current triangle
+	
 	/**
 	 * Create a Rendering Engine with required dependencies and context
 	 * There should be a Rendering Engine for a single World, a single (consolidated) Lighting, a single Camera
@@ -160,6 +209,128 @@ public class RenderEngine {
 		rasterizer.setView(v);
 	}
 	
+	/**
+	 * Set an ImageSequenceWriter receiving each rendered frame, encoded in background. The caller should close it after the last frame.
+	 * @param w the ImageSequenceWriter, or null to stop writing frames
+	 */
+	public void setImageSequenceWriter(ImageSequenceWriter w) {
+		imageWriter = w;
+	}
+	
+	/**
+	 * Set a listener called each time a refinement level (preview or full quality frame) has been published in the GUIView
+	 * @param l the RefinementListener, or null
+	 */
+	public void setRefinementListener(RefinementListener l) {
+		refinementListener = l;
+	}
+	
+	/**
+	 * @return true if progressive rendering is enabled in the RenderContext (see renderPreview() and RenderLoop)
+	 */
+	public boolean isProgressive() {
+		return renderContext.progressive == RenderContext.PROGRESSIVE_ENABLED;
+	}
+	
+	/**
+	 * Render a coarse preview of the frame (progressive rendering): the scene is rendered at a lower resolution (pixels per unit and pixel
+	 * dimensions divided by the progressive scale of the RenderContext) with cheap settings: no shadows, plain shading, single sample,
+	 * forward shading and no overlays. The full quality frame is rendered by render().
+	 */
+	public void renderPreview() {
+		int scale = Math.max(2, renderContext.progressiveScale);
+		
+		// Cheap settings, from the current RenderContext (it may have changed since the last preview)
+		RenderContext cheap = new RenderContext(renderContext);
+		if (cheap.renderingType == RenderContext.RENDERING_TYPE_INTERPOLATE) cheap.renderingType = RenderContext.RENDERING_TYPE_PLAIN;
+		cheap.shadowing = RenderContext.SHADOWING_DISABLED;
+		cheap.renderingLines = RenderContext.RENDERING_LINES_DISABLED;
+		cheap.multisampling = RenderContext.MULTISAMPLING_DISABLED;
+		cheap.deferredShading = RenderContext.DEFERRED_SHADING_DISABLED;
+		cheap.depthPrepass = RenderContext.DEPTH_PREPASS_DISABLED;
+		cheap.displayLandmark = RenderContext.DISPLAY_LANDMARK_DISABLED;
+		cheap.displayNormals = RenderContext.DISPLAY_NORMALS_DISABLED;
+		cheap.displayLight = RenderContext.DISPLAY_LIGHT_VECTORS_DISABLED;
+		cheap.progressive = RenderContext.PROGRESSIVE_DISABLED;
+		renderScaled(1.0f/scale, cheap, LEVEL_PREVIEW);
+	}
+	
+	/**
+	 * Render the frame at a reduced resolution with the settings of the RenderContext (dynamic resolution, see ResolutionGovernor).
+	 * @param resolution the resolution factor in ]0, 1], the full frame being rendered by render() from 1
+	 */
+	public void renderAtResolution(float resolution) {
+		if (resolution >= 1) {
+			render();
+			return;
+		}
+		RenderContext full = new RenderContext(renderContext);
+		full.progressive = RenderContext.PROGRESSIVE_DISABLED;
+		renderScaled(resolution, full, LEVEL_FULL);
+	}
+	
+	/**
+	 * Render the scene at a reduced resolution with a RenderEngine of this resolution (created at first use) into its own OffscreenView,
+	 * then upscale it (nearest pixel) into the GUIView and publish it
+	 * @param resolution the resolution factor in ]0, 1[
+	 * @param ctx the RenderContext of this rendering
+	 * @param level the refinement level (LEVEL_PREVIEW or LEVEL_FULL), frames of LEVEL_FULL are also given to the ImageSequenceWriter
+	 */
+	protected void renderScaled(float resolution, RenderContext ctx, int level) {
+		int key = Math.round(resolution * 100);
+		RenderEngine engine = scaledEngines.get(key);
+		
+		// Create the scaled engine or recreate it if the pixel dimensions or pixels per unit of the PerspectiveContext have changed
+		float scale = 1/resolution;
+		if (engine == null
+				|| engine.perspectiveContext.getPixelWidth() != Math.max(1, (int)(perspectiveContext.getPixelWidth()/scale))
+				|| engine.perspectiveContext.getPixelHeight() != Math.max(1, (int)(perspectiveContext.getPixelHeight()/scale))
+				|| engine.perspectiveContext.getPPU() != Math.max(1, (int)(perspectiveContext.getPPU()/scale))) {
+			PerspectiveContext scaledContext = new PerspectiveContext(perspectiveContext, scale);
+			engine = new RenderEngine(world, lighting, camera, ctx, scaledContext);
+			engine.setView(new OffscreenView(scaledContext));
+			scaledEngines.put(key, engine);
+			if (Tracer.info) Tracer.traceInfo(this.getClass(), "Scaled engine created. Resolution: " + key + "%, pixels: " + scaledContext.getPixelWidth() + "x" + scaledContext.getPixelHeight());
+		}
+		engine.renderContext = ctx;
+		engine.render();
+		
+		// Upscale into the GUIView: each pixel takes the nearest pixel of the scaled view. Screen coordinates being proportional to the pixel
+		// half dimensions of each PerspectiveContext, pixel x of the GUIView is at x * (scaled half width / half width) in the scaled view.
+		OffscreenView view = (OffscreenView)engine.gUIView;
+		int[] src = view.getPixelBuffer();
+		int width = gUIView.getViewWidth();
+		int height = gUIView.getViewHeight();
+		float rx = (float)(view.getViewWidth()/2) / (width/2);
+		float ry = (float)(view.getViewHeight()/2) / (height/2);
+		int background = world.getBackgroundColor().getRGB();
+		if (scaledRow == null || scaledRow.length != width) {
+			scaledRow = new int[width];
+			scaledColumns = new int[width];
+		}
+		// Column c of the GUIView is at x = c - width/2 and row r at y = height/2 - r (see GUIView.getPixelIndex())
+		for (int c = 0; c < width; c++) {
+			scaledColumns[c] = Math.round((c - width/2) * rx);
+		}
+		gUIView.setBackgroundColor(world.getBackgroundColor());
+		gUIView.initView();
+		for (int r = 0; r < height; r++) {
+			int y = height/2 - r;
+			int sy = Math.round(y * ry);
+			for (int x = 0; x < width; x++) {
+				int i = view.getPixelIndex(scaledColumns[x], sy);
+				scaledRow[x] = i >= 0 ? src[i] : background;
+			}
+			gUIView.drawSpan(-width/2, y, width, scaledRow, 0);
+		}
+		
+		if (level == LEVEL_FULL && imageWriter != null) {
+			imageWriter.write(gUIView);
+		}
+		gUIView.renderView();
+		if (refinementListener != null) refinementListener.refined(level, resolution);
+	}
+	
 	/**
 	 * This method will do the computation. No args. But it now returns (new feature) the zBuffer MapView used for rendering / rasterization.
 	 * 
@@ -190,19 +361,96 @@ public class RenderEngine {
 		nbt_out = 0;
 		nbt_bf = 0;
 		nbe = 0;
+		clipper.init();
 		
-		// Geometry calculation : calculate World coordinates for all vertices of the World
-		world.worldProject(); // To be done before potential Light's cameras calculation (need full world geometry available to calculate bounding boxes etc.)
+		// View frustum of the frame : subtrees of Elements outside of it are culled from their bounding box (not available in orthographic perspective)
+		frustum = renderContext.frustumCulling == RenderContext.FRUSTUM_CULLING_ENABLED ? Frustum.fromEye(perspectiveContext.getPerspective(), camera) : null;
+		
+		// Top level Elements of the frame : with the octree of the World, only the ones in the view frustum, without scanning the others
+		ArrayList<Element> elements = world.getElements();
+		Octree octree = world.getOctree();
+		if (octree != null && frustum != null) elements = octree.query(frustum, frameElements);
+		nbe_octree = world.getElements().size() - elements.size();
+		
+		// Level of detail of each Element from its size on the screen, before the shadow maps so that they use the same tessellation
+		nbe_lod = 0;
+		boolean lod = renderContext.levelOfDetail == RenderContext.LEVEL_OF_DETAIL_ENABLED;
+		for (int i=0; i<elements.size(); i++) {
+			selectLevelsOfDetail(elements.get(i), camera.getMatrix(), lod);
+		}
+		
+		// Geometry calculation : calculate World coordinates for all vertices of the World, except the ones of the sub-Elements outside the view frustum
+		// To be done before potential Light's cameras calculation (need full world geometry available to calculate bounding boxes etc.)
+		// With shadowing, all top level Elements are needed by the box of the lights (World.getMaxDistance())
+		ArrayList<Element> projected = renderContext.shadowing == RenderContext.SHADOWING_ENABLED ? world.getElements() : elements;
+		for (int i=0; i<projected.size(); i++) {
+			worldProject(projected.get(i));
+		}
 		
 		// Initialize backbuffer in the GUIView
 		gUIView.setBackgroundColor(world.getBackgroundColor());
 		gUIView.initView();
 		
+		// Triangle traversal algorithm of the Rasterizer (scan line or half-space) and kernel of the scan lines (scalar or vector)
+		rasterizer.setTriangleTraversal(renderContext.triangleTraversal);
+		rasterizer.setSpanKernel(renderContext.spanKernel);
+		rasterizer.initPixelBuffer(); // The back buffer changes at each initView()
+		rasterizer.initFrameStats();
+		
+		// Multi-sample anti-aliasing : same fall back than deferred shading (the resolve would overwrite lines and normals drawn before it),
+		// and not combined with deferred shading that stores a single fragment per pixel. Set before the zBuffer initialization as the
+		// zBuffer then holds the depth of each sample
+		multisampled = renderContext.multisampling == RenderContext.MULTISAMPLING_ENABLED
+				&& renderContext.deferredShading != RenderContext.DEFERRED_SHADING_ENABLED
+				&& renderContext.renderingType != RenderContext.RENDERING_TYPE_LINE
+				&& renderContext.renderingLines != RenderContext.RENDERING_LINES_ENABLED
+				&& renderContext.displayNormals != RenderContext.DISPLAY_NORMALS_ENABLED;
+		if (multisampled) {
+			// Create the MultisampleBuffer or recreate it if the number of samples has changed
+			if (multisampleBuffer == null || multisampleBuffer.getSamples() != MultisampleBuffer.getSupportedSamples(renderContext.multisampleCount)) {
+				multisampleBuffer = new MultisampleBuffer(rasterizer, renderContext.multisampleCount);
+			}
+			rasterizer.setMultisampleBuffer(multisampleBuffer);
+		} else {
+			rasterizer.setMultisampleBuffer(null);
+		}
+		
 		// zBuffer initialization (if applicable)
 		MapView zBuffer = null;
 		if (renderContext.renderingType != RenderContext.RENDERING_TYPE_LINE) {
 			zBuffer = rasterizer.initZBuffer();
 		}
+		if (multisampled) multisampleBuffer.init(world.getBackgroundColor());
+		
+		// Tiled rasterization : lines and normals superimposed to triangles are drawn immediately while triangles are rasterized at the end
+		// of the main loop, so fall back to sequential rasterization in these cases to keep the same result
+		tiled = renderContext.rasterization == RenderContext.RASTERIZATION_TILED
+				&& renderContext.renderingType != RenderContext.RENDERING_TYPE_LINE
+				&& renderContext.renderingLines != RenderContext.RENDERING_LINES_ENABLED
+				&& renderContext.displayNormals != RenderContext.DISPLAY_NORMALS_ENABLED;
+		if (tiled) {
+			// Create the TileRasterizer or recreate it if its settings or the dimensions of the view have changed
+			if (tileRasterizer == null || !tileRasterizer.matches(renderContext.tileSize, renderContext.rasterizationThreads)) {
+				if (tileRasterizer != null) tileRasterizer.shutdown();
+				tileRasterizer = new TileRasterizer(rasterizer, renderContext.tileSize, renderContext.rasterizationThreads);
+			}
+			tileRasterizer.init();
+		}
+		
+		// Deferred shading : same fall back than tiled rasterization, as the lighting pass would overwrite lines and normals drawn before it
+		deferred = renderContext.deferredShading == RenderContext.DEFERRED_SHADING_ENABLED
+				&& renderContext.renderingType != RenderContext.RENDERING_TYPE_LINE
+				&& renderContext.renderingLines != RenderContext.RENDERING_LINES_ENABLED
+				&& renderContext.displayNormals != RenderContext.DISPLAY_NORMALS_ENABLED;
+		if (deferred) {
+			// Create the GBuffer or recreate it if the number of threads has changed
+			if (gBuffer == null || (renderContext.rasterizationThreads > 0 && gBuffer.getPoolSize() != renderContext.rasterizationThreads)) {
+				if (gBuffer != null) gBuffer.shutdown();
+				gBuffer = new GBuffer(rasterizer, renderContext.rasterizationThreads);
+			}
+			gBuffer.init(lighting.hasShadowing() ? lighting.getShadowingLights().size() : 0);
+			rasterizer.setGBuffer(gBuffer);
+		}
 		
 		// Shadowing initialization and Shadow map(s) calculation
 		if (renderContext.shadowing == RenderContext.SHADOWING_ENABLED) {
@@ -250,22 +498,78 @@ public class RenderEngine {
 			}
 		}
 
-		// MAIN LOOP : for each element of the world
-		for (int i=0; i<world.getElements().size(); i++) {			
-			Element e = world.getElement(i);
-			//render(e, null, world.getColor()); // First model Matrix is the IDENTITY Matrix (to allow recursive calls)
-			render(e, world.getColor()); // First model Matrix is the IDENTITY Matrix (to allow recursive calls)
-		}
+		// Render queue : flatten the Elements hierarchy (with inherited colors) and sort it front-to-back if enabled so that the depth
+		// test rejects the pixels of the Elements behind the nearest ones before shading them
+		// Subtrees of Elements outside the view frustum are culled
+		renderQueue.build(elements, world.getColor(), camera.getMatrix(), renderContext.elementOrdering == RenderContext.ELEMENT_ORDERING_FRONT_TO_BACK, frustum);
 		
-		if (Tracer.info) Tracer.traceInfo(this.getClass(), "Rendered: "+nbe+" Element(s) and "+nbt+" triangles. Triangles in GUIView Frustum: "+nbt_in+", Out: "+nbt_out+", Back face: "+nbt_bf);
+		// Occlusion culling : Elements of the queue hidden behind the occluders are marked and skipped (frustum perspective only, see OcclusionCuller)
+		occlusion = renderContext.occlusionCulling == RenderContext.OCCLUSION_CULLING_ENABLED && perspectiveContext.getPerspectiveType() == PerspectiveContext.PERSPECTIVE_TYPE_FRUSTUM;
+		if (occlusion) {
+			if (occlusionCuller == null) occlusionCuller = new OcclusionCuller(camera, perspectiveContext);
+			occlusionCuller.cull(renderQueue);
+		}
 
-		// Display the landmarks if enabled (RenderContext)
-		if (renderContext.getDisplayLandmark() == RenderContext.DISPLAY_LANDMARK_ENABLED) {
-			if (renderContext.getRenderingType() == RenderContext.RENDERING_TYPE_INTERPOLATE) {
-				displayLandMarkLinesInterpolate();							
-			} else { // Default
-				displayLandMarkLines();			
+		// DEPTH PREPASS : rasterize all elements in the zBuffer only (same simplified path than shadow maps), then draw in the main loop
+		// only the fragments having the depth of the zBuffer, i.e. the visible ones
+		prepass = renderContext.depthPrepass == RenderContext.DEPTH_PREPASS_ENABLED && renderContext.renderingType != RenderContext.RENDERING_TYPE_LINE;
+		if (prepass) {
+			depthOnly = true;
+			for (int i=0; i<renderQueue.size(); i++) {
+				RenderQueue.Entry entry = renderQueue.get(i);
+				if (!entry.occluded) renderElement(entry.element, entry.color);
+			}
+			depthOnly = false;
+			if (tiled) {
+				tileRasterizer.rasterizeTiles();
+				tileRasterizer.init();
 			}
+			rasterizer.setDepthTestEqual(true);
+			
+			// Triangles stats are counted by the main loop
+			nbt = 0;
+			nbt_in = 0;
+			nbt_out = 0;
+			nbt_bf = 0;
+			nbe = 0;
+		}
+
+		// MAIN LOOP : for each element of the render queue (sub-elements included, with their inherited color)
+		for (int i=0; i<renderQueue.size(); i++) {
+			RenderQueue.Entry entry = renderQueue.get(i);
+			if (!entry.occluded) renderElement(entry.element, entry.color);
+		}
+		
+		// Tiled rasterization : all triangles are binned, rasterize the tiles in parallel. Then back to sequential rasterization for landmarks
+		if (tiled) {
+			tileRasterizer.rasterizeTiles();
+			tiled = false;
+		}
+		rasterizer.setDepthTestEqual(false);
+		
+		// Deferred shading : all visible fragments are in the GBuffer, lighting pass to shade each of them once
+		if (deferred) {
+			rasterizer.setGBuffer(null);
+			gBuffer.shade();
+		}
+		
+		if (Tracer.info) Tracer.traceInfo(this.getClass(), "Rendered: "+nbe+" Element(s) and "+nbt+" triangles. Skipped from octree: "+nbe_octree+", subtrees culled: "+renderQueue.getCulled()+", occluded Elements: "+(occlusion ? occlusionCuller.getCulled() : 0)+", coarser level of detail: "+nbe_lod+". Triangles in GUIView Frustum: "+nbt_in+", Out: "+nbt_out+", Back face: "+nbt_bf);
+
+		// Display the landmarks if enabled (RenderContext). Arrows are rasterized (so before the resolve of the samples) and lines are drawn
+		// directly in the GUIView (so after the resolve)
+		boolean landmark = renderContext.getDisplayLandmark() == RenderContext.DISPLAY_LANDMARK_ENABLED;
+		boolean arrows = renderContext.getRenderingType() == RenderContext.RENDERING_TYPE_INTERPOLATE;
+		if (landmark && arrows) {
+			displayLandMarkLinesInterpolate();
+		}
+		
+		// Multi-sample anti-aliasing : average the samples of each pixel into the GUIView
+		if (multisampled) {
+			multisampleBuffer.resolve();
+		}
+		
+		if (landmark && !arrows) { // Default
+			displayLandMarkLines();
 		}
 
 		// Display the Light vectors if enabled (RenderContext)
@@ -273,8 +577,14 @@ public class RenderEngine {
 			displayLight();
 		}
 
+		// Queue the frame to be written (copied before the swap, the back buffer being recycled)
+		if (imageWriter != null) {
+			imageWriter.write(gUIView);
+		}
+
 		// Switch back and front buffers and request GUI repaint
 		gUIView.renderView();
+		if (refinementListener != null) refinementListener.refined(LEVEL_FULL, 1);
 		
 		long end_millisec = System.currentTimeMillis();
 		
@@ -293,14 +603,96 @@ public class RenderEngine {
 	//public void render(Element e, Matrix4 matrix, Color c) {
 	public void render(Element e, Color c) {
 		
-		if (Tracer.info) Tracer.traceInfo(this.getClass(), "Rendering Element: "+e.getName());			
-		// Count Element stats
-		nbe++;
+		// Whole subtree outside the view frustum of the current frame
+		if (frustum != null && e.getSubtreeBounds() != null && !frustum.intersects(e.getSubtreeBounds())) return;
 		
 		// Take color of the element else take super-element color passed in parameters
 		Color col = c;
 		if (e.getColor() != null) col = e.getColor();
 		
+		renderElement(e, col);
+	
+		// Do this recursively for all SubElements
+		if (!e.isLeaf()) {
+			if (Tracer.info) Tracer.traceInfo(this.getClass(), "Element #"+nbe+" has "+e.getSubElements().size()+" sub element(s).");
+			for (int i=0; i<e.getSubElements().size(); i++) {
+				// Recursive call
+				//render(e.getSubElements().get(i), model, col);
+				render(e.getSubElements().get(i), col);
+			}
+		} else { // Leaf
+			if (Tracer.info) Tracer.traceInfo(this.getClass(), "Element #"+e.getName()+" has no sub elements.");			
+		}
+	}
+	
+	/**
+	 * Select the level of detail of an Element and its sub-Elements from the projected radius of their bounding sphere in pixels.
+	 * Sub-Elements outside the view frustum keep their level.
+	 * @param e the Element
+	 * @param view the camera matrix
+	 * @param enabled false to use the full tessellation of all Elements
+	 */
+	protected void selectLevelsOfDetail(Element e, Matrix4 view, boolean enabled) {
+		if (e.getParent() != null && frustum != null && e.getSubtreeBounds() != null && !frustum.intersects(e.getSubtreeBounds())) return;
+		if (e.getNbLevelsOfDetail() > 1) {
+			if (enabled) {
+				BoundingBox4 box = e.getWorldBounds();
+				if (box != null) {
+					float dx = box.getWidth(), dy = box.getHeight(), dz = box.getDepth();
+					float radius = (float)Math.sqrt(dx*dx + dy*dy + dz*dz)/2;
+					Perspective p = perspectiveContext.getPerspective();
+					// Size of the near plane (frustum) or of the view (orthographic) in pixels
+					float pixels = perspectiveContext.getPixelHalfHeight() / (p.getHeight()/2);
+					if (perspectiveContext.getPerspectiveType() == PerspectiveContext.PERSPECTIVE_TYPE_FRUSTUM) {
+						// The camera looks towards -Z in view coordinates
+						Vector4 center = new Vector4((box.getMinX()+box.getMaxX())/2, (box.getMinY()+box.getMaxY())/2, (box.getMinZ()+box.getMaxZ())/2, 1);
+						float depth = -view.times(center).getZ();
+						radius = depth > radius ? radius * p.getDist() / depth * pixels : Float.MAX_VALUE;
+					} else {
+						radius = radius * pixels;
+					}
+					e.selectLevelOfDetail(radius);
+				}
+			} else {
+				e.setLevelOfDetail(0);
+			}
+			if (e.getLevelOfDetail() > 0) nbe_lod++;
+		}
+		if (!e.isLeaf()) {
+			for (int i=0; i<e.getSubElements().size(); i++) {
+				selectLevelsOfDetail(e.getSubElements().get(i), view, enabled);
+			}
+		}
+	}
+
+	/**
+	 * Calculate the World coordinates of the vertices of an Element and its sub-Elements. The sub-Elements outside the view frustum are
+	 * skipped without touching their vertices, as they are culled from the rendering. Top level Elements are always transformed, as
+	 * World.getMaxDistance() uses their World coordinates for the shadow maps (render() only skips the ones outside the view frustum
+	 * from the octree of the World when shadowing is disabled).
+	 * @param e the Element
+	 */
+	protected void worldProject(Element e) {
+		if (e.getParent() != null && frustum != null && e.getSubtreeBounds() != null && !frustum.intersects(e.getSubtreeBounds())) return;
+		e.transformVertices();
+		if (!e.isLeaf()) {
+			for (int i=0; i<e.getSubElements().size(); i++) {
+				worldProject(e.getSubElements().get(i));
+			}
+		}
+	}
+
+	/**
+	 * Render the triangles of a single Element, without its sub-elements
+	 * @param e the Element to render
+	 * @param col the color of the Element (its own color or the one inherited from its super-elements)
+	 */
+	protected void renderElement(Element e, Color col) {
+		
+		if (Tracer.info) Tracer.traceInfo(this.getClass(), "Rendering Element: "+e.getName());			
+		// Count Element stats
+		nbe++;
+		
 		// Update ModelViewProjection matrix for this Element (Element <-> Model) by combining the one from this Element
 		// with the previous one for recursive calls (initialized to IDENTITY at first call)
 //		Matrix4 model = null;
@@ -325,18 +717,6 @@ public class RenderEngine {
 			// Count Triangles stats (total, all triangles whatever in or out gUIView frustum)
 			nbt++;
 		}
-	
-		// Do this recursively for all SubElements
-		if (!e.isLeaf()) {
-			if (Tracer.info) Tracer.traceInfo(this.getClass(), "Element #"+nbe+" has "+e.getSubElements().size()+" sub element(s).");
-			for (int i=0; i<e.getSubElements().size(); i++) {
-				// Recursive call
-				//render(e.getSubElements().get(i), model, col);
-				render(e.getSubElements().get(i), col);
-			}
-		} else { // Leaf
-			if (Tracer.info) Tracer.traceInfo(this.getClass(), "Element #"+e.getName()+" has no sub elements.");			
-		}
 	}
 	
 	/**
@@ -365,10 +745,11 @@ public class RenderEngine {
 		// Back Face Culling if defined in RenderContext AND the Element is Closed
 		boolean backfaceCulling = (renderContext.backfaceCulling == RenderContext.BACKFACE_CULLING_ENABLED) && isClosedElement;
 		
-		// Scissor test for the triangle
+		// Clipping of the triangle against the GUIView Frustum
 		// If triangle is totally or partially in the GUIView Frustum
-		// Then renderContext its fragments in the GUIView
-		if (t.isInViewFrustum()) { // Render triangle
+		// Then renderContext its fragments in the GUIView (sub-triangles if clipped)
+		clipping = clipper.clip(t);
+		if (clipping != Clipper.OUTSIDE) { // Render triangle
 			
 			// If triangle normal then transform triangle normal
 			if (renderContext.renderingType != RenderContext.RENDERING_TYPE_INTERPOLATE || t.isTriangleNormal() || backfaceCulling) {
@@ -404,16 +785,16 @@ public class RenderEngine {
 					case RenderContext.RENDERING_TYPE_PLAIN:
 						// Draw triangles with shading full face, no interpolation.
 						// This forces the mode to be normal at Triangle level even if the normals are at Vertex level
-						rasterizer.rasterizeTriangle(t, color, se, sc, true, true, renderContext.shadowing == 1 ? true : false, false);
+						rasterizeTriangle(t, color, se, sc, true, true, renderContext.shadowing == 1 ? true : false);
 						//rasterizer.rasterizeTriangle(t, color, se, sc, true, true, renderContext.shadowing == 1 ? true : false, true); // TESTING RASTERIZATION OF SHADOW MAP - TO BE REMOVED
 						break;
 					case RenderContext.RENDERING_TYPE_INTERPOLATE:
 						// Draw triangles with shading and interpolation on the triangle face -> Gouraud's Shading
 						if (renderContext.textureProcessing == RenderContext.TEXTURE_PROCESSING_ENABLED) {
-							rasterizer.rasterizeTriangle(t, color, se, sc, true, true, renderContext.shadowing == 1 ? true : false, false);
+							rasterizeTriangle(t, color, se, sc, true, true, renderContext.shadowing == 1 ? true : false);
 							//rasterizer.rasterizeTriangle(t, color, se, sc, true, true, renderContext.shadowing == 1 ? true : false, true); // TESTING RASTERIZATION OF SHADOW MAP - TO BE REMOVED
 						} else { // No Texture
-							rasterizer.rasterizeTriangle(t, color, se, sc, true, false, renderContext.shadowing == 1 ? true : false, false);
+							rasterizeTriangle(t, color, se, sc, true, false, renderContext.shadowing == 1 ? true : false);
 							//rasterizer.rasterizeTriangle(t, color, se, sc, true, false, renderContext.shadowing == 1 ? true : false, true); // TESTING RASTERIZATION OF SHADOW MAP - TO BE REMOVED
 						}
 						break;
@@ -422,13 +803,13 @@ public class RenderEngine {
 						break;
 					}
 
-					// Superimpose lines when enabled in the previous modes
-					if (renderContext.renderingLines == RenderContext.RENDERING_LINES_ENABLED && renderContext.renderingType != RenderContext.RENDERING_TYPE_LINE) {
+					// Superimpose lines when enabled in the previous modes (not in depth prepass)
+					if (renderContext.renderingLines == RenderContext.RENDERING_LINES_ENABLED && renderContext.renderingType != RenderContext.RENDERING_TYPE_LINE && !depthOnly) {
 						rasterizer.drawTriangleLines(t, color);				
 					}
 
-					// If DISPLAY_NORMALS is activated then renderContext normals
-					if (renderContext.displayNormals == RenderContext.DISPLAY_NORMALS_ENABLED) {
+					// If DISPLAY_NORMALS is activated then renderContext normals (not in depth prepass)
+					if (renderContext.displayNormals == RenderContext.DISPLAY_NORMALS_ENABLED && !depthOnly) {
 						displayNormalVectors(t);
 					}
 					// Count Triangles stats (in gUIView)
@@ -443,6 +824,39 @@ public class RenderEngine {
 		}
 	}
 		
+	/**
+	 * Rasterize a triangle, or its sub-triangles if it has been clipped (they share the normal of the triangle)
+	 */
+	protected void rasterizeTriangle(Triangle t, Color color, float se, Color sc, boolean interpolate, boolean texture, boolean shadows) {
+		if (clipping == Clipper.CLIPPED) {
+			ArrayList<Triangle> triangles = clipper.getTriangles();
+			for (int i=0; i<triangles.size(); i++) {
+				triangles.get(i).setWorldNormal(t.getWorldNormal());
+				submitTriangle(triangles.get(i), color, se, sc, interpolate, texture, shadows);
+			}
+		} else {
+			submitTriangle(t, color, se, sc, interpolate, texture, shadows);
+		}
+	}
+		
+	/**
+	 * Delegate the rasterization of a triangle either to the Rasterizer or to the TileRasterizer (binning) if tiled rasterization is active.
+	 * In depth prepass, the triangle is rasterized in the zBuffer only (simplified shadow map path)
+	 */
+	protected void submitTriangle(Triangle t, Color color, float se, Color sc, boolean interpolate, boolean texture, boolean shadows) {
+		if (depthOnly) {
+			if (tiled) {
+				tileRasterizer.rasterizeTriangle(t, null, 0, null, false, false, false, true);
+			} else {
+				rasterizer.rasterizeTriangle(t, null, 0, null, false, false, false, true);
+			}
+		} else if (tiled) {
+			tileRasterizer.rasterizeTriangle(t, color, se, sc, interpolate, texture, shadows, false);
+		} else {
+			rasterizer.rasterizeTriangle(t, color, se, sc, interpolate, texture, shadows, false);
+		}
+	}
+	
 	/**
 	 * Is true if triangle is "back face" with regards to its normal, else false
 	 * 
@@ -637,7 +1051,8 @@ public class RenderEngine {
 	}
 	
 	public String renderStats() {		
-		return "Render Engine - Processed: elements: "+nbe+", triangles: "+nbt+". Triangles: displayed: "+nbt_in+", not displayed: "+nbt_out+", backfacing: "+nbt_bf+"\n"+rasterizer.renderStats();
+		return "Render Engine - Processed: elements: "+nbe+", triangles: "+nbt+", skipped from octree: "+nbe_octree+", subtrees culled: "+renderQueue.getCulled()+", coarser level of detail: "+nbe_lod+". Triangles: displayed: "+nbt_in+", not displayed: "+nbt_out+", backfacing: "+nbt_bf+"\n"+clipper.renderStats()+"\n"+(world.getOctree() != null ? world.getOctree().renderStats()+"\n" : "")+(occlusion ? occlusionCuller.renderStats()+"\n" : "")+rasterizer.renderStats() + (tileRasterizer != null ? "\n" + tileRasterizer.renderStats() : "") + (deferred ? "\n" + gBuffer.renderStats() : "") + (multisampled ? "\n" + multisampleBuffer.renderStats() : "") + (imageWriter != null ? "\n" + imageWriter.renderStats() : "")
+				+ (prepass ? "\nDepth prepass - Depth pixels written: " + rasterizer.getFrameDepthPixels() + ", fragments shaded: " + rasterizer.getFrameFragmentPixels() + ", shaded pixels saved: " + (rasterizer.getFrameDepthPixels() - rasterizer.getFrameFragmentPixels()) : "");
 
 	}
 
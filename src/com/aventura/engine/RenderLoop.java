@@ -0,0 +1,211 @@
+package com.aventura.engine;
+
+import java.util.ArrayList;
+
+import com.aventura.tools.tracing.Tracer;
+
+/**
+ * ------------------------------------------------------------------------------
+ * MIT License
+ *
+ * Copyright (c) 2016-2026 Olivier BARRY
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ------------------------------------------------------------------------------
+ *
+ * This class runs the rendering of a RenderEngine on its own thread, so that the GUI thread (e.g. Swing event dispatch thread) is
+ * never blocked by the rendering of a frame.
+ *
+ * Input handlers do not render: they post the changes of the scene (camera, transformations, RenderContext...) with post(), or just
+ * request a new frame with requestRender(). The changes are applied by the render thread between 2 frames, so the World is never
+ * modified while being rendered. All the requests received while a frame is rendered are coalesced into a single new frame: the
+ * intermediate states are applied but never rendered, so the frames of fast inputs (e.g. mouse drag) do not queue up.
+ * A frame in progress is not interrupted, the RenderEngine having no safe point to stop a frame, it is published as usual.
+ *
+ * Frames are published by the RenderEngine itself (GUIView.renderView()), e.g. SwingView swaps its buffers and repaints its component.
+ *
+ * With progressive rendering (see RenderContext), each frame is first rendered as a coarse preview (RenderEngine.renderPreview()), and
+ * the full quality frame is rendered only when no new request is received during REFINE_DELAY milliseconds (input stopped).
+ *
+ * With a ResolutionGovernor (see setGovernor()), the frames are rendered by the governor, at the resolution holding its target frame time.
+ *
+ *     GUI thread:    post(update) / requestRender()  -->  [ pending updates, dirty flag ]
+ *     Render thread: wait dirty --> apply all pending updates --> [renderPreview() --> wait REFINE_DELAY] --> render() --> renderView()
+ *
+ * @author Olivier BARRY
+ * @since October 2026
+ */
+
+public class RenderLoop implements Runnable {
+
+	// Delay without request after a preview before rendering the full quality frame (progressive rendering)
+	public static final long REFINE_DELAY = 150;
+
+	protected RenderEngine renderer;
+	protected ResolutionGovernor governor = null;
+	protected Thread thread;
+
+	// Pending requests, guarded by this
+	protected ArrayList<Runnable> updates = new ArrayList<Runnable>();
+	protected boolean dirty = false;
+	protected boolean running = false;
+
+	// Statistics
+	protected int requests = 0;
+	protected int cycles = 0; // Batches of requests taken by the render thread
+	protected int frames = 0;
+	protected int previews = 0;
+	protected int updates_applied = 0;
+	protected long last_frame_nanos = 0;
+
+	/**
+	 * Create a RenderLoop for a RenderEngine. The loop is started with start().
+	 * @param renderer the RenderEngine, with its GUIView already set
+	 */
+	public RenderLoop(RenderEngine renderer) {
+		this.renderer = renderer;
+	}
+
+	/**
+	 * Render the frames through a ResolutionGovernor (dynamic resolution)
+	 * @param governor the ResolutionGovernor of the RenderEngine of this loop, or null to render the frames at full resolution
+	 */
+	public synchronized void setGovernor(ResolutionGovernor governor) {
+		this.governor = governor;
+	}
+
+	/**
+	 * Start the render thread (daemon thread so it does not prevent the application to exit)
+	 */
+	public synchronized void start() {
+		if (running) return;
+		running = true;
+		thread = new Thread(this, "RenderLoop");
+		thread.setDaemon(true);
+		thread.start();
+		if (Tracer.info) Tracer.traceInfo(this.getClass(), "Render loop started");
+	}
+
+	/**
+	 * Request a new frame, without any change of the scene (e.g. after a change done before the start of the loop)
+	 */
+	public synchronized void requestRender() {
+		requests++;
+		dirty = true;
+		notifyAll();
+	}
+
+	/**
+	 * Post a change of the scene to be applied by the render thread before the next frame, and request a new frame
+	 * @param update the change of the scene (camera, transformations, RenderContext...)
+	 */
+	public synchronized void post(Runnable update) {
+		updates.add(update);
+		requestRender();
+	}
+
+	/**
+	 * Stop the render thread after the current frame, pending requests are dropped
+	 */
+	public void stop() {
+		Thread t;
+		synchronized (this) {
+			if (!running) return;
+			running = false;
+			notifyAll();
+			t = thread;
+		}
+		try {
+			t.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (Tracer.stats) Tracer.traceStats(this.getClass(), renderStats());
+		if (Tracer.stats && governor != null) Tracer.traceStats(this.getClass(), governor.renderStats());
+	}
+
+	/**
+	 * Loop of the render thread: wait for a request, apply all pending updates and render a single frame
+	 */
+	@Override
+	public void run() {
+		ArrayList<Runnable> batch = new ArrayList<Runnable>();
+		while (true) {
+			synchronized (this) {
+				while (running && !dirty) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						running = false;
+					}
+				}
+				if (!running) return;
+				// Take all pending requests: they are coalesced into this frame
+				ArrayList<Runnable> swap = batch;
+				batch = updates;
+				updates = swap;
+				dirty = false;
+				cycles++;
+			}
+
+			for (int i=0; i<batch.size(); i++) {
+				batch.get(i).run();
+			}
+			updates_applied += batch.size();
+			batch.clear();
+
+			if (renderer.isProgressive()) {
+				renderer.renderPreview();
+				previews++;
+				// Still moving if a new request arrives before the end of the delay: render its preview instead of the full quality frame
+				synchronized (this) {
+					long end = System.currentTimeMillis() + REFINE_DELAY;
+					long remaining = REFINE_DELAY;
+					while (running && !dirty && remaining > 0) {
+						try {
+							wait(remaining);
+						} catch (InterruptedException e) {
+							running = false;
+						}
+						remaining = end - System.currentTimeMillis();
+					}
+					if (!running) return;
+					if (dirty) continue;
+				}
+			}
+
+			long start = System.nanoTime();
+			ResolutionGovernor g;
+			synchronized (this) {
+				g = governor;
+			}
+			if (g != null) {
+				g.render();
+			} else {
+				renderer.render();
+			}
+			last_frame_nanos = System.nanoTime() - start;
+			frames++;
+		}
+	}
+
+	public synchronized String renderStats() {
+		return "Render loop - Requests: " + requests + ", frames rendered: " + frames + ", previews: " + previews + ", requests coalesced: " + (requests - cycles) + ", updates applied: " + updates_applied + ". Last frame: " + last_frame_nanos/1000000 + " ms";
+	}
+}
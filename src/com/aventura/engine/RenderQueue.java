@@ -0,0 +1,211 @@
+package com.aventura.engine;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+import com.aventura.math.tools.BoundingBox4;
+import com.aventura.math.vector.Matrix4;
+import com.aventura.math.vector.Vector4;
+import com.aventura.model.world.Element;
+import com.aventura.model.world.World;
+import com.aventura.tools.tracing.Tracer;
+
+/**
+ * ------------------------------------------------------------------------------
+ * MIT License
+ *
+ * Copyright (c) 2016-2026 Olivier BARRY
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ------------------------------------------------------------------------------
+ *
+ * The RenderQueue gives the order in which the Elements of the World are submitted to the Rasterizer.
+ *
+ * The Element hierarchy is flattened into a list of entries, each entry keeping the Element, the color inherited from its
+ * super-Elements (same rule than the recursive rendering: the color of the Element if any, else the one of its parent) and the
+ * depth of its bounding sphere center in the camera view. Elements without triangles (pure containers) have no entry.
+ *
+ * When sorted front-to-back, the nearest Elements are rasterized first so the depth test rejects the pixels of the Elements
+ * behind them before any shading. Entries at the same depth keep the order of the World (stable sort).
+ *
+ * With a Frustum, the subtree of an Element whose bounding box (Element.getSubtreeBounds(), cached by the Element) is outside the
+ * view frustum is not added at all: none of its vertices will be transformed nor its triangles tested.
+ *
+ * The queue is rebuilt at each frame. Bounding spheres are calculated from the World bounding box of each Element (cached by the Element
+ * until its vertices or transformations change).
+ *
+ * @author Olivier BARRY
+ * @since October 2026
+ */
+
+public class RenderQueue {
+
+	/**
+	 * An Element to render with its inherited color and its bounding sphere
+	 */
+	public static class Entry {
+		public Element element;
+		public Color color;		// Color of the Element or inherited from its super-Elements
+		public Vector4 center;	// Bounding sphere center in World coordinates
+		public float radius;	// Bounding sphere radius
+		public float depth;		// Depth of the center in the camera view (distance along the view direction)
+		public boolean occluded;	// Hidden behind the occluders (see OcclusionCuller), not rendered
+
+		public Entry(Element element, Color color) {
+			this.element = element;
+			this.color = color;
+		}
+	}
+
+	// Front-to-back ordering: nearest Elements first
+	protected static final Comparator<Entry> FRONT_TO_BACK = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry e1, Entry e2) {
+			return Float.compare(e1.depth, e2.depth);
+		}
+	};
+
+	protected ArrayList<Entry> entries = new ArrayList<Entry>();
+	protected int size = 0; // Number of valid entries (entries are recycled from one frame to another)
+	protected int culled = 0; // Number of subtrees culled in the last build
+
+	public RenderQueue() {
+	}
+
+	/**
+	 * Build the queue of all Elements of the World
+	 * @param world the World, already projected in World coordinates
+	 * @param view the camera (view) matrix
+	 * @param sort true to sort the Elements front-to-back, false to keep the order of the World
+	 */
+	public void build(World world, Matrix4 view, boolean sort) {
+		build(world, view, sort, null);
+	}
+
+	/**
+	 * Build the queue of the Elements of the World in the view frustum
+	 * @param world the World, already projected in World coordinates
+	 * @param view the camera (view) matrix
+	 * @param sort true to sort the Elements front-to-back, false to keep the order of the World
+	 * @param frustum the view frustum in World coordinates, or null to add all Elements
+	 */
+	public void build(World world, Matrix4 view, boolean sort, Frustum frustum) {
+		build(world.getElements(), world.getColor(), view, sort, frustum);
+	}
+
+	/**
+	 * Build the queue of some top level Elements in the view frustum (e.g. the ones found in the octree of the World)
+	 * @param elements the top level Elements, already projected in World coordinates
+	 * @param color the color of the World
+	 * @param view the camera (view) matrix
+	 * @param sort true to sort the Elements front-to-back, false to keep the order of the list
+	 * @param frustum the view frustum in World coordinates, or null to add all Elements
+	 */
+	public void build(ArrayList<Element> elements, Color color, Matrix4 view, boolean sort, Frustum frustum) {
+		size = 0;
+		culled = 0;
+		for (int i=0; i<elements.size(); i++) {
+			add(elements.get(i), color, view, frustum);
+		}
+		if (sort) {
+			// Sort only the valid entries, recycled entries beyond size are left as is
+			Collections.sort(entries.subList(0, size), FRONT_TO_BACK);
+		}
+		if (Tracer.info) Tracer.traceInfo(this.getClass(), "Render queue built: " + size + " Element(s)" + (sort ? " sorted front-to-back" : "") + (frustum != null ? ", " + culled + " subtree(s) culled" : ""));
+	}
+
+	/**
+	 * Add an Element and recursively its sub-Elements
+	 * @param e the Element
+	 * @param c the color of the super-Element
+	 * @param view the camera (view) matrix
+	 * @param frustum the view frustum, or null
+	 */
+	protected void add(Element e, Color c, Matrix4 view, Frustum frustum) {
+
+		// Whole subtree outside the view frustum
+		if (frustum != null) {
+			BoundingBox4 bounds = e.getSubtreeBounds();
+			if (bounds != null && !frustum.intersects(bounds)) {
+				culled++;
+				return;
+			}
+		}
+
+		// Same color inheritance than RenderEngine.render(Element, Color)
+		Color col = c;
+		if (e.getColor() != null) col = e.getColor();
+
+		if (e.getNbTriangles() > 0) {
+			Entry entry;
+			if (size < entries.size()) {
+				entry = entries.get(size);
+				entry.element = e;
+				entry.color = col;
+				entry.occluded = false;
+			} else {
+				entry = new Entry(e, col);
+				entries.add(entry);
+			}
+			size++;
+			calculateBoundingSphere(entry);
+			// The camera looks towards -Z in view coordinates
+			entry.depth = -view.times(entry.center).getZ();
+		}
+
+		if (!e.isLeaf()) {
+			for (int i=0; i<e.getSubElements().size(); i++) {
+				add(e.getSubElements().get(i), col, view, frustum);
+			}
+		}
+	}
+
+	/**
+	 * Calculate the bounding sphere of the Element from its axis aligned box in World coordinates
+	 * @param entry the entry of the Element
+	 */
+	protected static void calculateBoundingSphere(Entry entry) {
+		BoundingBox4 box = entry.element.getWorldBounds();
+		if (box == null) {
+			entry.center = new Vector4(0,0,0,1);
+			entry.radius = 0;
+			return;
+		}
+		entry.center = new Vector4((box.getMinX()+box.getMaxX())/2, (box.getMinY()+box.getMaxY())/2, (box.getMinZ()+box.getMaxZ())/2, 1);
+		float dx = box.getWidth(), dy = box.getHeight(), dz = box.getDepth();
+		entry.radius = (float)Math.sqrt(dx*dx + dy*dy + dz*dz)/2;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of subtrees culled by the view frustum in the last build
+	 */
+	public int getCulled() {
+		return culled;
+	}
+
+	public Entry get(int i) {
+		return entries.get(i);
+	}
+}
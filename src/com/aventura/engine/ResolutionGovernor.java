@@ -0,0 +1,161 @@
+package com.aventura.engine;
+
+import com.aventura.tools.tracing.Tracer;
+
+/**
+ * ------------------------------------------------------------------------------
+ * MIT License
+ *
+ * Copyright (c) 2016-2026 Olivier BARRY
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ------------------------------------------------------------------------------
+ *
+ * This class is a frame time governor (dynamic resolution): it renders the frames of a RenderEngine at the resolution holding a target
+ * frame time, between a minimum and a maximum resolution. Frames below the full resolution are rendered by
+ * RenderEngine.renderAtResolution() and upscaled into the GUIView when published.
+ *
+ * The duration of each frame is measured and smoothed (exponential moving average), then:
+ * - if the smoothed frame time is above the target, the resolution is decreased at once, in proportion of the overload (the cost of a
+ *   frame being roughly proportional to its number of pixels, i.e. to the square of the resolution),
+ * - if it is below LOW_LOAD x target during RAISE_FRAMES consecutive frames, the resolution is increased by one step.
+ * This hysteresis avoids oscillating between 2 resolutions. Resolutions are multiples of STEP, so only a few scaled RenderEngines are
+ * created by the RenderEngine.
+ *
+ *     render() --> RenderEngine.render() or renderAtResolution(resolution) --> measure --> smooth --> adjust resolution (next frame)
+ *
+ * @author Olivier BARRY
+ * @since October 2026
+ */
+
+public class ResolutionGovernor {
+
+	// Resolution step (resolutions are multiples of it)
+	public static final float STEP = 1.0f/16;
+	// Smoothing factor of the frame time (weight of the last frame)
+	public static final float SMOOTHING = 0.3f;
+	// Ratio of the target frame time under which the resolution may be increased
+	public static final float LOW_LOAD = 0.7f;
+	// Number of consecutive frames under LOW_LOAD before increasing the resolution
+	public static final int RAISE_FRAMES = 10;
+
+	protected RenderEngine renderer;
+	protected float target; // Target frame time in milliseconds
+	protected float minResolution;
+	protected float maxResolution;
+
+	protected float resolution;
+	protected float smoothed = 0; // Smoothed frame time in milliseconds, 0 before the first frame
+	protected int lowFrames = 0; // Consecutive frames under LOW_LOAD
+
+	// Statistics
+	protected int frames = 0;
+	protected int decreases = 0;
+	protected int increases = 0;
+	protected int over_target = 0;
+	protected float last_frame = 0;
+
+	/**
+	 * Create a ResolutionGovernor for a RenderEngine. Frames start at the maximum resolution.
+	 * @param renderer the RenderEngine, with its GUIView already set
+	 * @param targetFrameMillis the target frame time in milliseconds (e.g. 33 for 30 FPS)
+	 * @param minResolution the minimum resolution factor, in ]0, 1] (e.g. 0.25)
+	 * @param maxResolution the maximum resolution factor, in ]0, 1] (1 for the full resolution)
+	 */
+	public ResolutionGovernor(RenderEngine renderer, float targetFrameMillis, float minResolution, float maxResolution) {
+		this.renderer = renderer;
+		this.target = targetFrameMillis;
+		this.minResolution = Math.max(STEP, Math.min(1, quantize(minResolution)));
+		this.maxResolution = Math.max(this.minResolution, Math.min(1, quantize(maxResolution)));
+		this.resolution = this.maxResolution;
+	}
+
+	/**
+	 * Render a frame at the current resolution, then adjust the resolution of the next frame
+	 */
+	public void render() {
+		long start = System.nanoTime();
+		if (resolution >= 1) {
+			renderer.render();
+		} else {
+			renderer.renderAtResolution(resolution);
+		}
+		last_frame = (System.nanoTime() - start)/1000000.0f;
+		frames++;
+		if (last_frame > target) over_target++;
+		adjust(last_frame);
+	}
+
+	/**
+	 * Adjust the resolution from the duration of the last frame
+	 * @param frameMillis the duration of the last frame in milliseconds
+	 */
+	protected void adjust(float frameMillis) {
+		smoothed = smoothed == 0 ? frameMillis : smoothed + SMOOTHING*(frameMillis - smoothed);
+
+		if (smoothed > target) {
+			lowFrames = 0;
+			if (resolution > minResolution) {
+				// Down to the resolution matching the target, at least one step
+				float r = Math.min(resolution - STEP, (float)Math.floor(resolution * Math.sqrt(target/smoothed) / STEP) * STEP);
+				setResolution(r);
+				decreases++;
+				// The next frames are expected faster: do not keep the frame time of the previous resolution
+				smoothed = target;
+			}
+		} else if (smoothed < LOW_LOAD*target) {
+			if (++lowFrames >= RAISE_FRAMES && resolution < maxResolution) {
+				setResolution(resolution + STEP);
+				increases++;
+				lowFrames = 0;
+			}
+		} else {
+			lowFrames = 0;
+		}
+	}
+
+	protected void setResolution(float r) {
+		float old = resolution;
+		resolution = Math.max(minResolution, Math.min(maxResolution, r));
+		if (Tracer.info) Tracer.traceInfo(this.getClass(), "Resolution changed from " + old + " to " + resolution + ". Smoothed frame time: " + smoothed + " ms");
+	}
+
+	protected static float quantize(float r) {
+		return Math.round(r / STEP) * STEP;
+	}
+
+	/**
+	 * @return the resolution factor of the next frame
+	 */
+	public float getResolution() {
+		return resolution;
+	}
+
+	/**
+	 * @return the smoothed frame time in milliseconds
+	 */
+	public float getFrameTime() {
+		return smoothed;
+	}
+
+	public String renderStats() {
+		return "Resolution governor - Target: " + target + " ms, frames: " + frames + ", over target: " + over_target + ", resolution: " + resolution
+				+ " (min " + minResolution + ", max " + maxResolution + "), decreases: " + decreases + ", increases: " + increases + ". Last frame: " + String.format("%.1f", last_frame) + " ms";
+	}
+}
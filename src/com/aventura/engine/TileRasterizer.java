@@ -0,0 +1,253 @@
+package com.aventura.engine;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.aventura.model.world.triangle.Triangle;
+import com.aventura.tools.tracing.Tracer;
+import com.aventura.view.HierarchicalMapView;
+
+/**
+ * ------------------------------------------------------------------------------
+ * MIT License
+ *
+ * Copyright (c) 2016-2026 Olivier BARRY
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ------------------------------------------------------------------------------
+ *
+ * This class provides a tiled and multi-threaded rasterization on top of the Rasterizer.
+ *
+ * The screen is divided in square tiles. Each triangle is set up once (on the rendering thread) by the Rasterizer,
+ * then binned into all the tiles overlapped by its screen bounds. When all triangles have been binned, the tiles are
+ * rasterized in parallel by a fork-join pool. Each tile is rasterized by its own Rasterizer restricted to the window
+ * of the tile, so each tile owns its part of the zBuffer and of the GUIView: no pixel is written by 2 threads.
+ *
+ * Triangles are kept in submission order in each tile, so the result is identical to the sequential rasterization. The tile size is
+ * rounded up to a multiple of the zBuffer tiles size (HierarchicalMapView.TILE_SIZE): span attributes are anchored on zBuffer tiles
+ * (see Rasterizer) and the maximum depth of a zBuffer tile must only be updated by the thread of its tile.
+ *
+ *     +-------+-------+-------+
+ *     |       |   /\  |       |
+ *     |       |  /  \ |       |	Triangle binned into tiles (1,0), (2,0), (1,1) and (2,1)
+ *     +-------+-/----\+-------+
+ *     |       |/______\       |
+ *     |       |       |       |
+ *     +-------+-------+-------+
+ *
+ * @author Olivier BARRY
+ * @since October 2026
+ */
+
+public class TileRasterizer {
+
+	// Threshold of tiles under which a task is not split anymore
+	private static final int TILES_PER_TASK = 1;
+
+	// Main Rasterizer used for triangle setup and as template for the tiles Rasterizers
+	protected Rasterizer rasterizer;
+
+	// Tiles
+	protected int tileSize;
+	protected int width, height; // Dimensions of the zBuffer the tiles are sized for
+	protected int nbTilesX, nbTilesY;
+	protected ArrayList<ArrayList<Rasterizer.TriangleParam>> bins;
+
+	// Thread pool
+	protected ForkJoinPool pool;
+	protected int poolSize;
+	protected int requestedPoolSize; // As requested at creation, 0 for the number of available processors
+
+	// Statistics
+	int binned_triangles = 0;
+	int tile_references = 0;
+	int rasterized_tiles = 0;
+
+	/**
+	 * Creation of a TileRasterizer
+	 * @param rasterizer the Rasterizer of the RenderEngine, used to set up triangles and sharing its zBuffer and GUIView with tiles
+	 * @param tileSize the size of a (square) tile in pixels, rounded up to a multiple of HierarchicalMapView.TILE_SIZE
+	 * @param poolSize the number of threads, 0 to use the number of available processors
+	 */
+	public TileRasterizer(Rasterizer rasterizer, int tileSize, int poolSize) {
+		this.rasterizer = rasterizer;
+		this.tileSize = alignTileSize(tileSize);
+		this.requestedPoolSize = poolSize;
+		this.poolSize = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+		this.pool = new ForkJoinPool(this.poolSize);
+
+		// Tiles are defined in zBuffer coordinates ([0, width[ x [0, height[)
+		width = 2 * rasterizer.pixelHalfWidth + 1;
+		height = 2 * rasterizer.pixelHalfHeight + 1;
+		nbTilesX = (width + this.tileSize - 1) / this.tileSize;
+		nbTilesY = (height + this.tileSize - 1) / this.tileSize;
+
+		bins = new ArrayList<ArrayList<Rasterizer.TriangleParam>>(nbTilesX * nbTilesY);
+		for (int i=0; i<nbTilesX * nbTilesY; i++) {
+			bins.add(new ArrayList<Rasterizer.TriangleParam>());
+		}
+		if (Tracer.info) Tracer.traceInfo(this.getClass(), "Tile Rasterizer created. Tiles: " + nbTilesX + "x" + nbTilesY + " of " + this.tileSize + " pixels, threads: " + this.poolSize);
+	}
+
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	/**
+	 * The tiles are sized at creation: a new TileRasterizer is needed if the dimensions of the Rasterizer or the settings have changed
+	 * @param tileSize the requested size of a tile in pixels
+	 * @param poolSize the requested number of threads, 0 for the number of available processors
+	 * @return true if this TileRasterizer can be used with these settings and the current dimensions of its Rasterizer
+	 */
+	public boolean matches(int tileSize, int poolSize) {
+		return this.tileSize == alignTileSize(tileSize) && requestedPoolSize == poolSize
+				&& width == 2 * rasterizer.pixelHalfWidth + 1 && height == 2 * rasterizer.pixelHalfHeight + 1;
+	}
+
+	/**
+	 * @param tileSize the requested size of a tile in pixels, 0 or less for the default size (64)
+	 * @return the tile size rounded up to a multiple of the zBuffer tiles size, so that no zBuffer tile is shared by 2 tiles
+	 */
+	protected static int alignTileSize(int tileSize) {
+		int size = tileSize > 0 ? tileSize : 64;
+		return (size + HierarchicalMapView.TILE_MASK) & ~HierarchicalMapView.TILE_MASK;
+	}
+
+	/**
+	 * Reset the bins and statistics before a new frame
+	 */
+	public void init() {
+		for (int i=0; i<bins.size(); i++) {
+			bins.get(i).clear();
+		}
+		binned_triangles = 0;
+		tile_references = 0;
+		rasterized_tiles = 0;
+	}
+
+	/**
+	 * Set up the triangle and bin it into the tiles overlapped by its screen bounds. Same parameters than Rasterizer.rasterizeTriangle.
+	 * The triangle is rasterized later, when calling rasterizeTiles()
+	 */
+	public void rasterizeTriangle(
+			Triangle t,
+			Color surfCol,
+			float specExp,
+			Color specCol,
+			boolean interpolate,
+			boolean texture,
+			boolean shadows,
+			boolean shadowmap) {
+
+		Rasterizer.TriangleParam tp = rasterizer.setupTriangle(t, surfCol, specExp, specCol, interpolate, texture, shadows, shadowmap);
+
+		// Screen bounds clipped to the screen (before translation to avoid overflows) -> tiles indices (zBuffer coordinates)
+		int phw = rasterizer.pixelHalfWidth;
+		int phh = rasterizer.pixelHalfHeight;
+		int minX = Math.max(tp.minX, -phw) + phw;
+		int maxX = Math.min(tp.maxX, phw) + phw;
+		int minY = Math.max(tp.minY, -phh) + phh;
+		int maxY = Math.min(tp.maxY, phh) + phh;
+		if (minX > maxX || minY > maxY) return; // Out of screen
+
+		binned_triangles++;
+		for (int ty = minY / tileSize; ty <= maxY / tileSize; ty++) {
+			for (int tx = minX / tileSize; tx <= maxX / tileSize; tx++) {
+				bins.get(ty * nbTilesX + tx).add(tp);
+				tile_references++;
+			}
+		}
+	}
+
+	/**
+	 * Rasterize all binned triangles, tiles in parallel, then empty the bins
+	 */
+	public void rasterizeTiles() {
+		if (Tracer.function) Tracer.traceFunction(this.getClass(), "Rasterize tiles. Triangles: " + binned_triangles + ", tile references: " + tile_references);
+
+		pool.invoke(new TileTask(0, nbTilesX * nbTilesY));
+
+		for (int i=0; i<bins.size(); i++) {
+			if (!bins.get(i).isEmpty()) rasterized_tiles++;
+			bins.get(i).clear();
+		}
+	}
+
+	/**
+	 * Rasterize a single tile with its own Rasterizer, restricted to the window of the tile
+	 * @param tile the index of the tile
+	 */
+	protected void rasterizeTile(int tile) {
+		ArrayList<Rasterizer.TriangleParam> bin = bins.get(tile);
+		if (bin.isEmpty()) return;
+
+		int tx = tile % nbTilesX;
+		int ty = tile / nbTilesX;
+		Rasterizer r = new Rasterizer(rasterizer);
+		// Window in screen coordinates
+		r.setWindow(tx * tileSize - rasterizer.pixelHalfWidth, (tx + 1) * tileSize - 1 - rasterizer.pixelHalfWidth, ty * tileSize - rasterizer.pixelHalfHeight, (ty + 1) * tileSize - 1 - rasterizer.pixelHalfHeight);
+
+		for (int i=0; i<bin.size(); i++) {
+			r.rasterizeTriangle(bin.get(i));
+		}
+		rasterizer.addFrameStats(r);
+	}
+
+	/**
+	 * Fork-join task rasterizing a range of tiles, split in halves until reaching TILES_PER_TASK
+	 */
+	@SuppressWarnings("serial")
+	protected class TileTask extends RecursiveAction {
+		int first, last; // Range of tiles [first, last[
+
+		public TileTask(int first, int last) {
+			this.first = first;
+			this.last = last;
+		}
+
+		@Override
+		protected void compute() {
+			if (last - first <= TILES_PER_TASK) {
+				for (int i=first; i<last; i++) {
+					rasterizeTile(i);
+				}
+			} else {
+				int middle = (first + last) / 2;
+				invokeAll(new TileTask(first, middle), new TileTask(middle, last));
+			}
+		}
+	}
+
+	/**
+	 * Release the threads of the pool
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	public String renderStats() {
+		return "Tile Rasterizer - Tiles: " + nbTilesX + "x" + nbTilesY + " of " + tileSize + " pixels, threads: " + poolSize + ". Triangles binned: " + binned_triangles + ", tile references: " + tile_references + ", rasterized tiles: " + rasterized_tiles;
+	}
+}
@@ -0,0 +1,387 @@
+package com.aventura.engine;
+
+import java.util.Arrays;
+
+import com.aventura.model.world.triangle.Triangle;
+import com.aventura.tools.tracing.Tracer;
+import com.aventura.view.GUIView;
+import com.aventura.view.HierarchicalMapView;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * ------------------------------------------------------------------------------
+ * MIT License
+ *
+ * Copyright (c) 2016-2026 Olivier BARRY
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ------------------------------------------------------------------------------
+ *
+ * This class is the SIMD version of the pixel loop of a scan line, using the Vector API (jdk.incubator.vector).
+ *
+ * The scan line traversal processes a span by blocks of pixels of the same zBuffer tile (see Rasterizer.rasterizeScanLine).
+ * A block has at most 8 pixels. Vectors have the preferred width of the platform (SPECIES_PREFERRED, e.g. 4 floats with SSE or NEON,
+ * 8 with AVX2, 16 with AVX-512) and each stage loops over its lanes buffers by vectors of this length, the last one being masked:
+ * - depth of each pixel (1/z interpolation for frustum) and depth test against the zBuffer, giving the mask of the visible pixels
+ * - texture fetch of the visible pixels (one lane at a time, the Texture being scalar)
+ * - Gouraud's shading: shaded and specular colors of each light with perspective correction, combined with texture and ambient
+ * - packed RGB color, then write of the visible pixels in the GUIView and in the zBuffer (masked store)
+ *
+ * The attributes of the pixels are obtained by the same forward differencing than the scalar loop and the shading follows the same
+ * operations in the same order (see Rasterizer.shadeFragment), so the result is identical to the scalar rasterization.
+ *
+ * Each stage reads and writes its lanes from and to small buffers (one float array per attribute and lane), and no vector is passed
+ * from one method to another: the JIT compiler keeps the vectors in registers as long as each method is compiled on its own, even
+ * when it does not inline them all in the caller. The 3 components of a color are contiguous in the buffers, so the stages combining
+ * colors process the 24 values of a block together, which fills the wider vectors.
+ *
+ * Only forward shading of spans without shadows is handled here. Other spans (shadow maps, shadows, deferred shading, no interpolation)
+ * are rasterized by the scalar loop.
+ *
+ * The jdk.incubator.vector module has to be added at compile time (see pom.xml) and at run time (java --add-modules jdk.incubator.vector).
+ * If it is not, this class cannot be loaded and the Rasterizer falls back to the scalar loop (see Rasterizer.isVectorKernelAvailable()).
+ *
+ * @author Olivier BARRY
+ * @since October 2026
+ */
+
+public class VectorSpanKernel {
+
+	// Preferred vectors of the platform, floats and ints having the same number of lanes
+	static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+	static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED;
+	// 8 pixels per block: width of a zBuffer tile
+	static final int LANES = 8;
+
+	// Padding of the lanes buffers: a whole vector can be loaded from or stored to any attribute, so no mask is needed for the lanes
+	// beyond the block, their values being ignored (the attributes are stored in increasing order when a vector overlaps the next one)
+	static final int PADDING = SPECIES.length();
+
+	// Lanes buffers: value of each attribute for each pixel of the block, attribute a of pixel k at index a*LANES+k
+	protected float[] lane_q = new float[LANES+PADDING];		// 1/z (frustum) or z (orthographic)
+	protected float[] lane_z = new float[LANES+PADDING];		// Depth
+	protected float[] lane_zcorr = new float[3*LANES+PADDING];	// Perspective correction of the colors, repeated for the 3 components
+	protected float[] lane_amb = new float[3*LANES+PADDING];	// Ambient color (r, g, b) of each pixel
+	protected float[] ambient = new float[3];					// Ambient color of lane_amb
+	protected int[] lane_comp = new int[3*LANES+PADDING];		// Components of the pixel colors in [0, 255]
+	protected float[] lane_shc, lane_spc;						// Shaded and specular colors of each light
+	protected float[] lane_tex = new float[3*LANES+PADDING];	// Texture vector
+	protected float[] lane_u = new float[LANES+PADDING];		// Texture coordinates
+	protected float[] lane_v = new float[LANES+PADDING];
+	protected float[] lane_t = new float[3*LANES+PADDING];		// Texture color
+	protected float[] lane_sum = new float[6*LANES+PADDING];	// Sums of CiDT (r, g, b) and CiSi (r, g, b)
+	protected int[] lane_rgb = new int[LANES+PADDING];			// Packed RGB colors (texture, then pixel)
+
+	// White texture color and no ambient color
+	private static final float[] WHITE = new float[3*LANES+PADDING];
+	private static final float[] NO_AMBIENT = new float[3];
+	static {
+		Arrays.fill(WHITE, 1);
+	}
+
+	public VectorSpanKernel() {
+	}
+
+	/**
+	 * Check if a span of a triangle can be rasterized by this kernel
+	 * @param tp the TriangleParam of the triangle
+	 * @param deferred true if fragments are stored in a GBuffer (deferred shading)
+	 * @return true if the kernel supports this triangle
+	 */
+	public static boolean supports(Rasterizer.TriangleParam tp, boolean deferred) {
+		return !tp.shadowmap && !tp.shadows && tp.interpolate && !deferred;
+	}
+
+	/**
+	 * Rasterize a block of pixels of a scan line, in a single zBuffer tile. The attributes of the fragment at the beginning of the
+	 * block and their deltas per pixel are the fragment and span buffers of the Rasterizer (frag_shc, dfrag_shc, etc.).
+	 *
+	 * @param r the Rasterizer (fragment buffers and depth test)
+	 * @param zBuffer the zBuffer
+	 * @param view the GUIView
+	 * @param x the first pixel of the block (screen coordinates)
+	 * @param y the scan line (screen coordinates)
+	 * @param n the number of pixels of the block (1 to 8)
+	 * @param q 1/z (frustum) or z (orthographic) at the first pixel
+	 * @param dq delta of q per pixel
+	 * @param tp the TriangleParam of the triangle
+	 * @param frustum true for a frustum perspective, false for orthographic
+	 * @param specular true if the lighting has specular reflection
+	 * @param textured true if the triangle is textured
+	 * @return the number of pixels drawn
+	 */
+	public int rasterizeBlock(Rasterizer r, HierarchicalMapView zBuffer, GUIView view, int x, int y, int n, float q, float dq, Rasterizer.TriangleParam tp, boolean frustum, boolean specular, boolean textured) {
+
+		int nb_lights = tp.nb_sl;
+		int x_zBuf = r.getXzBuf(x);
+		int y_zBuf = r.getYzBuf(y);
+		int offset = zBuffer.getRowOffset(y_zBuf) + x_zBuf;
+
+		// Depth of each pixel, by forward differencing as the scalar loop
+		for (int k=0; k<LANES; k++, q += dq) {
+			lane_q[k] = q;
+		}
+		long visible = depthTest(zBuffer.getData(), offset, n, frustum, r.depthTestEqual); // Bit k set if pixel k is visible
+		if (visible == 0) return 0;
+
+		// Attributes of each pixel
+		initLaneBuffers(nb_lights);
+		setLanes(lane_shc, r.frag_shc, r.dfrag_shc, 3*nb_lights);
+		if (specular) setLanes(lane_spc, r.frag_spc, r.dfrag_spc, 3*nb_lights);
+
+		// Texture color T (white if no texture)
+		float[] t = WHITE;
+		if (textured) {
+			setLanes(lane_tex, r.frag_tex, r.dfrag_tex, 3);
+			fetchTexture(tp, visible);
+			t = lane_t;
+		}
+
+		// Combine colors (see Rasterizer.shadeFragment): K = DTA + SUM(CiDT) + SUM(CiSi)
+		Arrays.fill(lane_sum, 0);
+		for (int i=0; i<nb_lights; i++) {
+			addLight(i, t, specular);
+		}
+		combine(t, tp.ambientCol != null ? tp.ambientCol : NO_AMBIENT, specular);
+
+		// Write the visible pixels in the zBuffer and in the GUIView
+		writeDepth(zBuffer, x_zBuf, y_zBuf, offset, visible);
+		int index = r.pixels != null ? view.getPixelIndex(x, y) : -1;
+		if (index >= 0 && view.getPixelIndex(x+n-1, y) == index+n-1) {
+			// Whole block in the view: direct writes in the back buffer
+			for (int k=0; k<n; k++) {
+				if ((visible & (1L << k)) != 0) r.pixels[index+k] = lane_rgb[k];
+			}
+		} else {
+			for (int k=0; k<n; k++) {
+				if ((visible & (1L << k)) != 0) view.drawPixel(x+k, y, lane_rgb[k]);
+			}
+		}
+
+		return Long.bitCount(visible);
+	}
+
+	/**
+	 * Calculate the depth of the pixels and the perspective correction of their colors, and test their depth against the zBuffer
+	 * @param zData the zBuffer array
+	 * @param offset the index of the first pixel of the block in the zBuffer array
+	 * @param n the number of pixels of the block
+	 * @param frustum true for a frustum perspective, false for orthographic
+	 * @param equal true to draw only pixels with the same depth than the zBuffer
+	 * @return the visible pixels, bit k set if pixel k is visible
+	 */
+	protected long depthTest(float[] zData, int offset, int n, boolean frustum, boolean equal) {
+		long visible = 0;
+		VectorMask<Float> perspective = SPECIES.maskAll(frustum);
+		FloatVector one = FloatVector.broadcast(SPECIES, 1);
+		for (int k=0; k<LANES; k+=SPECIES.length()) {
+			// 1/q is both the depth (frustum) and the perspective correction of the colors (1/z for orthographic, z for frustum)
+			FloatVector q = FloatVector.fromArray(SPECIES, lane_q, k);
+			FloatVector zcorr = one.div(q);
+			FloatVector z = q.blend(zcorr, perspective);
+			z.intoArray(lane_z, k);
+			for (int c=0; c<3; c++) {
+				zcorr.intoArray(lane_zcorr, c*LANES+k);
+			}
+
+			VectorMask<Float> block = SPECIES.indexInRange(k, n);
+			FloatVector zBuf = FloatVector.fromArray(SPECIES, zData, offset+k, block);
+			VectorMask<Float> test = equal ? z.compare(VectorOperators.EQ, zBuf) : z.compare(VectorOperators.GT, zBuf).not();
+			visible |= test.and(block).toLong() << k;
+		}
+		return visible;
+	}
+
+	/**
+	 * Fetch the texture color of the visible pixels from their texture vectors into the texture lanes buffer (r, g, b components)
+	 * @param tp the TriangleParam of the triangle
+	 * @param visible the visible pixels, bit k set if pixel k is visible
+	 */
+	protected void fetchTexture(Rasterizer.TriangleParam tp, long visible) {
+		for (int k=0; k<LANES; k+=SPECIES.length()) {
+			FloatVector z = FloatVector.fromArray(SPECIES, lane_z, k);
+			FloatVector vtx = FloatVector.fromArray(SPECIES, lane_tex, k).mul(z);
+			FloatVector vty = FloatVector.fromArray(SPECIES, lane_tex, LANES+k).mul(z);
+			FloatVector vtw = FloatVector.fromArray(SPECIES, lane_tex, 2*LANES+k).mul(z);
+			// Projective Texture mapping using the fourth coordinate
+			switch (tp.tex_orientation) {
+			case Triangle.TEXTURE_ISOTROPIC: // Default for a triangle
+				vtx.div(vtw).intoArray(lane_u, k);
+				vty.div(vtw).intoArray(lane_v, k);
+				break;
+			case Triangle.TEXTURE_VERTICAL:
+				vtx.div(vtw).intoArray(lane_u, k);
+				vty.intoArray(lane_v, k);
+				break;
+			case Triangle.TEXTURE_HORIZONTAL:
+				vtx.intoArray(lane_u, k);
+				vty.div(vtw).intoArray(lane_v, k);
+				break;
+			default:
+				// Should never happen
+				if (Tracer.error) Tracer.traceError(this.getClass(), "Invalid Texture orientation for this triangle: "+tp.tex_orientation);
+			}
+		}
+
+		// The Texture is scalar: one lane at a time, visible pixels only
+		for (int k=0; k<LANES; k++) {
+			lane_rgb[k] = (visible & (1L << k)) != 0 ? tp.tex.getInterpolatedRGB(lane_u[k], lane_v[k]) : 0;
+		}
+
+		// Components in [0,1], same as ColorTools.getRed/getGreen/getBlue
+		for (int k=0; k<LANES; k+=INT_SPECIES.length()) {
+			IntVector ctx = IntVector.fromArray(INT_SPECIES, lane_rgb, k);
+			((FloatVector)ctx.lanewise(VectorOperators.ASHR, 16).and(0xFF).convert(VectorOperators.I2F, 0)).div(255).intoArray(lane_t, k);
+			((FloatVector)ctx.lanewise(VectorOperators.ASHR, 8).and(0xFF).convert(VectorOperators.I2F, 0)).div(255).intoArray(lane_t, LANES+k);
+			((FloatVector)ctx.and(0xFF).convert(VectorOperators.I2F, 0)).div(255).intoArray(lane_t, 2*LANES+k);
+		}
+	}
+
+	/**
+	 * Add the shaded color of a light multiplied by the texture color (CiDT) and by its specular color (CiSi) to the sums
+	 * @param i the index of the light
+	 * @param t the texture color lanes
+	 * @param specular true if the lighting has specular reflection
+	 */
+	protected void addLight(int i, float[] t, boolean specular) {
+		// The 3 components (r, g, b) of all pixels at once
+		int n = 3*LANES;
+		for (int j=0; j<n; j+=SPECIES.length()) {
+			FloatVector zcorr = FloatVector.fromArray(SPECIES, lane_zcorr, j);
+			FloatVector csh = clip(FloatVector.fromArray(SPECIES, lane_shc, 3*i*LANES+j).mul(zcorr));
+			FloatVector tc = FloatVector.fromArray(SPECIES, t, j);
+			// Masked only if the vector overlaps the sums of CiSi (vectors longer than 8 lanes)
+			FloatVector.fromArray(SPECIES, lane_sum, j).add(csh.mul(tc)).intoArray(lane_sum, j, SPECIES.indexInRange(j, n));
+			if (specular) {
+				FloatVector csp = clip(FloatVector.fromArray(SPECIES, lane_spc, 3*i*LANES+j).mul(zcorr));
+				FloatVector.fromArray(SPECIES, lane_sum, n+j).add(csh.mul(csp)).intoArray(lane_sum, n+j);
+			}
+		}
+	}
+
+	/**
+	 * Combine the sums with the ambient color (DTA) into the packed RGB color of the pixels (see ColorTools.getRGB)
+	 * @param t the texture color lanes
+	 * @param ambient the ambient color (r, g, b)
+	 * @param specular true if the lighting has specular reflection
+	 */
+	protected void combine(float[] t, float[] ambient, boolean specular) {
+		setAmbient(ambient);
+
+		// Components in [0, 255] (see ColorTools.getRGB) of the 3 components of all pixels at once
+		int n = 3*LANES;
+		for (int j=0; j<n; j+=SPECIES.length()) {
+			FloatVector dta = FloatVector.fromArray(SPECIES, t, j).mul(FloatVector.fromArray(SPECIES, lane_amb, j));
+			FloatVector dt = FloatVector.fromArray(SPECIES, lane_sum, j);
+			FloatVector k;
+			if (specular) {
+				// General case with all type of light (shaded and specular)
+				FloatVector si = FloatVector.fromArray(SPECIES, lane_sum, n+j);
+				k = dta.add(clip(clip(dt).add(clip(si))));
+			} else { // No Specular light, formula is simplified
+				k = dta.add(clip(dt));
+			}
+			IntVector component = (IntVector)clip(k).mul(255).add(0.5f).convert(VectorOperators.F2I, 0);
+			component.intoArray(lane_comp, j);
+		}
+
+		// Packed RGB colors
+		IntVector alpha = IntVector.broadcast(INT_SPECIES, 0xFF000000);
+		for (int k=0; k<LANES; k+=INT_SPECIES.length()) {
+			IntVector r = IntVector.fromArray(INT_SPECIES, lane_comp, k);
+			IntVector g = IntVector.fromArray(INT_SPECIES, lane_comp, LANES+k);
+			IntVector b = IntVector.fromArray(INT_SPECIES, lane_comp, 2*LANES+k);
+			alpha.or(r.lanewise(VectorOperators.LSHL, 16)).or(g.lanewise(VectorOperators.LSHL, 8)).or(b).intoArray(lane_rgb, k);
+		}
+	}
+
+	/**
+	 * Set the ambient color of each pixel, only if it has changed since the last block
+	 * @param ambient the ambient color (r, g, b)
+	 */
+	protected void setAmbient(float[] ambient) {
+		for (int c=0; c<3; c++) {
+			if (this.ambient[c] != ambient[c]) {
+				this.ambient[c] = ambient[c];
+				Arrays.fill(lane_amb, c*LANES, (c+1)*LANES, ambient[c]);
+			}
+		}
+	}
+
+	/**
+	 * Write the depth of the visible pixels in the zBuffer and update the maximum of its tile
+	 * @param zBuffer the zBuffer
+	 * @param x_zBuf x of the first pixel of the block in the zBuffer
+	 * @param y_zBuf y of the block in the zBuffer
+	 * @param offset the index of the first pixel of the block in the zBuffer array
+	 * @param visible the visible pixels, bit k set if pixel k is visible
+	 */
+	protected void writeDepth(HierarchicalMapView zBuffer, int x_zBuf, int y_zBuf, int offset, long visible) {
+		float[] zData = zBuffer.getData();
+		FloatVector none = FloatVector.broadcast(SPECIES, Float.NEGATIVE_INFINITY);
+		float newMax = Float.NEGATIVE_INFINITY;
+		float replacedMax = Float.NEGATIVE_INFINITY;
+		for (int k=0; k<LANES; k+=SPECIES.length()) {
+			VectorMask<Float> mask = VectorMask.fromLong(SPECIES, visible >>> k);
+			FloatVector z = FloatVector.fromArray(SPECIES, lane_z, k);
+			replacedMax = Math.max(replacedMax, none.blend(FloatVector.fromArray(SPECIES, zData, offset+k, mask), mask).reduceLanes(VectorOperators.MAX));
+			z.intoArray(zData, offset+k, mask);
+			newMax = Math.max(newMax, none.blend(z, mask).reduceLanes(VectorOperators.MAX));
+		}
+		zBuffer.updateTile(x_zBuf, y_zBuf, newMax, replacedMax);
+	}
+
+	/**
+	 * Make sure the lanes buffers can hold the 3 components of each light
+	 * @param nb_lights the number of lights
+	 */
+	protected void initLaneBuffers(int nb_lights) {
+		if (lane_shc == null || lane_shc.length < 3 * nb_lights * LANES + PADDING) {
+			lane_shc = new float[3 * nb_lights * LANES + PADDING];
+			lane_spc = new float[3 * nb_lights * LANES + PADDING];
+		}
+	}
+
+	/**
+	 * Set the value of attributes for each pixel of the block from their value at the first pixel and their delta per pixel
+	 * (additions in the same order than Rasterizer.advanceSpan so each pixel gets exactly the same value)
+	 * @param lanes the lanes buffer (output)
+	 * @param v the values at the first pixel
+	 * @param dv the deltas per pixel
+	 * @param n the number of attributes
+	 */
+	protected static void setLanes(float[] lanes, float[] v, float[] dv, int n) {
+		for (int a=0; a<n; a++) {
+			float va = v[a];
+			for (int k=0; k<LANES; k++, va += dv[a]) {
+				lanes[a*LANES+k] = va;
+			}
+		}
+	}
+
+	// Same as ColorTools.clip for each lane
+	protected static FloatVector clip(FloatVector c) {
+		return c.max(0).min(1);
+	}
+}
@@ -3,6 +3,7 @@ package com.aventura.math.tools;
 import java.util.Arrays;
 
 import com.aventura.math.Constants;
+import com.aventura.math.vector.Matrix4;
 import com.aventura.math.vector.Vector4;
 
 /**
@@ -77,6 +78,23 @@ public class BoundingBox4 {
 		// Then we have the min and max for each coordinate of all points in the set of points
 		
 		// We can build the bounding box
+		buildPoints();
+	}
+	
+	/**
+	 * Constructor of BoundingBox with its min and max coordinates
+	 */
+	public BoundingBox4(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		this.minX = minX;
+		this.minY = minY;
+		this.minZ = minZ;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		this.maxZ = maxZ;
+		buildPoints();
+	}
+	
+	protected void buildPoints() {
 		boxPoints = new Vector4[2][4];
 		// And define each of the 8 points of the rectangle (bounding box)
 		// The box is aligned with coordinates axis
@@ -90,26 +108,51 @@ public class BoundingBox4 {
 		boxPoints[1][3] = new Vector4(maxX, maxY, minZ, 1);
 	}
 	
-	protected float getMaxX() {
+	public float getMaxX() {
 		return maxX;
 	}
-	protected float getMaxY() {
+	public float getMaxY() {
 		return maxY;
 	}
-	protected float getMaxZ() {
+	public float getMaxZ() {
 		return maxZ;
 	}
 	
-	protected float getMinX() {
+	public float getMinX() {
 		return minX;
 	}
-	protected float getMinY() {
+	public float getMinY() {
 		return minY;
 	}
-	protected float getMinZ() {
+	public float getMinZ() {
 		return minZ;
 	}
 	
+	/**
+	 * Box containing this box transformed by a matrix: the box aligned to coordinate axis containing its 8 transformed points
+	 * @param m the transformation matrix
+	 * @return a new BoundingBox4
+	 */
+	public BoundingBox4 transform(Matrix4 m) {
+		Vector4[] points = new Vector4[8];
+		for (int i=0; i<2; i++) {
+			for (int j=0; j<4; j++) {
+				points[i*4+j] = m.times(boxPoints[i][j]);
+			}
+		}
+		return new BoundingBox4(points);
+	}
+	
+	/**
+	 * Box containing this box and another one
+	 * @param b the other box, or null
+	 * @return a new BoundingBox4, or this box if the other one is null
+	 */
+	public BoundingBox4 union(BoundingBox4 b) {
+		if (b == null) return this;
+		return new BoundingBox4(Math.min(minX, b.minX), Math.min(minY, b.minY), Math.min(minZ, b.minZ), Math.max(maxX, b.maxX), Math.max(maxY, b.maxY), Math.max(maxZ, b.maxZ));
+	}
+	
 	public float getWidth() {
 		return maxX - minX;
 	}
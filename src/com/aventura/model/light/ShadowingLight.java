@@ -1,6 +1,9 @@
 package com.aventura.model.light;
 
+import java.util.ArrayList;
+
 import com.aventura.context.PerspectiveContext;
+import com.aventura.engine.Frustum;
 import com.aventura.engine.ModelViewProjection;
 import com.aventura.engine.Rasterizer;
 import com.aventura.math.projection.Projection;
@@ -10,6 +13,7 @@ import com.aventura.math.vector.Vector4;
 import com.aventura.model.camera.Camera;
 import com.aventura.model.perspective.Perspective;
 import com.aventura.model.world.Element;
+import com.aventura.model.world.Octree;
 import com.aventura.model.world.World;
 import com.aventura.model.world.triangle.Triangle;
 import com.aventura.tools.tracing.Tracer;
@@ -85,6 +89,7 @@ public abstract class ShadowingLight extends Light {
 	// Shadow map
 	int map_size = 0;
 	protected MapView map; // As an attribute of the (Shadowing)Light, there will be multiple maps if multiple lights
+	protected ArrayList<Element> casters = new ArrayList<Element>(); // Shadow casters found in the octree of the World
 	
 	// Default constructor
 	public ShadowingLight() {
@@ -179,9 +184,19 @@ public abstract class ShadowingLight extends Light {
 		// Get the map from the Rasterizer while initializing it
 		map = rasterizer_light.initZBuffer(map_size, map_size, 1); // ShadowMap is square
 
+		// Shadow casters: with the octree of the World, only the Elements in the volume projected in the shadow map (others would be
+		// clipped triangle by triangle), otherwise all Elements
+		ArrayList<Element> casters = world.getElements();
+		Octree octree = world.getOctree();
+		if (octree != null) {
+			Matrix4 vp = perspectiveCtx_light.getPerspective().getProjection().times(camera_light.getMatrix());
+			casters = octree.query(new Frustum(vp), this.casters);
+			if (Tracer.info) Tracer.traceInfo(this.getClass(), "Shadow casters from octree: "+casters.size()+" of "+world.getElements().size()+" Element(s)");
+		}
+
 		// For each element of the world
-		for (int i=0; i<world.getElements().size(); i++) {			
-			Element e = world.getElement(i);
+		for (int i=0; i<casters.size(); i++) {			
+			Element e = casters.get(i);
 			//generateShadowMap(e, null); // First model Matrix is the IDENTITY Matrix (to allow recursive calls)
 			generateShadowMap(e); // First model Matrix is the IDENTITY Matrix (to allow recursive calls)
 		}
@@ -8,7 +8,6 @@ import java.io.IOException;
 import javax.imageio.ImageIO;
 
 import com.aventura.tools.color.ColorTools;
-import com.aventura.tools.tracing.Tracer;
 
 /**
  * ------------------------------------------------------------------------------ 
@@ -176,6 +175,17 @@ public class Texture {
 	 * @return
 	 */
 	public Color getInterpolatedColor(float s, float t) throws Exception {
+		return new Color(getInterpolatedRGB(s, t));
+	}
+
+	/**
+	 * Calculate the bilinear interpolated Color of this Texture at coordinates <s,t> with 0 <= s <= 1 and 0 <= t <= 1
+	 * Same as getInterpolatedColor but returns the Color as a packed RGB int, without any object creation (used at each pixel by the Rasterizer)
+	 * @param s
+	 * @param t
+	 * @return the packed RGB value of the interpolated Color
+	 */
+	public int getInterpolatedRGB(float s, float t) {
 
 		// Calculate the coordinates within the texture (-0.5 as per bressenham)
 		float u = s * this.width - 0.5f;
@@ -187,7 +197,7 @@ public class Texture {
 		int x1 = x0 + 1;
 		int y1 = y0 + 1;
 		
-		// Calculate the frac value of u and v (their respective complement to 1 will be computed in the getBilinearFilteredColor method directly)
+		// Calculate the frac value of u and v (their respective complement to 1 will be computed in the filtering directly)
 		float u_ratio = (float)u - x0;
 		float v_ratio = (float)v - y0;
 		
@@ -200,15 +210,8 @@ public class Texture {
 		if (x1>=this.width)  x1 = this.width - 1;
 		if (y1>=this.height) y1 = this.height - 1;
 
-		// Calculate the interpolated value as per Bilinear Filtering algorithm
-		Color result = null;
-		try {
-		 result = ColorTools.getBilinearFilteredColor(new Color(tex[x0][y0]), new Color(tex[x0][y1]), new Color(tex[x1][y0]), new Color(tex[x1][y1]), u_ratio, v_ratio);
-		} catch (java.lang.ArrayIndexOutOfBoundsException e) {
-			if (Tracer.error) Tracer.traceError(this.getClass(), "Exception getting bilinear filtered color for: x0="+x0+" y0="+y0+" x1="+x1+" y1="+y1+". Texture width: "+this.width+" height:"+this.height);
-			e.printStackTrace();
-		}
-		return result;
+		// Calculate the interpolated value as per Bilinear Filtering algorithm, component by component
+		return ColorTools.getBilinearFilteredRGB(tex[x0][y0], tex[x0][y1], tex[x1][y0], tex[x1][y1], u_ratio, v_ratio);
 	}
 	
 	public Color getColor(int x, int y) {
@@ -3,6 +3,7 @@ package com.aventura.model.world;
 import java.awt.Color;
 import java.util.ArrayList;
 
+import com.aventura.math.tools.BoundingBox4;
 import com.aventura.math.transform.Transformable;
 import com.aventura.math.transform.Transformation;
 import com.aventura.math.vector.Matrix4;
@@ -125,6 +126,11 @@ public class Element implements Transformable, Shape, Generable {
 	
 	private static int ID = 1; // Single ID to identify any Element. Is incremented.
 	
+	// Levels of detail: projected radius (pixels) of the bounding sphere under which the first coarser level is used, halved at each
+	// level, and relative margin around these thresholds to avoid switching back and forth between 2 levels
+	public static final float DEFAULT_LOD_RADIUS = 128;
+	public static final float LOD_HYSTERESIS = 0.2f;
+	
 	protected static final String ELEMENT_DEFAULT_NAME = "element";
 	protected String name;
 	protected int id;
@@ -145,6 +151,23 @@ public class Element implements Transformable, Shape, Generable {
 	
 	// Topology
 	protected boolean isClosed = false; // Defines if the Element is a closed element or not in order to eliminate or not its back faces (internal to the closed element thus not visible)
+	
+	// Levels of detail: vertices and triangles of each tessellation, level 0 being the one generated by build() (null if no coarser level)
+	protected ArrayList<ArrayList<Vertex>> lodVertices = null;
+	protected ArrayList<ArrayList<Triangle>> lodTriangles = null;
+	protected float lodRadius = DEFAULT_LOD_RADIUS;
+	protected int lod = 0; // Current level of detail
+	
+	// Occlusion culling: designated occluder, rasterized in the occluder depth buffer whatever its size (see OcclusionCuller)
+	protected boolean occluder = false;
+	
+	// Bounding volumes, calculated when needed and cached until invalidated (null if not calculated or no vertices)
+	protected BoundingBox4 bounds = null; // Box of the vertices of this Element in Model coordinates
+	protected BoundingBox4 worldBounds = null; // Box of the vertices of this Element in World coordinates
+	protected BoundingBox4 subtreeBounds = null; // Box of this Element and all its sub-Elements in World coordinates
+	protected boolean boundsValid = false;
+	protected boolean worldBoundsValid = false; // Covers worldBounds and subtreeBounds
+	protected Octree octree = null; // Spatial index of the World notified of the changes of the subtree box (top level Element only)
 		
 	/**
 	 * Create an open Element (not closed)
@@ -219,6 +242,7 @@ public class Element implements Transformable, Shape, Generable {
 	public void setParent(Element e) {
 		parent = e;
 		full = new Transformation(e.getTransformation().times(transform));
+		invalidateWorldBounds();
 	}
 	
 	public Element getParent() {
@@ -230,6 +254,7 @@ public class Element implements Transformable, Shape, Generable {
 		// If never initialized then create the Array
 		if (subelements == null) subelements = new ArrayList<Element>();
 		this.subelements.add(e);
+		invalidateWorldBounds();
 	}
 	
 	// ********************
@@ -238,6 +263,7 @@ public class Element implements Transformable, Shape, Generable {
 
 	public void addVertex(Vertex v) {
 		this.vertices.add(v);
+		invalidateBounds();
 	}
 	
 	/**
@@ -373,12 +399,19 @@ public class Element implements Transformable, Shape, Generable {
 	@Override
 	public void transform() {
 
+		transformVertices();
+		// Transform all children's Elements (and recursively)
+		subTransform();
+	}
+	
+	/**
+	 * Transform the World position of the Vertices of this Element only, not of its sub-Elements
+	 */
+	public void transformVertices() {
 		for (int i=0; i<vertices.size(); i++) {
 			Vertex v = vertices.get(i);
 			v.setWorldPos(full.times(v.getPos()));
 		}
-		// Transform all children's Elements (and recursively)
-		subTransform();
 	}
 	
 	protected void propagateTransformation() {
@@ -392,9 +425,87 @@ public class Element implements Transformable, Shape, Generable {
 				subelements.get(i).propagateTransformation();
 			}
 		}		
+		invalidateWorldBounds(); // After the sub-Elements, so their parents are invalidated too
 
 	}
 	
+	// ***************************
+	// ***** Bounding volume *****
+	// ***************************
+	
+	/**
+	 * Invalidate the bounding boxes of this Element after a change of the position of its vertices.
+	 * Called by build(), rebuild() and addVertex(). Should be called after modifying the position of vertices in another way.
+	 */
+	public void invalidateBounds() {
+		boundsValid = false;
+		invalidateWorldBounds();
+	}
+	
+	/**
+	 * Invalidate the World bounding boxes of this Element and the subtree boxes of its super-Elements, after a change of its
+	 * transformation or of its sub-Elements. Sub-Elements are invalidated by propagateTransformation().
+	 * If the subtree box of the top level Element is invalidated, the octree of the World (if any) is notified to move it.
+	 */
+	protected void invalidateWorldBounds() {
+		worldBoundsValid = false;
+		Element e = this;
+		while (e.parent != null && e.parent.worldBoundsValid) {
+			e = e.parent;
+			e.worldBoundsValid = false;
+		}
+		if (e.parent == null && e.octree != null) e.octree.invalidate(e);
+	}
+	
+	/**
+	 * @return the box of the vertices of this Element in Model coordinates, null if the Element has no vertex
+	 */
+	public BoundingBox4 getBounds() {
+		if (!boundsValid) {
+			bounds = null;
+			if (vertices.size() > 0) {
+				Vector4[] points = new Vector4[vertices.size()];
+				for (int i=0; i<vertices.size(); i++) {
+					points[i] = vertices.get(i).getPos();
+				}
+				bounds = new BoundingBox4(points);
+			}
+			boundsValid = true;
+		}
+		return bounds;
+	}
+	
+	/**
+	 * The box in Model coordinates transformed by the full transformation of the Element, not a recalculation from the vertices:
+	 * it contains all vertices but may be larger than their exact box (if the transformation contains rotations)
+	 * @return the box of the vertices of this Element in World coordinates, null if the Element has no vertex
+	 */
+	public BoundingBox4 getWorldBounds() {
+		if (!worldBoundsValid) calculateWorldBounds();
+		return worldBounds;
+	}
+	
+	/**
+	 * @return the box of this Element and all its sub-Elements in World coordinates, null if none of them has a vertex
+	 */
+	public BoundingBox4 getSubtreeBounds() {
+		if (!worldBoundsValid) calculateWorldBounds();
+		return subtreeBounds;
+	}
+	
+	protected void calculateWorldBounds() {
+		BoundingBox4 b = getBounds();
+		worldBounds = b != null ? b.transform(full) : null;
+		subtreeBounds = worldBounds;
+		if (subelements != null) {
+			for (int i=0; i<subelements.size(); i++) {
+				BoundingBox4 sub = subelements.get(i).getSubtreeBounds();
+				if (sub != null) subtreeBounds = sub.union(subtreeBounds);
+			}
+		}
+		worldBoundsValid = true;
+	}
+	
 	// ********************************
 	// ***** Ligthing and Shading *****
 	// ********************************
@@ -431,6 +542,19 @@ public class Element implements Transformable, Shape, Generable {
 		this.isClosed = isClosed;
 	}
 
+	/**
+	 * Designate this Element as an occluder for occlusion culling (e.g. a wall). Large Elements with few triangles are also selected
+	 * automatically.
+	 * @param occluder true if this Element should be rasterized in the occluder depth buffer
+	 */
+	public void setOccluder(boolean occluder) {
+		this.occluder = occluder;
+	}
+	
+	public boolean isOccluder() {
+		return occluder;
+	}
+	
 	public String getName() {
 		return name;
 	}
@@ -498,15 +622,23 @@ public class Element implements Transformable, Shape, Generable {
 		this.generateVertices();
 		this.generateTriangles();
 		this.calculateNormals();
+		this.invalidateBounds();
 		this.subBuild();
 	}
 	
 	public void rebuild() {
+		// Back to the full tessellation, the coarser levels are generated again from it
+		int levels = getNbLevelsOfDetail();
+		setLevelOfDetail(0);
+		lodVertices = null;
+		lodTriangles = null;
 		// Clear the previously created triangles before generating the new set.
 		triangles.clear();
 		// Do same than generate except Vertices generation as they are assumed to be already existing (and likely modified)
 		this.generateTriangles();
 		this.calculateNormals();
+		this.invalidateBounds();
+		if (levels > 1) this.generateLevelsOfDetail(levels);
 		this.subRebuild();
 		
 	}
@@ -525,6 +657,116 @@ public class Element implements Transformable, Shape, Generable {
 		
 	}
 
+	// ***************************
+	// ***** Levels of detail *****
+	// ***************************
+	
+	/**
+	 * Generate coarser tessellations of this Element and its sub-Elements, to be selected at each frame from their size on the screen
+	 * (see selectLevelOfDetail()). To be called after build(). Each level has half the segments of the previous one, as far as the
+	 * shape allows it (see createLevelOfDetail()).
+	 * @param levels the number of levels, including the full tessellation (level 0)
+	 */
+	public void buildLevelsOfDetail(int levels) {
+		generateLevelsOfDetail(levels);
+		if (subelements != null) {
+			for (int i=0; i<subelements.size(); i++) {
+				subelements.get(i).buildLevelsOfDetail(levels);
+			}
+		}
+	}
+	
+	/**
+	 * Generate the coarser tessellations of this Element only
+	 * @param levels the number of levels, including the full tessellation (level 0)
+	 */
+	protected void generateLevelsOfDetail(int levels) {
+		setLevelOfDetail(0);
+		lodVertices = new ArrayList<ArrayList<Vertex>>();
+		lodTriangles = new ArrayList<ArrayList<Triangle>>();
+		lodVertices.add(vertices);
+		lodTriangles.add(triangles);
+		for (int l=1; l<levels; l++) {
+			Element e = createLevelOfDetail(l);
+			if (e == null) break;
+			lodVertices.add(e.getVertices());
+			lodTriangles.add(e.getTriangles());
+		}
+		if (lodVertices.size() == 1) {
+			lodVertices = null;
+			lodTriangles = null;
+		}
+	}
+	
+	/**
+	 * Create a coarser tessellation of this Element. Generated shapes override it to create the same shape with fewer segments, a
+	 * generic Element has no coarser level.
+	 * @param level the level of detail, from 1 (half the segments of the full tessellation)
+	 * @return a new Element, built, whose vertices and triangles are the ones of this level, or null if this level cannot be created
+	 */
+	protected Element createLevelOfDetail(int level) {
+		return null;
+	}
+	
+	/**
+	 * @return the number of levels of detail, 1 if there is only the full tessellation
+	 */
+	public int getNbLevelsOfDetail() {
+		return lodVertices != null ? lodVertices.size() : 1;
+	}
+	
+	public int getLevelOfDetail() {
+		return lod;
+	}
+	
+	/**
+	 * Use the vertices and triangles of a level of detail. The World position of the vertices of the new level is calculated, as
+	 * World.worldProject() may have been done with the previous one.
+	 * @param level the level, from 0 (full tessellation) to getNbLevelsOfDetail()-1
+	 */
+	public void setLevelOfDetail(int level) {
+		if (lodVertices == null) return;
+		level = Math.max(0, Math.min(lodVertices.size()-1, level));
+		if (level == lod) return;
+		lod = level;
+		vertices = lodVertices.get(level);
+		triangles = lodTriangles.get(level);
+		for (int i=0; i<vertices.size(); i++) {
+			Vertex v = vertices.get(i);
+			v.setWorldPos(full.times(v.getPos()));
+		}
+		invalidateBounds();
+	}
+	
+	/**
+	 * Set the projected radius of the bounding sphere under which the first coarser level of detail is used (halved at each level)
+	 * @param radius the radius in pixels
+	 */
+	public void setLevelOfDetailRadius(float radius) {
+		this.lodRadius = radius;
+	}
+	
+	public float getLevelOfDetailRadius() {
+		return lodRadius;
+	}
+	
+	/**
+	 * Select the level of detail from the size of this Element on the screen: level n is used under lodRadius/2^(n-1) pixels.
+	 * The level changes only when the radius is beyond a threshold by more than LOD_HYSTERESIS (relative), so an Element around a
+	 * threshold does not switch at each frame.
+	 * @param radius the projected radius of the bounding sphere in pixels
+	 * @return the level used
+	 */
+	public int selectLevelOfDetail(float radius) {
+		if (lodVertices == null) return 0;
+		int level = lod;
+		// Threshold between level l and l+1: lodRadius/2^l
+		while (level < lodVertices.size()-1 && radius < lodRadius / (1 << level) * (1 - LOD_HYSTERESIS)) level++;
+		while (level > 0 && radius > lodRadius / (1 << (level-1)) * (1 + LOD_HYSTERESIS)) level--;
+		setLevelOfDetail(level);
+		return lod;
+	}
+	
 	protected void subTransform() {
 		if (subelements != null) {
 			for (int i=0; i<subelements.size(); i++) {
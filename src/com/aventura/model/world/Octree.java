@@ -0,0 +1,393 @@
+package com.aventura.model.world;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+import com.aventura.math.tools.BoundingBox4;
+import com.aventura.math.vector.Vector4;
+
+/**
+ * ------------------------------------------------------------------------------
+ * MIT License
+ *
+ * Copyright (c) 2016-2026 Olivier BARRY
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ------------------------------------------------------------------------------
+ *
+ * Spatial index of the top level Elements of a World (see World.setOctreeEnabled()), from the box of each Element and all its
+ * sub-Elements in World coordinates (Element.getSubtreeBounds()).
+ *
+ * This is a loose octree: each cell is split into 8 children of half its size, and an Element is stored in the deepest cell containing
+ * the center of its box and whose loose box, twice the size of the cell, contains the whole box. So each Element is stored in a single
+ * cell, whatever its position compared to the limits of the cells, and its cell only depends on its size and its center.
+ *
+ * A cell of half size h contains the boxes centered in it of half size up to h: its loose box overlaps the neighbour cells by h.
+ *
+ * The octree is maintained by the World and the Elements: Elements added to the World are inserted, and the top level Elements whose
+ * box changes (transformation, vertices, level of detail...) are marked to be moved to their new cell at the next query. The root cell
+ * is sized on the boxes of all Elements, Elements outside of it are kept in a list tested by all queries, and the root is recalculated
+ * when this list grows too much. Elements without vertex (no box) are returned by all region queries.
+ *
+ * Results of the region queries are in the order of the World, so that rendering from the octree gives the same image as rendering
+ * all Elements of the World.
+ *
+ * @author Olivier BARRY
+ * @since October 2026
+ */
+public class Octree {
+
+	// Maximum depth of the cells, the root cell being at depth 0
+	public static final int MAX_DEPTH = 8;
+	// Elements outside the root cell above which the root is recalculated (and at least 1/8 of the Elements)
+	public static final int MAX_OUTSIDE = 8;
+
+	/**
+	 * A volume of World space tested against the cells and the boxes of the Elements by the region queries (e.g. a view frustum)
+	 */
+	public interface Region {
+		/**
+		 * @param box a box in World coordinates
+		 * @return false if the box is outside the region, true if it is (or may be) at least partially inside
+		 */
+		public boolean intersects(BoundingBox4 box);
+	}
+
+	/**
+	 * A cell of the octree
+	 */
+	protected static class Node {
+		protected Node parent;
+		protected float cx, cy, cz, half; // Center and half size of the cell
+		protected BoundingBox4 loose; // Box of the cell twice larger, containing the boxes of all Elements of the cell
+		protected Node[] children = null; // Created when needed
+		protected ArrayList<Entry> entries = new ArrayList<Entry>();
+		protected int count = 0; // Elements of this cell and its children, empty subtrees being skipped
+
+		protected Node(Node parent, float cx, float cy, float cz, float half) {
+			this.parent = parent;
+			this.cx = cx;
+			this.cy = cy;
+			this.cz = cz;
+			this.half = half;
+			this.loose = new BoundingBox4(cx-2*half, cy-2*half, cz-2*half, cx+2*half, cy+2*half, cz+2*half);
+		}
+
+		protected Node getChild(int i) {
+			if (children == null) children = new Node[8];
+			if (children[i] == null) {
+				float h = half/2;
+				children[i] = new Node(this, (i & 1) != 0 ? cx+h : cx-h, (i & 2) != 0 ? cy+h : cy-h, (i & 4) != 0 ? cz+h : cz-h, h);
+			}
+			return children[i];
+		}
+	}
+
+	/**
+	 * A top level Element of the World and its place in the octree
+	 */
+	protected static class Entry {
+		protected Element element;
+		protected int order; // Order of the Element in the World
+		protected BoundingBox4 box; // Box of the Element when inserted, null if it has no vertex
+		protected Node node = null; // null if outside the root cell or no box
+		protected boolean dirty = true;
+
+		protected Entry(Element element, int order) {
+			this.element = element;
+			this.order = order;
+		}
+	}
+
+	protected static final Comparator<Entry> WORLD_ORDER = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry e1, Entry e2) {
+			return Integer.compare(e1.order, e2.order);
+		}
+	};
+
+	protected HashMap<Element, Entry> index = new HashMap<Element, Entry>();
+	protected ArrayList<Entry> all = new ArrayList<Entry>(); // In the order of the World
+	protected ArrayList<Entry> dirty = new ArrayList<Entry>(); // To be moved before the next query
+	protected ArrayList<Entry> outside = new ArrayList<Entry>(); // Outside the root cell, or without box
+	protected int nbOutside = 0; // Entries with a box outside the root cell
+	protected Node root = null; // Calculated at the first query
+	protected ArrayList<Entry> found = new ArrayList<Entry>(); // Result of the last region query
+
+	// Statistics
+	protected int nodes = 0;
+	protected int rebuilds = 0;
+	protected int moved = 0;
+	protected int queries = 0;
+	protected int visited = 0; // Cells visited by the last query
+	protected int tested = 0; // Boxes of Elements tested by the last query
+
+	/**
+	 * Add a top level Element, placed in its cell at the next query
+	 * @param e the Element
+	 */
+	public void insert(Element e) {
+		if (index.containsKey(e)) return;
+		Entry entry = new Entry(e, all.size());
+		index.put(e, entry);
+		all.add(entry);
+		dirty.add(entry);
+		e.octree = this;
+	}
+
+	/**
+	 * Remove all Elements, they are no more notified of their changes
+	 */
+	public void clear() {
+		for (int i=0; i<all.size(); i++) {
+			all.get(i).element.octree = null;
+		}
+		index.clear();
+		all.clear();
+		dirty.clear();
+		outside.clear();
+		nbOutside = 0;
+		root = null;
+		nodes = 0;
+	}
+
+	/**
+	 * Called by the Element when its box in World coordinates has changed: it is moved to its new cell at the next query
+	 * @param e the top level Element
+	 */
+	protected void invalidate(Element e) {
+		Entry entry = index.get(e);
+		if (entry != null && !entry.dirty) {
+			entry.dirty = true;
+			dirty.add(entry);
+		}
+	}
+
+	/**
+	 * Move the Elements whose box has changed to their new cell, and recalculate the root cell at first call or if too many Elements
+	 * are outside of it
+	 */
+	protected void update() {
+		if (root == null) {
+			rebuild();
+			return;
+		}
+		if (dirty.isEmpty()) return;
+		for (int i=0; i<dirty.size(); i++) {
+			Entry entry = dirty.get(i);
+			remove(entry);
+			entry.box = entry.element.getSubtreeBounds();
+			entry.dirty = false;
+			place(entry);
+			moved++;
+		}
+		dirty.clear();
+		if (nbOutside > Math.max(MAX_OUTSIDE, all.size()/8)) rebuild();
+	}
+
+	/**
+	 * Size the root cell on the boxes of all Elements and place all of them
+	 */
+	protected void rebuild() {
+		BoundingBox4 union = null;
+		for (int i=0; i<all.size(); i++) {
+			Entry entry = all.get(i);
+			entry.box = entry.element.getSubtreeBounds();
+			entry.dirty = false;
+			entry.node = null;
+			if (entry.box != null) union = entry.box.union(union);
+		}
+		dirty.clear();
+		outside.clear();
+		nbOutside = 0;
+		if (union != null) {
+			float half = Math.max(union.getWidth(), Math.max(union.getHeight(), union.getDepth()))/2;
+			half = Math.max(half*1.01f, 1e-3f); // Margin for the rounding of the center
+			root = new Node(null, (union.getMinX()+union.getMaxX())/2, (union.getMinY()+union.getMaxY())/2, (union.getMinZ()+union.getMaxZ())/2, half);
+		} else {
+			root = new Node(null, 0, 0, 0, 1);
+		}
+		nodes = 1;
+		for (int i=0; i<all.size(); i++) {
+			place(all.get(i));
+		}
+		rebuilds++;
+	}
+
+	/**
+	 * Store an Entry in the deepest cell containing its box in its loose box
+	 */
+	protected void place(Entry entry) {
+		BoundingBox4 b = entry.box;
+		if (b == null) {
+			outside.add(entry);
+			return;
+		}
+		float x = (b.getMinX()+b.getMaxX())/2;
+		float y = (b.getMinY()+b.getMaxY())/2;
+		float z = (b.getMinZ()+b.getMaxZ())/2;
+		float r = Math.max(b.getWidth(), Math.max(b.getHeight(), b.getDepth()))/2;
+		Node n = root;
+		if (r > n.half || Math.abs(x-n.cx) > n.half || Math.abs(y-n.cy) > n.half || Math.abs(z-n.cz) > n.half) {
+			outside.add(entry);
+			nbOutside++;
+			return;
+		}
+		for (int d=0; d<MAX_DEPTH && r <= n.half/2; d++) {
+			int i = (x >= n.cx ? 1 : 0) | (y >= n.cy ? 2 : 0) | (z >= n.cz ? 4 : 0);
+			if (n.children == null || n.children[i] == null) nodes++;
+			n = n.getChild(i);
+		}
+		n.entries.add(entry);
+		entry.node = n;
+		for (Node p = n; p != null; p = p.parent) p.count++;
+	}
+
+	protected void remove(Entry entry) {
+		if (entry.node == null) {
+			if (outside.remove(entry) && entry.box != null) nbOutside--;
+			return;
+		}
+		entry.node.entries.remove(entry);
+		for (Node p = entry.node; p != null; p = p.parent) p.count--;
+		entry.node = null;
+	}
+
+	/**
+	 * Find the top level Elements whose box intersects a region
+	 * @param region the region in World coordinates (e.g. a view frustum)
+	 * @param result the list filled with the Elements in the order of the World (cleared first)
+	 * @return the result list
+	 */
+	public ArrayList<Element> query(Region region, ArrayList<Element> result) {
+		update();
+		queries++;
+		visited = 0;
+		tested = 0;
+		found.clear();
+		for (int i=0; i<outside.size(); i++) {
+			Entry entry = outside.get(i);
+			tested++;
+			if (entry.box == null || region.intersects(entry.box)) found.add(entry);
+		}
+		query(root, region);
+		Collections.sort(found, WORLD_ORDER);
+		result.clear();
+		for (int i=0; i<found.size(); i++) {
+			result.add(found.get(i).element);
+		}
+		return result;
+	}
+
+	protected void query(Node n, Region region) {
+		if (n.count == 0) return;
+		visited++;
+		if (!region.intersects(n.loose)) return;
+		for (int i=0; i<n.entries.size(); i++) {
+			Entry entry = n.entries.get(i);
+			tested++;
+			if (region.intersects(entry.box)) found.add(entry);
+		}
+		if (n.children != null) {
+			for (int i=0; i<8; i++) {
+				if (n.children[i] != null) query(n.children[i], region);
+			}
+		}
+	}
+
+	/**
+	 * Find the top level Element whose box is the nearest to a point (distance 0 if the point is in the box)
+	 * @param p the point in World coordinates
+	 * @return the nearest Element, the first one in the order of the World if several ones are at the same distance, null if no
+	 * Element has a box
+	 */
+	public Element nearest(Vector4 p) {
+		update();
+		queries++;
+		visited = 0;
+		tested = 0;
+		Entry[] best = new Entry[1];
+		float[] bestDist = new float[] {Float.MAX_VALUE};
+		for (int i=0; i<outside.size(); i++) {
+			nearest(outside.get(i), p, best, bestDist);
+		}
+		nearest(root, p, best, bestDist);
+		return best[0] != null ? best[0].element : null;
+	}
+
+	protected void nearest(Node n, Vector4 p, Entry[] best, float[] bestDist) {
+		if (n.count == 0 || distance(n.loose, p) > bestDist[0]) return;
+		visited++;
+		for (int i=0; i<n.entries.size(); i++) {
+			nearest(n.entries.get(i), p, best, bestDist);
+		}
+		if (n.children != null) {
+			for (int i=0; i<8; i++) {
+				if (n.children[i] != null) nearest(n.children[i], p, best, bestDist);
+			}
+		}
+	}
+
+	protected void nearest(Entry entry, Vector4 p, Entry[] best, float[] bestDist) {
+		if (entry.box == null) return;
+		tested++;
+		float d = distance(entry.box, p);
+		if (best[0] == null || d < bestDist[0] || (d == bestDist[0] && entry.order < best[0].order)) {
+			best[0] = entry;
+			bestDist[0] = d;
+		}
+	}
+
+	/**
+	 * @return the distance from a point to a box, 0 if the point is inside
+	 */
+	protected static float distance(BoundingBox4 b, Vector4 p) {
+		float dx = Math.max(0, Math.max(b.getMinX()-p.getX(), p.getX()-b.getMaxX()));
+		float dy = Math.max(0, Math.max(b.getMinY()-p.getY(), p.getY()-b.getMaxY()));
+		float dz = Math.max(0, Math.max(b.getMinZ()-p.getZ(), p.getZ()-b.getMaxZ()));
+		return (float)Math.sqrt(dx*dx + dy*dy + dz*dz);
+	}
+
+	/**
+	 * @return the number of top level Elements indexed
+	 */
+	public int getNbElements() {
+		return all.size();
+	}
+
+	/**
+	 * @return the number of cells visited by the last query
+	 */
+	public int getVisited() {
+		return visited;
+	}
+
+	/**
+	 * @return the number of boxes of Elements tested by the last query
+	 */
+	public int getTested() {
+		return tested;
+	}
+
+	public String renderStats() {
+		return "Octree - Elements: " + all.size() + ", cells: " + nodes + ", outside root cell: " + nbOutside + ", root recalculated: " + rebuilds + " time(s), Elements moved: " + moved + ", queries: " + queries + ". Last query: cells visited: " + visited + ", Elements tested: " + tested;
+	}
+}
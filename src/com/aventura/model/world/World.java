@@ -3,6 +3,7 @@ package com.aventura.model.world;
 import java.awt.Color;
 import java.util.ArrayList;
 
+import com.aventura.math.tools.BoundingBox4;
 import com.aventura.math.transform.Transformation;
 import com.aventura.math.vector.Matrix4;
 import com.aventura.math.vector.Vector4;
@@ -48,6 +49,7 @@ public class World {
 	protected String name;
 	
 	protected ArrayList<Element> elements; // Elements connected to the world (not all Elements as some elements may also have subelements)
+	protected Octree octree = null; // Spatial index of the Elements connected to the world, null if not enabled
 		
 	// Color Management
 	protected Color backgroundColor = Color.BLACK; // Color of the background ("sky")
@@ -65,12 +67,59 @@ public class World {
 	
 	public Element createElement() {
 		Element e = new Element();
-		this.elements.add(e);
+		addElement(e);
 		return e;
 	}
 	
 	public void addElement(Element e) {
 		this.elements.add(e);
+		if (octree != null) octree.insert(e);
+	}
+	
+	/**
+	 * Enable or disable the spatial index of the Elements connected to the world. Once enabled, the RenderEngine and the shadowing
+	 * lights only process the Elements in their view volume, found from the octree instead of scanning all Elements.
+	 * @param enabled true to create the octree (with all Elements already connected), false to remove it
+	 */
+	public void setOctreeEnabled(boolean enabled) {
+		if (enabled && octree == null) {
+			octree = new Octree();
+			for (int i=0; i<elements.size(); i++) {
+				octree.insert(elements.get(i));
+			}
+		} else if (!enabled && octree != null) {
+			octree.clear();
+			octree = null;
+		}
+	}
+	
+	/**
+	 * @return the spatial index of the Elements connected to the world, null if not enabled
+	 */
+	public Octree getOctree() {
+		return octree;
+	}
+	
+	/**
+	 * Find the Element connected to the world whose box (including its sub-Elements) is the nearest to a point, from the octree if
+	 * enabled, by scanning all Elements otherwise
+	 * @param p the point in World coordinates
+	 * @return the nearest Element, null if no Element has a vertex
+	 */
+	public Element getNearestElement(Vector4 p) {
+		if (octree != null) return octree.nearest(p);
+		Element nearest = null;
+		float min = Float.MAX_VALUE;
+		for (int i=0; i<elements.size(); i++) {
+			BoundingBox4 b = elements.get(i).getSubtreeBounds();
+			if (b == null) continue;
+			float d = Octree.distance(b, p);
+			if (d < min) {
+				min = d;
+				nearest = elements.get(i);
+			}
+		}
+		return nearest;
 	}
 	
 	public ArrayList<Element> getElements() {
@@ -146,4 +146,13 @@ public class Cone extends Element {
 		}
 		calculateSubNormals();
 	}
+	
+	@Override
+	protected Element createLevelOfDetail(int level) {
+		int s = half_seg >> level;
+		if (s < 2) return null;
+		Cone e = new Cone(height, ray, s, tex);
+		e.build();
+		return e;
+	}
 }
@@ -133,4 +133,13 @@ public class Cylinder extends Element {
 		
 		//calculateSubNormals();
 	}
+	
+	@Override
+	protected Element createLevelOfDetail(int level) {
+		int s = half_seg >> level;
+		if (s < 2) return null;
+		Cylinder e = new Cylinder(height, ray, s, tex);
+		e.build();
+		return e;
+	}
 }
@@ -141,5 +141,14 @@ public class Sphere extends Element {
 		}
 		calculateSubNormals();
 	}
+	
+	@Override
+	protected Element createLevelOfDetail(int level) {
+		int s = half_seg >> level;
+		if (s < 2) return null;
+		Sphere e = new Sphere(ray, s, tex);
+		e.build();
+		return e;
+	}
 
 }
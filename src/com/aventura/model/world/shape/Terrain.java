@@ -0,0 +1,264 @@
+package com.aventura.model.world.shape;
+
+import java.awt.Color;
+
+import com.aventura.math.vector.Vector4;
+import com.aventura.model.texture.Texture;
+import com.aventura.model.world.Element;
+import com.aventura.model.world.WrongArraySizeException;
+
+/**
+ * ------------------------------------------------------------------------------
+ * MIT License
+ *
+ * Copyright (c) 2016-2026 Olivier BARRY
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ------------------------------------------------------------------------------
+ *
+ * A Terrain is a heightfield of nx x ny segments, same geometry than a Trellis (centered on origin, altitudes on the z axis), split into
+ * square chunks of chunk x chunk segments. Each chunk is a sub-Element (TerrainChunk) so that:
+ * - the chunks outside the view frustum are skipped by the RenderEngine from their bounding box, without touching their vertices
+ * - each chunk has its own levels of detail (geomipmapping), selected from its distance to the camera when the level of detail is
+ *   enabled in the RenderContext: level l takes one height out of 2^l of the heightfield in each direction, down to a single quad
+ *   per chunk
+ *
+ * The edges of a chunk next to a coarser chunk are stitched to it: their vertices that the coarser chunk does not have are collapsed
+ * on its nearest vertex, so both edges are made of the same segments and there is no crack (nor T-junction) between chunks of
+ * different levels.
+ *
+ *  Example: 8 x 8 segments, chunks of 4 x 4 segments, chunk (1,0) at level 1
+ *
+ *  +-+-+-+-+---+---+
+ *  | | | | |   |   |
+ *  +-+-+-+-+   |   |
+ *  | | | | |   |   |
+ *  +-+-+-+-+---+---+
+ *  | | | | |   |   |
+ *  +-+-+-+-+   |   |
+ *  | | | | |   |   |
+ *  +-+-+-+-+---+---+
+ *
+ * @author Olivier BARRY
+ * @since October 2026
+ */
+public class Terrain extends Element {
+
+	protected static final String TERRAIN_DEFAULT_NAME = "terrain";
+
+	protected int nx, ny; // Segments of the heightfield
+	protected float width, length;
+	protected int chunk; // Segments of a chunk on each side (power of 2)
+	protected int levels; // Levels of detail of the chunks
+	protected float[][] heights; // Altitudes of the (nx+1) x (ny+1) vertices
+	protected Texture tex = null;
+	protected TerrainChunk[][] chunks;
+
+	/**
+	 * Create a new Terrain of size width and length on x and y axis and made of nx and ny segments (respectively nx+1 and ny+1 vertices)
+	 * Use the z axis altitudes from the provided array.
+	 * This Terrain is centered on origin
+	 * @param width
+	 * @param length
+	 * @param nx
+	 * @param ny
+	 * @param chunk the number of segments of a chunk on each side, a power of 2 dividing nx and ny
+	 * @param array
+	 */
+	public Terrain(float width, float length, int nx, int ny, int chunk, float [][] array) throws WrongArraySizeException {
+		this(width, length, nx, ny, chunk, array, null);
+	}
+
+	/**
+	 * Create a new Terrain of size width and length on x and y axis and made of nx and ny segments (respectively nx+1 and ny+1 vertices)
+	 * Use the z axis altitudes from the provided array. The texture is applied once on the whole Terrain.
+	 * This Terrain is centered on origin
+	 * @param width
+	 * @param length
+	 * @param nx
+	 * @param ny
+	 * @param chunk the number of segments of a chunk on each side, a power of 2 dividing nx and ny
+	 * @param array
+	 * @param tex
+	 */
+	public Terrain(float width, float length, int nx, int ny, int chunk, float [][] array, Texture tex) throws WrongArraySizeException {
+		super(TERRAIN_DEFAULT_NAME);
+		this.width = width;
+		this.length = length;
+		this.nx = nx;
+		this.ny = ny;
+		this.chunk = chunk;
+		this.tex = tex;
+		if ((array.length != nx+1) || (array[0].length != ny+1)) {
+			throw new WrongArraySizeException("Array should be of size("+(nx+1)+","+(ny+1)+") but is of size("+array.length+","+array[0].length+")");
+		}
+		if (chunk < 1 || (chunk & (chunk-1)) != 0 || nx % chunk != 0 || ny % chunk != 0) {
+			throw new WrongArraySizeException("Chunks of "+chunk+" segments cannot split a Terrain of ("+nx+","+ny+") segments");
+		}
+		this.levels = Integer.numberOfTrailingZeros(chunk) + 1;
+		this.heights = new float[nx+1][ny+1];
+		for (int i=0; i<=nx; i++) {
+			System.arraycopy(array[i], 0, heights[i], 0, ny+1);
+		}
+
+		chunks = new TerrainChunk[nx/chunk][ny/chunk];
+		for (int i=0; i<nx/chunk; i++) {
+			for (int j=0; j<ny/chunk; j++) {
+				chunks[i][j] = new TerrainChunk(this, i, j, 0);
+				addElement(chunks[i][j]);
+			}
+		}
+	}
+
+	/**
+	 * Build the chunks and their levels of detail
+	 */
+	@Override
+	public void build() {
+		super.build();
+		buildLevelsOfDetail(levels);
+	}
+
+	/**
+	 * Update the altitudes of the Terrain. rebuild() should be called afterwards to recalculate the normals and the levels of detail.
+	 * @param array the new altitudes, of size (nx+1) x (ny+1)
+	 */
+	public void updateTerrain(float [][] array) throws WrongArraySizeException {
+		if ((array.length != nx+1) || (array[0].length != ny+1)) {
+			throw new WrongArraySizeException("Array should be of size("+(nx+1)+","+(ny+1)+") but is of size("+array.length+","+array[0].length+")");
+		}
+		for (int i=0; i<=nx; i++) {
+			System.arraycopy(array[i], 0, heights[i], 0, ny+1);
+		}
+		for (int i=0; i<chunks.length; i++) {
+			for (int j=0; j<chunks[i].length; j++) {
+				chunks[i][j].initVertices();
+			}
+		}
+	}
+
+	/**
+	 * Set the projected radius under which the chunks use their first coarser level of detail
+	 * @see Element#setLevelOfDetailRadius(float)
+	 */
+	@Override
+	public void setLevelOfDetailRadius(float radius) {
+		super.setLevelOfDetailRadius(radius);
+		for (int i=0; i<chunks.length; i++) {
+			for (int j=0; j<chunks[i].length; j++) {
+				chunks[i][j].setLevelOfDetailRadius(radius);
+			}
+		}
+	}
+
+	@Override
+	public void setSpecularExp(float e) {
+		super.setSpecularExp(e);
+		for (int i=0; i<chunks.length; i++) {
+			for (int j=0; j<chunks[i].length; j++) {
+				chunks[i][j].setSpecularExp(e);
+			}
+		}
+	}
+
+	@Override
+	public void setSpecularColor(Color c) {
+		super.setSpecularColor(c);
+		for (int i=0; i<chunks.length; i++) {
+			for (int j=0; j<chunks[i].length; j++) {
+				chunks[i][j].setSpecularColor(c);
+			}
+		}
+	}
+
+	/**
+	 * @param i index of the vertex on x axis, from 0 to nx
+	 * @param j index of the vertex on y axis, from 0 to ny
+	 * @return the position of the vertex of the heightfield in Model coordinates
+	 */
+	public Vector4 getPosition(int i, int j) {
+		return new Vector4(i*width/nx - width/2, j*length/ny - length/2, heights[i][j], 1);
+	}
+
+	public float getAltitude(int i, int j) {
+		return heights[i][j];
+	}
+
+	/**
+	 * Position of the vertex of a coarser tessellation nearest to the vertex (i, j) of the heightfield, on the same edge
+	 * @param i index of the vertex on x axis
+	 * @param j index of the vertex on y axis
+	 * @param alongX true if the edge is along the x axis, false along the y axis
+	 * @param step the number of segments of the heightfield between 2 vertices of the coarser tessellation
+	 * @return the position in Model coordinates
+	 */
+	protected Vector4 getEdgePosition(int i, int j, boolean alongX, int step) {
+		int k = alongX ? i : j;
+		k = (k + step/2) / step * step;
+		return alongX ? getPosition(k, j) : getPosition(i, k);
+	}
+
+	/**
+	 * @return the level of detail of the chunk (i, j), -1 if there is no such chunk (edge of the Terrain)
+	 */
+	protected int getChunkLevel(int i, int j) {
+		if (i < 0 || j < 0 || i >= chunks.length || j >= chunks[i].length) return -1;
+		return chunks[i][j].getLevelOfDetail();
+	}
+
+	public TerrainChunk getChunk(int i, int j) {
+		return chunks[i][j];
+	}
+
+	public int getNbChunksX() {
+		return chunks.length;
+	}
+
+	public int getNbChunksY() {
+		return chunks[0].length;
+	}
+
+	public int getChunkSize() {
+		return chunk;
+	}
+
+	public int getNx() {
+		return nx;
+	}
+
+	public int getNy() {
+		return ny;
+	}
+
+	public float getWidth() {
+		return width;
+	}
+
+	public float getLength() {
+		return length;
+	}
+
+	public Texture getTexture() {
+		return tex;
+	}
+
+	public String toString() {
+		return super.toString()+"\n* width: "+width+", length: "+length+", nx: "+nx+", ny: "+ny+", chunks: "+chunks.length+" x "+chunks[0].length+" of "+chunk+" segments, levels of detail: "+levels;
+	}
+}
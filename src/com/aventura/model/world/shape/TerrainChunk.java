@@ -0,0 +1,235 @@
+package com.aventura.model.world.shape;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import com.aventura.math.vector.Vector4;
+import com.aventura.model.world.Element;
+import com.aventura.model.world.Vertex;
+import com.aventura.model.world.triangle.Triangle;
+
+/**
+ * ------------------------------------------------------------------------------
+ * MIT License
+ *
+ * Copyright (c) 2016-2026 Olivier BARRY
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ------------------------------------------------------------------------------
+ *
+ * A chunk of a Terrain: a grid of vertices taking one height out of 2^level of the heightfield of the Terrain in each direction.
+ * The chunk of level 0 is the sub-Element of the Terrain, the coarser levels are its levels of detail (see Element.buildLevelsOfDetail()).
+ *
+ * Stitching: before the World position of its vertices is calculated (i.e. only if the chunk is in the view frustum), the vertices of
+ * each edge of the current level that a coarser neighbour chunk does not have are collapsed on its nearest vertex, or put back at
+ * their position otherwise. The triangles between 2 collapsed vertices become degenerate and are not rasterized. This is done again
+ * only when the levels of the chunk or of its neighbours have changed.
+ * Normals are calculated from the heightfield of the Terrain, so they are continuous between chunks.
+ *
+ * Triangles are the same than a Trellis (MESH_ALTERNATE_TRIANGLES), with texture coordinates in the whole Terrain.
+ *
+ * @author Olivier BARRY
+ * @since October 2026
+ */
+public class TerrainChunk extends Element {
+
+	protected static final String TERRAIN_CHUNK_DEFAULT_NAME = "terrain chunk";
+
+	// Edges of a chunk
+	protected static final int WEST = 0;
+	protected static final int EAST = 1;
+	protected static final int SOUTH = 2;
+	protected static final int NORTH = 3;
+
+	protected Terrain terrain;
+	protected int ci, cj; // Position of the chunk in the Terrain
+	protected int step; // Segments of the heightfield between 2 vertices of this tessellation (2^level)
+	protected int m; // Segments of this tessellation on each side
+	protected Vertex[][] grid; // (m+1) x (m+1) vertices
+
+	// Chunk of level 0 only: grid of each level and levels of the edges they are stitched to, packed (-1 if not stitched yet)
+	protected ArrayList<Vertex[][]> grids;
+	protected int[] stitching;
+
+	/**
+	 * Create a chunk of a Terrain. Created by the Terrain (level 0) and by the chunk itself (coarser levels).
+	 * @param terrain the Terrain
+	 * @param ci index of the chunk on x axis
+	 * @param cj index of the chunk on y axis
+	 * @param level the level of detail of this tessellation
+	 */
+	protected TerrainChunk(Terrain terrain, int ci, int cj, int level) {
+		super(TERRAIN_CHUNK_DEFAULT_NAME);
+		subelements = null;
+		this.terrain = terrain;
+		this.ci = ci;
+		this.cj = cj;
+		this.step = 1 << level;
+		this.m = terrain.getChunkSize() / step;
+		this.grid = createVertexMesh(m+1, m+1);
+		initVertices();
+		this.grids = new ArrayList<Vertex[][]>();
+		this.grids.add(grid);
+		this.stitching = new int[] {-1};
+	}
+
+	/**
+	 * Set the position of the vertices of this tessellation from the heightfield of the Terrain
+	 */
+	protected void initVertices() {
+		for (int i=0; i<=m; i++) {
+			for (int j=0; j<=m; j++) {
+				grid[i][j].setPos(terrain.getPosition(ci*terrain.getChunkSize() + i*step, cj*terrain.getChunkSize() + j*step));
+			}
+		}
+		if (stitching != null) Arrays.fill(stitching, -1);
+		invalidateBounds();
+	}
+
+	public void generateVertices() {
+		// Nothing to do, all is already done by constructor
+	}
+
+	public void generateTriangles() {
+		int n = terrain.getChunkSize();
+		float nx = terrain.getNx();
+		float ny = terrain.getNy();
+		for (int i=0; i<m; i++) {
+			for (int j=0; j<m; j++) {
+				Triangle t1, t2;
+				// Indexes in the whole heightfield, for the alternate diagonals and the texture
+				int gi = ci*n/step + i;
+				int gj = cj*n/step + j;
+				Vector4 tv1 = new Vector4(gi*step/nx, gj*step/ny, 0, 1);
+				Vector4 tv2 = new Vector4((gi+1)*step/nx, gj*step/ny, 0, 1);
+				Vector4 tv3 = new Vector4((gi+1)*step/nx, (gj+1)*step/ny, 0, 1);
+				Vector4 tv4 = new Vector4(gi*step/nx, (gj+1)*step/ny, 0, 1);
+				if (gi%2 == gj%2) {
+					//   j+1 +---+
+					//       | / |
+					//    j  +---+
+					//       i  i+1
+					t1 = new Triangle(grid[i][j], grid[i+1][j], grid[i+1][j+1]);
+					t2 = new Triangle(grid[i+1][j+1], grid[i][j+1], grid[i][j]);
+					if (terrain.getTexture() != null) {
+						t1.setTexture(terrain.getTexture(), tv1, tv2, tv3);
+						t2.setTexture(terrain.getTexture(), tv3, tv4, tv1);
+					}
+				} else {
+					//   j+1 +---+
+					//       | \ |
+					//    j  +---+
+					//       i  i+1
+					t1 = new Triangle(grid[i][j+1], grid[i][j], grid[i+1][j]);
+					t2 = new Triangle(grid[i+1][j], grid[i+1][j+1], grid[i][j+1]);
+					if (terrain.getTexture() != null) {
+						t1.setTexture(terrain.getTexture(), tv4, tv1, tv2);
+						t2.setTexture(terrain.getTexture(), tv2, tv3, tv4);
+					}
+				}
+				if (terrain.getTexture() != null) {
+					t1.setRectoVerso(!isClosed());
+					t2.setRectoVerso(!isClosed());
+				}
+				addTriangle(t1);
+				addTriangle(t2);
+			}
+		}
+	}
+
+	@Override
+	public void calculateNormals() {
+		// Same as Trellis, from the N, S, W and E vertices of this tessellation in the heightfield, including the ones of the neighbour chunks
+		int n = terrain.getChunkSize();
+		for (int i=0; i<=m; i++) {
+			for (int j=0; j<=m; j++) {
+				int x = ci*n + i*step;
+				int y = cj*n + j*step;
+				Vector4 xavg = terrain.getPosition(Math.min(x+step, terrain.getNx()), y).minus(terrain.getPosition(Math.max(x-step, 0), y));
+				Vector4 yavg = terrain.getPosition(x, Math.min(y+step, terrain.getNy())).minus(terrain.getPosition(x, Math.max(y-step, 0)));
+				Vector4 normal = xavg.times(yavg);
+				grid[i][j].setNormal(normal.normalize().V3());
+			}
+		}
+	}
+
+	@Override
+	protected void generateLevelsOfDetail(int levels) {
+		grids = new ArrayList<Vertex[][]>();
+		grids.add(grid);
+		super.generateLevelsOfDetail(levels);
+		stitching = new int[grids.size()];
+		Arrays.fill(stitching, -1);
+	}
+
+	@Override
+	protected Element createLevelOfDetail(int level) {
+		if ((terrain.getChunkSize() >> level) < 1) return null;
+		TerrainChunk c = new TerrainChunk(terrain, ci, cj, level);
+		c.build();
+		grids.add(c.grid);
+		return c;
+	}
+
+	/**
+	 * Stitch the edges of the current level before calculating the World position of its vertices
+	 */
+	@Override
+	public void transformVertices() {
+		stitch();
+		super.transformVertices();
+	}
+
+	/**
+	 * Collapse the vertices of each edge of the current level on the vertices of the neighbour chunk if it is coarser, or put them back
+	 */
+	protected void stitch() {
+		int level = getLevelOfDetail();
+		int[] edges = new int[4];
+		edges[WEST] = Math.max(level, terrain.getChunkLevel(ci-1, cj));
+		edges[EAST] = Math.max(level, terrain.getChunkLevel(ci+1, cj));
+		edges[SOUTH] = Math.max(level, terrain.getChunkLevel(ci, cj-1));
+		edges[NORTH] = Math.max(level, terrain.getChunkLevel(ci, cj+1));
+		int key = edges[WEST] | edges[EAST] << 8 | edges[SOUTH] << 16 | edges[NORTH] << 24;
+		if (stitching[level] == key) return;
+		stitching[level] = key;
+
+		Vertex[][] g = grids.get(level);
+		int s = 1 << level;
+		int size = g.length - 1;
+		int n = terrain.getChunkSize();
+		for (int k=0; k<=size; k++) {
+			int x = ci*n + k*s;
+			int y = cj*n + k*s;
+			g[0][k].setPos(terrain.getEdgePosition(ci*n, y, false, 1 << edges[WEST]));
+			g[size][k].setPos(terrain.getEdgePosition((ci+1)*n, y, false, 1 << edges[EAST]));
+			g[k][0].setPos(terrain.getEdgePosition(x, cj*n, true, 1 << edges[SOUTH]));
+			g[k][size].setPos(terrain.getEdgePosition(x, (cj+1)*n, true, 1 << edges[NORTH]));
+		}
+		invalidateBounds();
+	}
+
+	public int getChunkX() {
+		return ci;
+	}
+
+	public int getChunkY() {
+		return cj;
+	}
+}
@@ -141,4 +141,14 @@ public class Torus extends Element {
 		
 		calculateSubNormals();
 	}
+	
+	@Override
+	protected Element createLevelOfDetail(int level) {
+		int c = half_circ >> level;
+		int s = half_seg >> level;
+		if (c < 2 || s < 2) return null;
+		Torus e = new Torus(torus_ray, pipe_ray, c, s, tex);
+		e.build();
+		return e;
+	}
 }
@@ -57,6 +57,7 @@ public class Trellis extends Element {
 	protected int nx, ny;
 	protected float width, length;
 	protected Vector4 position;
+	protected Texture tex = null;
 
 	/**
 	 * Create a new Trellis of size width and length on x and y axis and made of nx and ny segments (respectively nx+1 and ny+1 vertices)
@@ -97,6 +98,7 @@ public class Trellis extends Element {
 		this.nx = nx;
 		this.ny = ny;
 		this.position = new Vector4(-width/2,-length/2,0,0);
+		this.tex = tex;
 		rectangleMesh = new RectangleMesh(this, nx+1, ny+1, tex);
 		initTrellis(position);
 	}
@@ -147,6 +149,7 @@ public class Trellis extends Element {
 		if ((array.length != nx+1) || (array[0].length != ny+1)) {
 			throw new WrongArraySizeException("Array should be of size("+nx+1+","+ny+1+") but is of size("+array.length+","+array[0].length+")");
 		}
+		this.tex = tex;
 		rectangleMesh = new RectangleMesh(this, nx+1, ny+1, tex);
 		initTrellis(position, array);
 	}
@@ -267,4 +270,22 @@ public class Trellis extends Element {
 		// Select the corresponding Vertex in the RectangleMesh and set the Z altitude of the Vertex
 		rectangleMesh.getVertex(x, y).getPos().setZ(altitude);
 	}
+	
+	/**
+	 * Coarser Trellis taking one vertex out of 2^level of this one in each direction (same altitudes), nx and ny should be multiples of 2^level
+	 */
+	@Override
+	protected Element createLevelOfDetail(int level) {
+		int sx = nx >> level;
+		int sy = ny >> level;
+		if (sx < 1 || sy < 1 || sx << level != nx || sy << level != ny) return null;
+		Trellis e = new Trellis(width, length, sx, sy, tex);
+		for (int i=0; i<=sx; i++) {
+			for (int j=0; j<=sy; j++) {
+				e.rectangleMesh.getVertex(i, j).setPos(new Vector4(rectangleMesh.getVertex(i << level, j << level).getPos()));
+			}
+		}
+		e.build();
+		return e;
+	}
 }
@@ -0,0 +1,172 @@
+package com.aventura.test;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+import com.aventura.context.PerspectiveContext;
+import com.aventura.context.RenderContext;
+import com.aventura.engine.Rasterizer;
+import com.aventura.engine.RenderEngine;
+import com.aventura.math.transform.Translation;
+import com.aventura.math.vector.Vector3;
+import com.aventura.math.vector.Vector4;
+import com.aventura.model.camera.Camera;
+import com.aventura.model.light.AmbientLight;
+import com.aventura.model.light.DirectionalLight;
+import com.aventura.model.light.Lighting;
+import com.aventura.model.texture.Texture;
+import com.aventura.model.world.World;
+import com.aventura.model.world.shape.Sphere;
+import com.aventura.view.SwingView;
+
+/**
+ * ------------------------------------------------------------------------------
+ * MIT License
+ *
+ * Copyright (c) 2016-2026 Olivier BARRY
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * This class is a benchmark of the span kernels of the Rasterizer (scalar and vector, see VectorSpanKernel).
+ * Each scene is rendered offscreen (SwingView without component) several times with each kernel, alternately, after the same number
+ * of warm-up frames with both kernels. The best rendering time is printed for each kernel with the speedup and the number of pixels
+ * differing between the 2 resulting images.
+ *
+ * Usage: java --add-modules jdk.incubator.vector BenchmarkSpanKernel [number of frames] [pixels per unit]
+ * To be run from the project directory (textures are loaded from resources/texture)
+ * Without the jdk.incubator.vector module, the vector kernel falls back to the scalar one (speedup close to 1)
+ *
+ * @author Olivier BARRY
+ * @since October 2026
+ */
+
+public class BenchmarkSpanKernel {
+
+	/**
+	 * Scene with a big textured sphere (see TestSphereTexture)
+	 */
+	public static World createSphereTextureScene() {
+		World world = new World();
+		Texture tex = new Texture("resources/texture/texture_mars_2048x1024.jpg");
+		Sphere sph = new Sphere(1.2f, 36, tex);
+		sph.setSpecularExp(10);
+		sph.setSpecularColor(new Color(100,100,100));
+		world.addElement(sph);
+		world.build();
+		return world;
+	}
+
+	/**
+	 * Scene with the textured Earth and Moon (see EarthAndMoon)
+	 */
+	public static World createEarthAndMoonScene() {
+		World world = new World();
+		Sphere earth = new Sphere(12.742f, 48, new Texture("resources/texture/texture_earthtruecolor_nasa_big_2048x1024.jpg"));
+		earth.setSpecularExp(4);
+		earth.setSpecularColor(new Color(100,100,100));
+		world.addElement(earth);
+		Sphere moon = new Sphere(3.474f, 48, new Texture("resources/texture/texture_moon_2048x1024.jpg"));
+		moon.setSpecularExp(4);
+		moon.setSpecularColor(new Color(100,100,100));
+		moon.setTransformation(new Translation(new Vector4(384.4f,0,0,0)));
+		world.addElement(moon);
+		world.build();
+		return world;
+	}
+
+	/**
+	 * Render a World with each span kernel and print the results
+	 */
+	public static void benchmark(String name, World world, Lighting light, Camera camera, RenderContext rContext, PerspectiveContext pContext, int frames) {
+
+		int[][] pixels = new int[2][];
+		long[] best = new long[2];
+		int[] kernels = {RenderContext.SPAN_KERNEL_SCALAR, RenderContext.SPAN_KERNEL_VECTOR};
+		SwingView[] views = new SwingView[kernels.length];
+		RenderEngine[] renderers = new RenderEngine[kernels.length];
+
+		for (int k=0; k<kernels.length; k++) {
+			RenderContext rc = new RenderContext(rContext);
+			rc.setSpanKernel(kernels[k]);
+			views[k] = new SwingView(pContext);
+			renderers[k] = new RenderEngine(world, light, camera, rc, pContext);
+			renderers[k].setView(views[k]);
+			best[k] = Long.MAX_VALUE;
+		}
+
+		// Warm-up of both kernels before timing, so that none of them is timed while being compiled by the JIT
+		for (int i=0; i<frames; i++) {
+			for (int k=0; k<kernels.length; k++) {
+				renderers[k].render();
+			}
+		}
+
+		// Kernels timed alternately, in the same conditions
+		for (int i=0; i<frames; i++) {
+			for (int k=0; k<kernels.length; k++) {
+				long start = System.nanoTime();
+				renderers[k].render();
+				best[k] = Math.min(best[k], System.nanoTime() - start);
+			}
+		}
+
+		for (int k=0; k<kernels.length; k++) {
+			BufferedImage image = views[k].getImageView();
+			pixels[k] = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+		}
+
+		int diff = 0;
+		for (int i=0; i<pixels[0].length; i++) {
+			if (pixels[0][i] != pixels[1][i]) diff++;
+		}
+		System.out.println(name + ": scalar " + best[0]/1000000 + " ms, vector " + best[1]/1000000 + " ms, speedup " + String.format("%.2f", (float)best[0]/best[1]) + ", differing pixels: " + diff + " / " + pixels[0].length);
+	}
+
+	/**
+	 * @param args number of frames (default 10) and pixels per unit (default 1250+625)
+	 */
+	public static void main(String[] args) {
+
+		System.out.println("********* STARTING BENCHMARK *********");
+
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		int ppu = args.length > 1 ? Integer.parseInt(args[1]) : 1250+625;
+
+		if (!Rasterizer.isVectorKernelAvailable()) {
+			System.out.println("Vector API not available, run with --add-modules jdk.incubator.vector");
+		}
+
+		RenderContext rContext = new RenderContext(RenderContext.RENDER_STANDARD_INTERPOLATE);
+		rContext.setTextureProcessing(RenderContext.TEXTURE_PROCESSING_ENABLED);
+
+		// TestSphereTexture
+		Lighting light = new Lighting(new DirectionalLight(new Vector3(-1,1,-1), 0.9f), new AmbientLight(0.05f), true);
+		Camera camera = new Camera(new Vector4(5,4,4,1), new Vector4(0,0,0,1), Vector4.Z_AXIS);
+		PerspectiveContext pContext = new PerspectiveContext(0.8f, 0.45f, 1, 100, PerspectiveContext.PERSPECTIVE_TYPE_FRUSTUM, ppu);
+		benchmark("Sphere texture", createSphereTextureScene(), light, camera, rContext, pContext, frames);
+
+		// EarthAndMoon
+		light = new Lighting(new DirectionalLight(new Vector3(-1,1,0), 1.0f), new AmbientLight(0.05f), true);
+		camera = new Camera(new Vector4(400,3,3,1), new Vector4(0,0,-4,1), Vector4.Z_AXIS);
+		pContext = new PerspectiveContext(0.8f, 0.45f, 1, 1000, PerspectiveContext.PERSPECTIVE_TYPE_FRUSTUM, ppu);
+		benchmark("Earth and Moon", createEarthAndMoonScene(), light, camera, rContext, pContext, frames);
+
+		System.out.println("********* ENDING BENCHMARK *********");
+	}
+}
@@ -0,0 +1,190 @@
+package com.aventura.test;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+import com.aventura.context.PerspectiveContext;
+import com.aventura.context.RenderContext;
+import com.aventura.engine.RenderEngine;
+import com.aventura.math.transform.Translation;
+import com.aventura.math.vector.Vector3;
+import com.aventura.math.vector.Vector4;
+import com.aventura.model.camera.Camera;
+import com.aventura.model.light.AmbientLight;
+import com.aventura.model.light.DirectionalLight;
+import com.aventura.model.light.Lighting;
+import com.aventura.model.light.ShadowingLight;
+import com.aventura.model.texture.Texture;
+import com.aventura.model.world.World;
+import com.aventura.model.world.shape.Cube;
+import com.aventura.model.world.shape.Sphere;
+import com.aventura.model.world.shape.Torus;
+import com.aventura.model.world.shape.Trellis;
+import com.aventura.view.SwingView;
+
+/**
+ * ------------------------------------------------------------------------------
+ * MIT License
+ *
+ * Copyright (c) 2016-2026 Olivier BARRY
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ------------------------------------------------------------------------------
+ *
+ * This class is a benchmark of the triangle traversal algorithms of the Rasterizer (scan line and half-space).
+ * Each scene is rendered offscreen (SwingView without component) several times with each algorithm. The best rendering time
+ * is printed for each algorithm with the number of pixels differing between the 2 resulting images.
+ *
+ * Usage: BenchmarkTriangleTraversal [number of frames] [pixels per unit]
+ * To be run from the project directory (textures are loaded from resources/texture)
+ *
+ * @author Olivier BARRY
+ * @since October 2026
+ */
+
+public class BenchmarkTriangleTraversal {
+
+	/**
+	 * Scene with shadows: a cube and a sphere on a trellis, lit by 2 directional lights (see TestShadowMapRasterization)
+	 */
+	public static World createShadowScene() {
+		World world = new World();
+		Trellis trellis = new Trellis(8, 8, 10, 10);
+		world.addElement(trellis);
+		Cube cube = new Cube(1);
+		cube.setColor(new Color(200,50,50));
+		cube.setTransformation(new Translation(new Vector3(1.5f, 0, 0.5f)));
+		world.addElement(cube);
+		Sphere sphere = new Sphere(1, 10);
+		sphere.setColor(new Color(0,10,210));
+		sphere.setTransformation(new Translation(new Vector3(-2, 0, 1)));
+		world.addElement(sphere);
+		world.build();
+		return world;
+	}
+
+	/**
+	 * Scene with a big textured sphere (see TestSphereTexture)
+	 */
+	public static World createTextureScene() {
+		World world = new World();
+		Texture tex = new Texture("resources/texture/texture_mars_2048x1024.jpg");
+		Sphere sph = new Sphere(1.2f, 36, tex);
+		sph.setSpecularExp(10);
+		sph.setSpecularColor(new Color(100,100,100));
+		world.addElement(sph);
+		world.build();
+		return world;
+	}
+
+	/**
+	 * Scene with many small elements, textured or not, with specular reflection
+	 */
+	public static World createMultiElementsScene() {
+		World world = new World();
+		Texture tex = new Texture("resources/texture/texture_bricks_204x204.jpg");
+		for (int i=-2; i<=2; i++) {
+			for (int j=-2; j<=2; j++) {
+				if ((i+j)%2 == 0) {
+					Sphere s = new Sphere(0.4f, 16, tex);
+					s.setSpecularExp(8);
+					s.setSpecularColor(new Color(100,100,100));
+					s.setTransformation(new Translation(new Vector3(i, j, 0)));
+					world.addElement(s);
+				} else {
+					Torus t = new Torus(0.4f, 0.1f, 20, 10);
+					t.setColor(new Color(200,150,50));
+					t.setTransformation(new Translation(new Vector3(i, j, 0)));
+					world.addElement(t);
+				}
+			}
+		}
+		world.build();
+		return world;
+	}
+
+	/**
+	 * Render a World with each triangle traversal and print the results
+	 */
+	public static void benchmark(String name, World world, Lighting light, Camera camera, RenderContext rContext, PerspectiveContext pContext, int frames) {
+
+		int[][] pixels = new int[2][];
+		long[] best = new long[2];
+		int[] traversals = {RenderContext.TRIANGLE_TRAVERSAL_SCANLINE, RenderContext.TRIANGLE_TRAVERSAL_HALFSPACE};
+
+		for (int k=0; k<traversals.length; k++) {
+			RenderContext rc = new RenderContext(rContext);
+			rc.setTriangleTraversal(traversals[k]);
+			SwingView view = new SwingView(pContext);
+			RenderEngine renderer = new RenderEngine(world, light, camera, rc, pContext);
+			renderer.setView(view);
+
+			best[k] = Long.MAX_VALUE;
+			for (int i=0; i<frames; i++) {
+				long start = System.nanoTime();
+				renderer.render();
+				best[k] = Math.min(best[k], System.nanoTime() - start);
+			}
+			BufferedImage image = view.getImageView();
+			pixels[k] = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+		}
+
+		int diff = 0;
+		for (int i=0; i<pixels[0].length; i++) {
+			if (pixels[0][i] != pixels[1][i]) diff++;
+		}
+		System.out.println(name + ": scan line " + best[0]/1000000 + " ms, half-space " + best[1]/1000000 + " ms, differing pixels: " + diff + " / " + pixels[0].length);
+	}
+
+	/**
+	 * @param args number of frames (default 10) and pixels per unit (default 1250)
+	 */
+	public static void main(String[] args) {
+
+		System.out.println("********* STARTING BENCHMARK *********");
+
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		int ppu = args.length > 1 ? Integer.parseInt(args[1]) : 1250;
+
+		// Shadows
+		Lighting light = new Lighting(new AmbientLight(0.1f));
+		light.addDirectionalLight(new DirectionalLight(new Vector3(2,-1,-0.1f), ShadowingLight.SHADOWING_BOX_WORLD));
+		light.addDirectionalLight(new DirectionalLight(new Vector3(-2,-1,-0.1f), ShadowingLight.SHADOWING_BOX_WORLD));
+		Camera camera = new Camera(new Vector4(8,8,10,1), new Vector4(0,0,0,1), Vector4.Z_AXIS);
+		PerspectiveContext pContext = new PerspectiveContext(0.8f, 0.8f, 1, 100, PerspectiveContext.PERSPECTIVE_TYPE_FRUSTUM, ppu);
+		RenderContext rContext = new RenderContext(RenderContext.RENDER_STANDARD_INTERPOLATE);
+		rContext.setShadowing(RenderContext.SHADOWING_ENABLED);
+		benchmark("Shadows", createShadowScene(), light, camera, rContext, pContext, frames);
+
+		// Texture
+		light = new Lighting(new DirectionalLight(new Vector3(-1,1,-1), 0.9f), new AmbientLight(0.05f), true);
+		camera = new Camera(new Vector4(5,4,4,1), new Vector4(0,0,0,1), Vector4.Z_AXIS);
+		pContext = new PerspectiveContext(0.8f, 0.45f, 1, 100, PerspectiveContext.PERSPECTIVE_TYPE_FRUSTUM, ppu);
+		rContext = new RenderContext(RenderContext.RENDER_STANDARD_INTERPOLATE);
+		rContext.setTextureProcessing(RenderContext.TEXTURE_PROCESSING_ENABLED);
+		benchmark("Texture", createTextureScene(), light, camera, rContext, pContext, frames);
+
+		// Multiple elements
+		light = new Lighting(new DirectionalLight(new Vector3(-1,1,-1), 0.9f), new AmbientLight(0.05f), true);
+		camera = new Camera(new Vector4(4,3,4,1), new Vector4(0,0,0,1), Vector4.Z_AXIS);
+		benchmark("Multi elements", createMultiElementsScene(), light, camera, rContext, pContext, frames);
+
+		System.out.println("********* ENDING BENCHMARK *********");
+	}
+}
@@ -0,0 +1,96 @@
+package com.aventura.test;
+
+import java.io.File;
+
+import com.aventura.context.PerspectiveContext;
+import com.aventura.context.RenderContext;
+import com.aventura.engine.RenderEngine;
+import com.aventura.math.transform.Rotation;
+import com.aventura.math.vector.Vector3;
+import com.aventura.math.vector.Vector4;
+import com.aventura.model.camera.Camera;
+import com.aventura.model.light.AmbientLight;
+import com.aventura.model.light.DirectionalLight;
+import com.aventura.model.light.Lighting;
+import com.aventura.model.world.World;
+import com.aventura.view.ImageSequenceWriter;
+import com.aventura.view.OffscreenView;
+
+/**
+ * ------------------------------------------------------------------------------
+ * MIT License
+ *
+ * Copyright (c) 2016-2026 Olivier BARRY
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * This class renders an animation of the rotating textured sphere (see TestSphereTexture) in an OffscreenView and writes each frame
+ * as a numbered image file with an ImageSequenceWriter, encoding in background while the next frames are rendered.
+ *
+ * Usage: java -Djava.awt.headless=true TestImageSequence [number of frames] [directory] [png|ppm] [encoders]
+ * To be run from the project directory (textures are loaded from resources/texture)
+ *
+ * @author Olivier BARRY
+ * @since October 2026
+ */
+
+public class TestImageSequence {
+
+	/**
+	 * @param args number of frames (default 100), directory (default "frames"), format (default png) and number of encoders (default 0: one per processor)
+	 */
+	public static void main(String[] args) {
+
+		System.out.println("********* STARTING APPLICATION *********");
+
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		String directory = args.length > 1 ? args[1] : "frames";
+		String format = args.length > 2 ? args[2] : ImageSequenceWriter.FORMAT_PNG;
+		int encoders = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+
+		World world = BenchmarkSpanKernel.createSphereTextureScene();
+		Lighting light = new Lighting(new DirectionalLight(new Vector3(-1,1,-1), 0.9f), new AmbientLight(0.05f), true);
+		Camera camera = new Camera(new Vector4(5,4,4,1), new Vector4(0,0,0,1), Vector4.Z_AXIS);
+		PerspectiveContext pContext = new PerspectiveContext(0.8f, 0.45f, 1, 100, PerspectiveContext.PERSPECTIVE_TYPE_FRUSTUM, 1250);
+		RenderContext rContext = new RenderContext(RenderContext.RENDER_STANDARD_INTERPOLATE);
+		rContext.setTextureProcessing(RenderContext.TEXTURE_PROCESSING_ENABLED);
+
+		OffscreenView view = new OffscreenView(pContext);
+		RenderEngine renderer = new RenderEngine(world, light, camera, rContext, pContext);
+		renderer.setView(view);
+		ImageSequenceWriter writer = new ImageSequenceWriter(new File(directory), "frame", format, 8, encoders);
+		renderer.setImageSequenceWriter(writer);
+
+		System.out.println("********* Rendering "+frames+" frames");
+		Rotation r = new Rotation((float)(Math.PI*2/frames), Vector3.Z_AXIS);
+		long start = System.nanoTime();
+		for (int i=0; i<frames; i++) {
+			world.getElement(0).combineTransformation(r);
+			renderer.render();
+		}
+		long rendered = System.nanoTime();
+		writer.close();
+		long end = System.nanoTime();
+
+		System.out.println("Rendering: " + (rendered - start)/1000000 + " ms, waiting for the encoders after the last frame: " + (end - rendered)/1000000 + " ms");
+		System.out.println(writer.renderStats());
+
+		System.out.println("********* ENDING APPLICATION *********");
+	}
+}
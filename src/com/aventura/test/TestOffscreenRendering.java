@@ -0,0 +1,89 @@
+package com.aventura.test;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.aventura.context.PerspectiveContext;
+import com.aventura.context.RenderContext;
+import com.aventura.engine.RenderEngine;
+import com.aventura.math.vector.Vector3;
+import com.aventura.math.vector.Vector4;
+import com.aventura.model.camera.Camera;
+import com.aventura.model.light.AmbientLight;
+import com.aventura.model.light.DirectionalLight;
+import com.aventura.model.light.Lighting;
+import com.aventura.model.world.World;
+import com.aventura.view.OffscreenView;
+
+/**
+ * ------------------------------------------------------------------------------
+ * MIT License
+ *
+ * Copyright (c) 2016-2026 Olivier BARRY
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ * This class renders the textured sphere scene (see TestSphereTexture) in an OffscreenView, without any window, and exports the
+ * image as PNG and PPM files.
+ *
+ * Usage: java -Djava.awt.headless=true TestOffscreenRendering [number of frames] [output file without extension]
+ * To be run from the project directory (textures are loaded from resources/texture)
+ *
+ * @author Olivier BARRY
+ * @since October 2026
+ */
+
+public class TestOffscreenRendering {
+
+	/**
+	 * @param args number of frames (default 10) and output file without extension (default "offscreen")
+	 */
+	public static void main(String[] args) throws IOException {
+
+		System.out.println("********* STARTING APPLICATION *********");
+
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		String output = args.length > 1 ? args[1] : "offscreen";
+
+		World world = BenchmarkSpanKernel.createSphereTextureScene();
+		Lighting light = new Lighting(new DirectionalLight(new Vector3(-1,1,-1), 0.9f), new AmbientLight(0.05f), true);
+		Camera camera = new Camera(new Vector4(5,4,4,1), new Vector4(0,0,0,1), Vector4.Z_AXIS);
+		PerspectiveContext pContext = new PerspectiveContext(0.8f, 0.45f, 1, 100, PerspectiveContext.PERSPECTIVE_TYPE_FRUSTUM, 1250);
+		RenderContext rContext = new RenderContext(RenderContext.RENDER_STANDARD_INTERPOLATE);
+		rContext.setTextureProcessing(RenderContext.TEXTURE_PROCESSING_ENABLED);
+
+		OffscreenView view = new OffscreenView(pContext);
+		RenderEngine renderer = new RenderEngine(world, light, camera, rContext, pContext);
+		renderer.setView(view);
+
+		long best = Long.MAX_VALUE;
+		for (int i=0; i<frames; i++) {
+			long start = System.nanoTime();
+			renderer.render();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		System.out.println("Frames rendered: " + view.getFrames() + ", best time: " + best/1000000 + " ms, headless: " + java.awt.GraphicsEnvironment.isHeadless());
+
+		view.writePNG(new File(output + ".png"));
+		view.writePPM(new File(output + ".ppm"));
+		System.out.println("Image exported to " + output + ".png and " + output + ".ppm");
+
+		System.out.println("********* ENDING APPLICATION *********");
+	}
+}
@@ -183,7 +183,7 @@ public class ColorTools {
 	 * @param c the component (float) to clip
 	 * @return a new float clipped to range [0,1]
 	 */
-	protected static float clip(float c) {
+	public static float clip(float c) {
 		if (c>1) {
 			return 1;
 		} else if (c<0) {
@@ -226,6 +226,62 @@ public class ColorTools {
 		return new Color(r, g, b);
 	}
 	
+	/**
+	 * Same as getBilinearFilteredColor but using packed RGB values, without any object creation
+	 * 
+	 * @param z11 First color sample on axis 1 (generally X)
+	 * @param z12 Second color sample on axis 1 (generally X)
+	 * @param z21 First color sample on axis 2 (generally Y)
+	 * @param z22 Second color sample on axis 2 (generally Y)
+	 * @param u_ratio Ratio of the first position on first axis (second position ratio is 1-u_ratio)
+	 * @param v_ratio Ratio of the first position on second axis (second position ratio is 1-v_ratio)
+	 * @return the interpolated Bi-linear filtered Color as a packed RGB value
+	 */
+	public static int getBilinearFilteredRGB(int z11, int z12, int z21, int z22, float u_ratio, float v_ratio) {
+		
+		float r = getBilinearFilteredComponent(getRed(z11), getRed(z12), getRed(z21), getRed(z22), u_ratio, v_ratio);
+		float g = getBilinearFilteredComponent(getGreen(z11), getGreen(z12), getGreen(z21), getGreen(z22), u_ratio, v_ratio);
+		float b = getBilinearFilteredComponent(getBlue(z11), getBlue(z12), getBlue(z21), getBlue(z22), u_ratio, v_ratio);
+
+		return getRGB(r, g, b);
+	}
+	
+	/**
+	 * Pack float components into an RGB value (same rounding than the java.awt.Color float constructor). Components are clipped to [0,1].
+	 * 
+	 * @param r the red component in [0,1]
+	 * @param g the green component in [0,1]
+	 * @param b the blue component in [0,1]
+	 * @return the packed RGB value (alpha is opaque)
+	 */
+	public static int getRGB(float r, float g, float b) {
+		return 0xFF000000 | ((int)(clip(r)*255+0.5f) << 16) | ((int)(clip(g)*255+0.5f) << 8) | (int)(clip(b)*255+0.5f);
+	}
+	
+	/**
+	 * @param rgb a packed RGB value
+	 * @return the red component in [0,1]
+	 */
+	public static float getRed(int rgb) {
+		return ((rgb >> 16) & 0xFF)/255f;
+	}
+	
+	/**
+	 * @param rgb a packed RGB value
+	 * @return the green component in [0,1]
+	 */
+	public static float getGreen(int rgb) {
+		return ((rgb >> 8) & 0xFF)/255f;
+	}
+	
+	/**
+	 * @param rgb a packed RGB value
+	 * @return the blue component in [0,1]
+	 */
+	public static float getBlue(int rgb) {
+		return (rgb & 0xFF)/255f;
+	}
+	
 	/**
 	 * Calculate one Bilinear filtered Color component
 	 * 
@@ -87,6 +87,50 @@ public abstract class GUIView extends View {
 	public abstract void drawPixel(int x, int y);
 	
 	public abstract void drawPixel(int x, int y, Color c);
+	
+	/**
+	 * Draw a pixel with a packed RGB color. Default implementation creates a Color, GUIViews should override it to avoid any object creation.
+	 * @param x
+	 * @param y (Y axis up)
+	 * @param rgb the packed RGB value of the pixel to draw
+	 */
+	public void drawPixel(int x, int y, int rgb) {
+		drawPixel(x, y, new Color(rgb));
+	}
+	
+	/**
+	 * Draw a span of pixels of a row with packed RGB colors. Default implementation draws the pixels one by one.
+	 * @param x the first pixel of the span
+	 * @param y (Y axis up)
+	 * @param length the number of pixels
+	 * @param rgb the packed RGB values of the pixels
+	 * @param offset the position of the first pixel in the rgb array
+	 */
+	public void drawSpan(int x, int y, int length, int[] rgb, int offset) {
+		for (int i=0; i<length; i++) {
+			drawPixel(x+i, y, rgb[offset+i]);
+		}
+	}
+	
+	/**
+	 * Get the packed RGB values of the back buffer for direct writes, pixels of a row being contiguous from left to right (see getPixelIndex).
+	 * The array may change at each initView(). Default implementation gives no direct access.
+	 * @return the array of pixels of the back buffer, or null if not available
+	 */
+	public int[] getPixelBuffer() {
+		return null;
+	}
+	
+	/**
+	 * Get the index of a pixel in the array returned by getPixelBuffer()
+	 * @param x
+	 * @param y (Y axis up)
+	 * @return the index of the pixel, or -1 if the pixel is out of the view or if there is no pixel buffer
+	 */
+	public int getPixelIndex(int x, int y) {
+		return -1;
+	}
+	
 	public abstract void drawLine(int x1, int y1, int x2, int y2);
 
 }
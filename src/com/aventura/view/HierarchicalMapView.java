@@ -0,0 +1,222 @@
+package com.aventura.view;
+
+/**
+* ------------------------------------------------------------------------------ 
+* MIT License
+* 
+* Copyright (c) 2016-2026 Olivier BARRY
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+* ------------------------------------------------------------------------------
+* 
+* HierarchicalMapView is a MapView keeping, alongside the map, the maximum value of each square tile of TILE_SIZE x TILE_SIZE elements.
+* Used as zBuffer, it is a hierarchical depth structure (Hi-Z): a pixel, a block of pixels or a whole triangle whose nearest depth is
+* behind the maximum depth of the tile(s) it covers is hidden, and can be rejected without interpolating nor shading its pixels.
+* 
+* The tile maximum is updated on write: increased immediately if the new value is greater, or marked dirty if the old value was the
+* maximum and is decreased (recomputed only when the tile maximum is requested). A stale maximum is never lower than the actual one,
+* so the rejection remains conservative even if several threads write in the same tile.
+* 
+* With several samples per element (multi-sample zBuffer), the maximum of a tile is the maximum of all the samples of its elements.
+* 
+* Values written directly into the array returned by getData() are not tracked.
+* 
+* @author Olivier BARRY
+* @since October 2026
+*/
+
+public class HierarchicalMapView extends MapView {
+
+	public static final int TILE_SHIFT = 3;
+	public static final int TILE_SIZE = 1 << TILE_SHIFT;	// 8x8 elements tiles
+	public static final int TILE_MASK = TILE_SIZE - 1;
+
+	protected int nbTilesX, nbTilesY;
+	protected float[] tileMax;
+	protected boolean[] dirty;
+
+	public HierarchicalMapView(int width, int height) {
+		this(width, height, 1);
+	}
+
+	public HierarchicalMapView(int width, int height, int samples) {
+		super(width, height, samples);
+		initTiles();
+	}
+
+	protected void initTiles() {
+		nbTilesX = (width + TILE_MASK) >> TILE_SHIFT;
+		nbTilesY = (height + TILE_MASK) >> TILE_SHIFT;
+		tileMax = new float[nbTilesX * nbTilesY];
+		dirty = new boolean[nbTilesX * nbTilesY];
+	}
+
+	@Override
+	public void initView(int width, int height, int samples) {
+		super.initView(width, height, samples);
+		if (nbTilesX != (width + TILE_MASK) >> TILE_SHIFT || nbTilesY != (height + TILE_MASK) >> TILE_SHIFT) initTiles();
+		resetTiles(0);
+	}
+
+	@Override
+	public void fill(float f) {
+		super.fill(f);
+		resetTiles(f);
+	}
+
+	protected void resetTiles(float f) {
+		for (int i=0; i<tileMax.length; i++) {
+			tileMax[i] = f;
+			dirty[i] = false;
+		}
+	}
+
+	@Override
+	public void set(int x, int y, float f) {
+		int i = (y*width+x)*samples;
+		float old = map[i];
+		for (int s=0; s<samples; s++) {
+			old = Math.max(old, map[i+s]);
+			map[i+s] = f;
+		}
+		updateTile(x, y, f, old);
+	}
+
+	@Override
+	public void set(int x, int y, int s, float f) {
+		int i = (y*width+x)*samples+s;
+		float old = map[i];
+		map[i] = f;
+		updateTile(x, y, f, old);
+	}
+
+	/**
+	 * Get the maximum value of the tile containing the element (x,y), recomputed if needed
+	 * @param x the x coordinate of the element in the map
+	 * @param y the y coordinate of the element in the map
+	 * @return the maximum value of the tile
+	 */
+	public float getTileMax(int x, int y) {
+		return getTileMaxByIndex(x >> TILE_SHIFT, y >> TILE_SHIFT);
+	}
+
+	protected float getTileMaxByIndex(int tx, int ty) {
+		int t = ty * nbTilesX + tx;
+		if (dirty[t]) {
+			// Clear the flag before reading the values so that a concurrent write marks it again
+			dirty[t] = false;
+			int xEnd = Math.min((tx + 1) << TILE_SHIFT, width);
+			int yEnd = Math.min((ty + 1) << TILE_SHIFT, height);
+			float max = map[((ty << TILE_SHIFT)*width + (tx << TILE_SHIFT))*samples];
+			for (int j = ty << TILE_SHIFT; j < yEnd; j++) {
+				int row = j*width;
+				for (int i = (row + (tx << TILE_SHIFT))*samples; i < (row + xEnd)*samples; i++) {
+					if (map[i] > max) max = map[i];
+				}
+			}
+			tileMax[t] = max;
+		}
+		return tileMax[t];
+	}
+
+	/**
+	 * Check if an area is hidden: all tiles covering the area have a maximum lower than a given value
+	 * @param xMin the first x coordinate of the area (included)
+	 * @param xMax the last x coordinate of the area (included)
+	 * @param yMin the first y coordinate of the area (included)
+	 * @param yMax the last y coordinate of the area (included)
+	 * @param min the minimum value in the area (e.g. nearest depth of a triangle)
+	 * @return true if min is greater than the maximum of all the tiles covering the area
+	 */
+	public boolean isHidden(int xMin, int xMax, int yMin, int yMax, float min) {
+		for (int ty = yMin >> TILE_SHIFT; ty <= yMax >> TILE_SHIFT; ty++) {
+			for (int tx = xMin >> TILE_SHIFT; tx <= xMax >> TILE_SHIFT; tx++) {
+				if (min <= getTileMaxByIndex(tx, ty)) return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void setSpan(int x, int y, int length, float[] src, int offset) {
+		super.setSpan(x, y, length, src, offset);
+		float max = src[offset];
+		for (int i=offset; i<offset+length*samples; i++) {
+			if (src[i] > max) max = src[i];
+		}
+		updateSpanTiles(x, y, length, max);
+	}
+
+	@Override
+	public void fillSpan(int x, int y, int length, float f) {
+		super.fillSpan(x, y, length, f);
+		updateSpanTiles(x, y, length, f);
+	}
+
+	/**
+	 * Update the tiles covered by a span of a row after a bulk write: the maximum is raised to the maximum written value
+	 * and the tiles are marked dirty as values may also have been decreased
+	 */
+	protected void updateSpanTiles(int x, int y, int length, float max) {
+		if (length <= 0) return;
+		int row = (y >> TILE_SHIFT) * nbTilesX;
+		for (int tx = x >> TILE_SHIFT; tx <= (x + length - 1) >> TILE_SHIFT; tx++) {
+			if (max > tileMax[row + tx]) tileMax[row + tx] = max;
+			dirty[row + tx] = true;
+		}
+	}
+
+	/**
+	 * Update the tile containing an element after some values of this tile have been written directly in the array (see getData()).
+	 * Same rule than set(int, int, float) applied to all the written values at once.
+	 * @param x the x coordinate of one of the written elements
+	 * @param y the y coordinate of one of the written elements
+	 * @param max the maximum of the written values
+	 * @param replacedMax the maximum of the values they replaced
+	 */
+	public void updateTile(int x, int y, float max, float replacedMax) {
+		int t = (y >> TILE_SHIFT) * nbTilesX + (x >> TILE_SHIFT);
+		if (max > tileMax[t]) {
+			tileMax[t] = max;
+		} else if (replacedMax == tileMax[t] && max < replacedMax) {
+			dirty[t] = true;
+		}
+	}
+
+	@Override
+	public void normalizeMap() {
+		super.normalizeMap();
+		invalidateTiles();
+	}
+
+	@Override
+	public void removeFar(float far, float replaceBy) {
+		super.removeFar(far, replaceBy);
+		invalidateTiles();
+	}
+
+	/**
+	 * Mark all tiles dirty after a global modification of the map
+	 */
+	protected void invalidateTiles() {
+		for (int i=0; i<dirty.length; i++) {
+			dirty[i] = true;
+		}
+	}
+}
@@ -0,0 +1,283 @@
+package com.aventura.view;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+import com.aventura.tools.tracing.Tracer;
+
+/**
+* ------------------------------------------------------------------------------
+* MIT License
+*
+* Copyright (c) 2016-2026 Olivier BARRY
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+* ------------------------------------------------------------------------------
+*
+* This class writes the frames rendered by a RenderEngine as a sequence of numbered image files (PNG or PPM), encoding them
+* in background threads so that rendering and encoding overlap.
+*
+* At the end of each frame, the RenderEngine calls write(GUIView): the pixels of the GUIView (see GUIView.getPixelBuffer()) are copied
+* into a free buffer and the frame is queued. Encoder threads take the frames from the queue and write them as
+* <prefix><number>.<format>, numbered in rendering order (several encoders may complete them in a different order).
+*
+* Buffers are allocated once: there are as many as the capacity of the queue plus the number of encoders. When they are all in use
+* (encoders slower than the rendering), write() waits for a free buffer: this is the back-pressure on the rendering loop.
+*
+*     RenderEngine.render() --> write() --> [ queue of frames ] --> encoder threads --> files
+*                                  ^                                    |
+*                                  +-------- [ free buffers ] <---------+
+*
+* close() must be called at the end to wait for the last frames and stop the encoders.
+*
+* @author Olivier BARRY
+* @since October 2026
+*/
+public class ImageSequenceWriter {
+
+	public static final String FORMAT_PNG = "png";
+	public static final String FORMAT_PPM = "ppm";
+
+	protected File directory;
+	protected String prefix;
+	protected String format;
+
+	// Frames waiting to be encoded and free buffers
+	protected ArrayBlockingQueue<Frame> queue;
+	protected ArrayBlockingQueue<int[]> free;
+	protected Thread[] encoders;
+	protected int next = 0; // Number of the next frame
+	protected volatile boolean closed = false; // Set by close(), possibly from another thread than write()
+
+	// Statistics
+	protected int frames_queued = 0;
+	protected int frames_skipped = 0;
+	protected int max_queue_depth = 0;
+	protected long queue_depth_sum = 0;
+	protected long wait_nanos = 0;
+	protected AtomicInteger frames_written = new AtomicInteger();
+	protected AtomicInteger errors = new AtomicInteger();
+	protected AtomicLong encode_nanos = new AtomicLong();
+	protected AtomicLong max_encode_nanos = new AtomicLong();
+
+	/**
+	 * A frame to be encoded
+	 */
+	protected static class Frame {
+		int number;
+		int width, height;
+		int[] pixels;
+	}
+
+	/**
+	 * Create an ImageSequenceWriter and start its encoder threads
+	 * @param directory the directory of the image files (created if needed)
+	 * @param prefix the prefix of the file names, followed by the frame number
+	 * @param format FORMAT_PNG or FORMAT_PPM
+	 * @param capacity the maximum number of frames waiting to be encoded
+	 * @param encoders the number of encoder threads, 0 to use the number of available processors
+	 */
+	public ImageSequenceWriter(File directory, String prefix, String format, int capacity, int encoders) {
+		this.directory = directory;
+		this.prefix = prefix;
+		this.format = FORMAT_PPM.equals(format) ? FORMAT_PPM : FORMAT_PNG;
+		capacity = Math.max(1, capacity);
+		int nb_encoders = encoders > 0 ? encoders : Runtime.getRuntime().availableProcessors();
+		directory.mkdirs();
+
+		queue = new ArrayBlockingQueue<Frame>(capacity + nb_encoders);
+		free = new ArrayBlockingQueue<int[]>(capacity + nb_encoders);
+		for (int i=0; i<capacity + nb_encoders; i++) {
+			free.add(new int[0]); // Allocated at the dimensions of the first frame
+		}
+
+		this.encoders = new Thread[nb_encoders];
+		for (int i=0; i<nb_encoders; i++) {
+			this.encoders[i] = new Thread(this::encode, "ImageSequenceWriter-" + i);
+			this.encoders[i].setDaemon(true);
+			this.encoders[i].start();
+		}
+		if (Tracer.info) Tracer.traceInfo(this.getClass(), "Image sequence writer created. Directory: " + directory + ", format: " + this.format + ", queue capacity: " + capacity + ", encoders: " + nb_encoders);
+	}
+
+	/**
+	 * Queue the current frame of a GUIView to be written. Waits for a free buffer if all buffers are in use (back-pressure).
+	 * The GUIView should give a direct access to its pixels, otherwise the frame is skipped.
+	 * @param view the GUIView, at the end of the frame (before renderView())
+	 */
+	public void write(GUIView view) {
+		int[] src = view.getPixelBuffer();
+		if (src == null || closed) {
+			if (Tracer.warning) Tracer.traceWarning(this.getClass(), "Frame " + next + " skipped: " + (closed ? "writer closed" : "no pixel buffer in the GUIView"));
+			frames_skipped++;
+			next++;
+			return;
+		}
+
+		// Take a free buffer, waiting for the encoders if needed
+		Frame frame = new Frame();
+		long start = System.nanoTime();
+		try {
+			frame.pixels = free.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			frames_skipped++;
+			next++; // As for the other skipped frames, its number is not reused
+			return;
+		}
+		wait_nanos += System.nanoTime() - start;
+
+		// Number the frame only once it has a buffer
+		frame.number = next++;
+		frame.width = view.getViewWidth();
+		frame.height = view.getViewHeight();
+
+		if (frame.pixels.length != src.length) frame.pixels = new int[src.length];
+		System.arraycopy(src, 0, frame.pixels, 0, src.length);
+
+		// Never blocks: there are not more frames than buffers
+		queue.add(frame);
+		int depth = queue.size();
+		if (depth > max_queue_depth) max_queue_depth = depth;
+		queue_depth_sum += depth;
+		frames_queued++;
+	}
+
+	/**
+	 * Loop of an encoder thread: encode frames until receiving a frame without pixels (end of the sequence)
+	 */
+	protected void encode() {
+		while (true) {
+			Frame frame;
+			try {
+				frame = queue.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (frame.pixels == null) return;
+
+			long start = System.nanoTime();
+			File file = new File(directory, String.format("%s%05d.%s", prefix, frame.number, format));
+			try {
+				if (FORMAT_PPM.equals(format)) {
+					writePPM(frame.pixels, frame.width, frame.height, file);
+				} else {
+					writePNG(frame.pixels, frame.width, frame.height, file);
+				}
+				frames_written.incrementAndGet();
+			} catch (IOException | RuntimeException e) {
+				// A failing frame must neither stop this encoder nor lose its buffer
+				if (Tracer.error) Tracer.traceError(this.getClass(), "Frame " + frame.number + " not written in " + file + ": " + e);
+				errors.incrementAndGet();
+			} finally {
+				free.add(frame.pixels);
+			}
+			long duration = System.nanoTime() - start;
+			encode_nanos.addAndGet(duration);
+			max_encode_nanos.accumulateAndGet(duration, Math::max);
+		}
+	}
+
+	/**
+	 * Wait for all queued frames to be written and stop the encoder threads. Further frames are skipped.
+	 */
+	public void close() {
+		if (closed) return;
+		closed = true;
+		try {
+			for (int i=0; i<encoders.length; i++) {
+				queue.put(new Frame()); // End of the sequence for one encoder
+			}
+			for (int i=0; i<encoders.length; i++) {
+				encoders[i].join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (Tracer.stats) Tracer.traceStats(this.getClass(), renderStats());
+	}
+
+	public int getFramesWritten() {
+		return frames_written.get();
+	}
+
+	public String renderStats() {
+		int written = frames_written.get();
+		return "Image sequence writer - Frames queued: " + frames_queued + ", written: " + written + ", skipped: " + frames_skipped + ", errors: " + errors.get()
+				+ ". Queue depth: max " + max_queue_depth + ", average " + (frames_queued > 0 ? String.format("%.1f", (float)queue_depth_sum/frames_queued) : "-")
+				+ ". Encode time: average " + (written > 0 ? encode_nanos.get()/written/1000000 : 0) + " ms, max " + max_encode_nanos.get()/1000000 + " ms"
+				+ ". Rendering blocked: " + wait_nanos/1000000 + " ms";
+	}
+
+	/**
+	 * Write pixels as a PNG file. ImageIO only uses a BufferedImage in memory, so this works in headless mode.
+	 * @param pixels packed RGB values, row by row (Y axis down)
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param file the PNG file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void writePNG(int[] pixels, int width, int height, File file) throws IOException {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		image.setRGB(0, 0, width, height, pixels, 0, width);
+		if (!ImageIO.write(image, "png", file)) throw new IOException("No PNG writer available");
+	}
+
+	/**
+	 * Write pixels as a binary PPM (P6) image, without any dependency on AWT or ImageIO
+	 * @param pixels packed RGB values, row by row (Y axis down)
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param out the stream to write to (not closed)
+	 * @throws IOException if the stream cannot be written
+	 */
+	public static void writePPM(int[] pixels, int width, int height, OutputStream out) throws IOException {
+		out.write(("P6\n" + width + " " + height + "\n255\n").getBytes("US-ASCII"));
+		byte[] row = new byte[width * 3];
+		for (int y=0; y<height; y++) {
+			for (int x=0; x<width; x++) {
+				int rgb = pixels[y*width + x];
+				row[3*x]   = (byte)(rgb >> 16);
+				row[3*x+1] = (byte)(rgb >> 8);
+				row[3*x+2] = (byte)rgb;
+			}
+			out.write(row);
+		}
+		out.flush();
+	}
+
+	/**
+	 * Write pixels as a binary PPM (P6) file
+	 * @see #writePPM(int[], int, int, OutputStream)
+	 */
+	public static void writePPM(int[] pixels, int width, int height, File file) throws IOException {
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+			writePPM(pixels, width, height, out);
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package com.aventura.view;
 
+import java.util.Arrays;
+
 /**
 * ------------------------------------------------------------------------------ 
 * MIT License
@@ -29,100 +31,226 @@ package com.aventura.view;
 * It allows to use the RenderEngine to use Rasterizer to generate in a simple Map while still using the usual GUIView interface.
 * It is e.g. used for Shadow mapping rendering but could be used for any purpose when a Map needs to be rendered.
 * 
+* Values are stored in a single contiguous array, row by row (row-major): element (x,y) is at index y*width+x. Elements of a same row
+* (e.g. pixels of a scan line) are contiguous in memory. Use getRowOffset(y) then get(index) to read along a row.
+* 
+* A MapView may hold several samples per element (per-sample layout, e.g. a zBuffer for multi-sample anti-aliasing): the samples of
+* an element are contiguous, sample s of element (x,y) is at index (y*width+x)*samples+s. Methods without sample parameter read the
+* first sample of an element and write all of its samples. With a single sample (default) the layout is the one above.
+* 
 */
 
 public class MapView extends View {
 	
-	protected float[][] map;
+	protected float[] map; // Row-major: sample s of element (x,y) at index (y*width+x)*samples+s
+	protected int samples = 1; // Number of samples per element
 	
+	/**
+	 * Create a MapView from a 2 dimensions array indexed [x][y] (the array is copied)
+	 * @param map the array of values
+	 */
 	public MapView(float[][] map) {
-		this.map = map;
+		this.width = map.length;
+		this.height = map[0].length;
 		
-		this.width = map[1].length;
-		this.height = map.length;
+		this.map = new float[width*height];
+		for (int x=0; x<width; x++) {
+			for (int y=0; y<height; y++) {
+				this.map[y*width+x] = map[x][y];
+			}
+		}
 	}
 	
 	// Recopy constructor
 	public MapView(MapView view) {
 		this.width = view.width;
 		this.height = view.height;
+		this.samples = view.samples;
 		
-		this.map = new float[width][height];
-		for (int i=0; i<width; i++) {
-			for (int j=0; j<height; j++) {
-				this.map[i][j] = view.get(i, j);
-			}
-		}
+		this.map = view.map.clone();
 	}
 	
 	public MapView(int width, int height) {
+		this(width, height, 1);
+	}
+	
+	/**
+	 * Create a MapView with several samples per element (per-sample layout)
+	 * @param width the width in elements
+	 * @param height the height in elements
+	 * @param samples the number of samples of each element
+	 */
+	public MapView(int width, int height, int samples) {
 		this.width = width;
 		this.height = height;
+		this.samples = samples;
 		
-		this.map = new float[width][height];
+		this.map = new float[width*height*samples];
 	}
 	
 	public void initView() {
-		for (int i=0; i<width; i++) {
-			for (int j=0; j<height; j++) {
-				map[i][j] = 0;
-			}
-		}
+		fill(0);
 	}
 	
 	@Override
 	public void initView(int width, int height) {
+		initView(width, height, samples);
+	}
+	
+	/**
+	 * Change the dimensions and the number of samples per element, then initView
+	 * @param width the width in elements
+	 * @param height the height in elements
+	 * @param samples the number of samples of each element
+	 */
+	public void initView(int width, int height, int samples) {
 		this.width = width;
 		this.height = height;
+		this.samples = samples;
 		
-		
-		for (int i=0; i<width; i++) {
-			for (int j=0; j<height; j++) {
-				map[i][j] = 0;
-			}
+		if (map.length < width*height*samples) {
+			map = new float[width*height*samples];
 		}
+		fill(0);
 	}
 
 	public void initView(float f) {
-		for (int i=0; i<width; i++) {
-			for (int j=0; j<height; j++) {
-				map[i][j] = f;
-			}
-		}
+		fill(f);
+	}
 
+	/**
+	 * Bulk fill of the whole map with a value
+	 * @param f the value
+	 */
+	public void fill(float f) {
+		Arrays.fill(map, 0, width*height*samples, f);
+	}
+	
+	public int getSamples() {
+		return samples;
 	}
 	
 	public float get(int x, int y) {
-		return map[x][y];
+		return map[(y*width+x)*samples];
 	}
 
 	public void set(int x, int y, float f) {
-		map[x][y] = f;
+		int i = (y*width+x)*samples;
+		Arrays.fill(map, i, i+samples, f);
+	}
+	
+	/**
+	 * Get a sample of an element
+	 * @param x the x coordinate of the element
+	 * @param y the y coordinate of the element
+	 * @param s the sample
+	 * @return the value of the sample
+	 */
+	public float get(int x, int y, int s) {
+		return map[(y*width+x)*samples+s];
+	}
+	
+	/**
+	 * Set a sample of an element
+	 * @param x the x coordinate of the element
+	 * @param y the y coordinate of the element
+	 * @param s the sample
+	 * @param f the value of the sample
+	 */
+	public void set(int x, int y, int s, float f) {
+		map[(y*width+x)*samples+s] = f;
+	}
+	
+	/**
+	 * Get the index of the first element of a row, to be used with get(int) for the elements of this row
+	 * @param y the row
+	 * @return the index of element (0,y), sample s of element (x,y) being at getRowOffset(y)+x*getSamples()+s
+	 */
+	public int getRowOffset(int y) {
+		return y*width*samples;
+	}
+	
+	/**
+	 * Get an element (or a sample) by its index in the row-major array
+	 * @param index the index of the element: getRowOffset(y)+x (or getRowOffset(y)+x*getSamples()+s)
+	 * @return the value of the element
+	 */
+	public float get(int index) {
+		return map[index];
 	}
 	
+	/**
+	 * Copy a span of a row into an array (all samples of the elements)
+	 * @param x the first element of the span
+	 * @param y the row
+	 * @param length the number of elements
+	 * @param dst the destination array
+	 * @param offset the position of the first element in the destination array
+	 */
+	public void getSpan(int x, int y, int length, float[] dst, int offset) {
+		System.arraycopy(map, (y*width+x)*samples, dst, offset, length*samples);
+	}
+	
+	/**
+	 * Copy an array into a span of a row (all samples of the elements)
+	 * @param x the first element of the span
+	 * @param y the row
+	 * @param length the number of elements
+	 * @param src the source array
+	 * @param offset the position of the first element in the source array
+	 */
+	public void setSpan(int x, int y, int length, float[] src, int offset) {
+		System.arraycopy(src, offset, map, (y*width+x)*samples, length*samples);
+	}
+	
+	/**
+	 * Fill a span of a row with a value
+	 * @param x the first element of the span
+	 * @param y the row
+	 * @param length the number of elements
+	 * @param f the value
+	 */
+	public void fillSpan(int x, int y, int length, float f) {
+		Arrays.fill(map, (y*width+x)*samples, (y*width+x+length)*samples, f);
+	}
+	
+	/**
+	 * Get the values as a new 2 dimensions array indexed [x][y] (first sample of each element). Use getData() to access the values without copy.
+	 * @return a copy of the values
+	 */
 	public float[][] getMap() {
+		float[][] m = new float[width][height];
+		for (int y=0; y<height; y++) {
+			for (int x=0; x<width; x++) {
+				m[x][y] = map[(y*width+x)*samples];
+			}
+		}
+		return m;
+	}
+	
+	/**
+	 * Get the row-major array of values (not a copy)
+	 * @return the array of values, sample s of element (x,y) at index (y*width+x)*samples+s
+	 */
+	public float[] getData() {
 		return map;
 	}
 	
 	public float getMax() {
-		float max = map[0][0];
+		float max = map[0];
 		
-		for (int i=0; i<width; i++) {
-			for (int j=0; j<height; j++) {
-				if (map[i][j] > max) max = map[i][j];
-			}
+		for (int i=0; i<width*height*samples; i++) {
+			if (map[i] > max) max = map[i];
 		}
 		
 		return max;
 	}
 	
 	public float getMin() {
-		float min = map[0][0];
+		float min = map[0];
 
-		for (int i=0; i<width; i++) {
-			for (int j=0; j<height; j++) {
-				if (map[i][j] < min) min = map[i][j];
-			}
+		for (int i=0; i<width*height*samples; i++) {
+			if (map[i] < min) min = map[i];
 		}
 
 		return min;
@@ -131,21 +259,17 @@ public class MapView extends View {
 	public float getAverage() {
 		float avg = 0;
 		
-		for (int i=0; i<width; i++) {
-			for (int j=0; j<height; j++) {
-				avg += map[i][j];
-			}
+		for (int i=0; i<width*height*samples; i++) {
+			avg += map[i];
 		}
 		
-		return avg/(width*height);
+		return avg/(width*height*samples);
 	}
 	
 	public int getNbOfPixelsInRange(float min, float max) {
 		int n = 0;
-		for (int i=0; i<width; i++) {
-			for (int j=0; j<height; j++) {
-				if(map[i][j]>=min && map[i][j]<=max) n++;
-			}
+		for (int i=0; i<width*height*samples; i++) {
+			if(map[i]>=min && map[i]<=max) n++;
 		}
 		
 		return n;
@@ -160,20 +284,16 @@ public class MapView extends View {
 		float max = this.getMax();
 		float min = this.getMin();
 		
-		for (int i=0; i<width; i++) {
-			for (int j=0; j<height; j++) {
-				map[i][j] = (map[i][j]-min)/(max-min);
-			}
+		for (int i=0; i<width*height*samples; i++) {
+			map[i] = (map[i]-min)/(max-min);
 		}
 	}
 	
 	// To zero values beyond far (e.g. for Zbuffering)
 	public void removeFar(float far, float replaceBy) {
 
-		for (int i=0; i<width; i++) {
-			for (int j=0; j<height; j++) {
-				if (map[i][j] >= far) map[i][j] = replaceBy;
-			}
+		for (int i=0; i<width*height*samples; i++) {
+			if (map[i] >= far) map[i] = replaceBy;
 		}
 	}
 	
@@ -210,7 +330,9 @@ public class MapView extends View {
 		if (y1>=this.height) y1 = this.height - 1;
 
 		// Calculate the interpolated value as per Bilinear Filtering algorithm
-		return getBilinearFilteredComponent(map[x0][y0], map[x0][y1], map[x1][y0], map[x1][y1], u_ratio, v_ratio);
+		int row0 = y0*this.width;
+		int row1 = y1*this.width;
+		return getBilinearFilteredComponent(map[(row0+x0)*samples], map[(row1+x0)*samples], map[(row0+x1)*samples], map[(row1+x1)*samples], u_ratio, v_ratio);
 
 	}
 
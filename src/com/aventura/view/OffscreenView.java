@@ -0,0 +1,232 @@
+package com.aventura.view;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import com.aventura.context.PerspectiveContext;
+import com.aventura.tools.tracing.Tracer;
+
+/**
+* ------------------------------------------------------------------------------
+* MIT License
+*
+* Copyright (c) 2016-2026 Olivier BARRY
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy
+* of this software and associated documentation files (the "Software"), to deal
+* in the Software without restriction, including without limitation the rights
+* to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the Software is
+* furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all
+* copies or substantial portions of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+* FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+* LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+* OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+* SOFTWARE.
+* ------------------------------------------------------------------------------
+*
+* This class is a headless GUIView: the image is rendered in a plain int[] framebuffer of packed RGB values, with no Swing component
+* nor AWT graphics, so the RenderEngine can run on servers without display (-Djava.awt.headless=true).
+*
+* Coordinates and clipping are the same as SwingView (origin in the center of the view, Y axis up). Pixels are stored row by row,
+* first row on top (Y axis down), as in an image file.
+*
+* There is a single buffer: the image of a frame is available from renderView() until the next initView(), and can be exported
+* in between as a PNG or PPM file or as a raw buffer. java.awt.Color is only used at the API level (setColor, getPixel...).
+*
+* @author Olivier BARRY
+* @since October 2026
+*/
+public class OffscreenView extends GUIView {
+
+	protected int[] pixels; // Packed RGB values of the pixels, row by row (Y axis down)
+	protected int color; // Current color for drawPixel(x, y) and drawLine
+	protected int frames = 0; // Number of frames rendered
+
+	public OffscreenView(PerspectiveContext context) {
+		super(context);
+		if (Tracer.function) Tracer.traceFunction(this.getClass(), "Creating new OffscreenView. Width: "+width+", Height: "+height);
+
+		pixels = new int[width * height];
+	}
+
+	public OffscreenView(int width, int height) {
+		super(width, height);
+		if (Tracer.function) Tracer.traceFunction(this.getClass(), "Creating new OffscreenView. Width: "+width+", Height: "+height);
+
+		pixels = new int[width * height];
+	}
+
+	@Override
+	public void initView() {
+		if (Tracer.function) Tracer.traceFunction(this.getClass(), "Initializing OffscreenView");
+
+		initBuffer();
+	}
+
+	@Override
+	public void initView(int width, int height) {
+		if (Tracer.function) Tracer.traceFunction(this.getClass(), "Initializing OffscreenView");
+
+		this.width  = width;
+		this.height = height;
+
+		initBuffer();
+	}
+
+	/**
+	 * Clear the framebuffer with the background color, reallocating it only if the dimensions have changed
+	 */
+	protected void initBuffer() {
+		if (pixels == null || pixels.length != width * height) pixels = new int[width * height];
+		Color c = backgroundColor != null ? backgroundColor : DEFAULT_BACKGROUND_COLOR;
+		Arrays.fill(pixels, c.getRGB());
+		color = c.getRGB();
+	}
+
+	// Caution : MapView should be normalized (using the appropriate method) before the call
+	@Override
+	public void initView(MapView map) {
+
+		initBuffer();
+
+		// Same as SwingView: map cropped to the view, first row of the map at the bottom, gray level of the value of each element
+		int minX = map.width < this.width ? map.width : this.width;
+		int minY = map.height < this.height ? map.height : this.height;
+		for (int y=0; y<minY; y++) {
+			int dst = (minY-y-1)*width;
+			for (int x=0; x<minX; x++ ) {
+				int v = (int)(map.get(x, y)*255 + 0.5f);
+				pixels[dst + x] = 0xFF000000 | v << 16 | v << 8 | v;
+			}
+		}
+	}
+
+	@Override
+	public void renderView() {
+		if (Tracer.function) Tracer.traceFunction(this.getClass(), "Render OffscreenView");
+
+		// Nothing to swap: the frame is complete in the framebuffer
+		frames++;
+	}
+
+	public int getFrames() {
+		return frames;
+	}
+
+	@Override
+	public void setColor(Color c) {
+		color = c.getRGB();
+	}
+
+	@Override
+	public void setBackgroundColor(Color c) {
+		this.backgroundColor = c;
+	}
+
+	@Override
+	public Color getPixel(int x, int y) {
+		int i = getPixelIndex(x, y);
+		return i >= 0 ? new Color(pixels[i]) : null;
+	}
+
+	@Override
+	public void drawPixel(int x, int y) {
+		drawPixel(x, y, color);
+	}
+
+	@Override
+	public void drawPixel(int x, int y, Color c) {
+		drawPixel(x, y, c.getRGB());
+	}
+
+	@Override
+	public void drawPixel(int x, int y, int rgb) {
+		if (x>=-width/2 && x<width-width/2 && y<=height/2 && y>height/2-height) pixels[(height/2-y)*width + x+width/2] = rgb;
+	}
+
+	@Override
+	public void drawSpan(int x, int y, int length, int[] rgb, int offset) {
+		if (y>height/2 || y<=height/2-height) return;
+		int start = Math.max(x, -width/2);
+		int end = Math.min(x+length, width-width/2);
+		if (start >= end) return;
+		System.arraycopy(rgb, offset+start-x, pixels, (height/2-y)*width + start+width/2, end-start);
+	}
+
+	@Override
+	public int[] getPixelBuffer() {
+		return pixels;
+	}
+
+	@Override
+	public int getPixelIndex(int x, int y) {
+		if (x>=-width/2 && x<width-width/2 && y<=height/2 && y>height/2-height) return (height/2-y)*width + x+width/2;
+		return -1;
+	}
+
+	/**
+	 * Draw a line with the current color (Bresenham), both ends included. Pixels are clipped to the framebuffer, as a SwingView clips
+	 * to its image.
+	 */
+	@Override
+	public void drawLine(int x1, int y1, int x2, int y2) {
+		// Framebuffer coordinates (Y axis down)
+		int c1 = x1 + width/2, r1 = height/2 - y1;
+		int c2 = x2 + width/2, r2 = height/2 - y2;
+		int dc = Math.abs(c2 - c1), dr = -Math.abs(r2 - r1);
+		int sc = c1 < c2 ? 1 : -1, sr = r1 < r2 ? 1 : -1;
+		int err = dc + dr;
+		while (true) {
+			if (c1 >= 0 && c1 < width && r1 >= 0 && r1 < height) pixels[r1*width + c1] = color;
+			if (c1 == c2 && r1 == r2) break;
+			int e2 = 2*err;
+			if (e2 >= dr) { err += dr; c1 += sc; }
+			if (e2 <= dc) { err += dc; r1 += sr; }
+		}
+	}
+
+	/**
+	 * Copy the framebuffer as a raw buffer of packed RGB values, row by row (Y axis down)
+	 * @return a copy of the pixels of the last frame
+	 */
+	public int[] copyPixels() {
+		return Arrays.copyOf(pixels, pixels.length);
+	}
+
+	/**
+	 * Export the framebuffer as a PNG file. ImageIO only uses a BufferedImage in memory, so this works in headless mode.
+	 * @param file the PNG file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writePNG(File file) throws IOException {
+		ImageSequenceWriter.writePNG(pixels, width, height, file);
+	}
+
+	/**
+	 * Export the framebuffer as a binary PPM (P6) image, without any dependency on AWT or ImageIO
+	 * @param out the stream to write to (not closed)
+	 * @throws IOException if the stream cannot be written
+	 */
+	public void writePPM(OutputStream out) throws IOException {
+		ImageSequenceWriter.writePPM(pixels, width, height, out);
+	}
+
+	/**
+	 * Export the framebuffer as a binary PPM (P6) file
+	 * @param file the PPM file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writePPM(File file) throws IOException {
+		ImageSequenceWriter.writePPM(pixels, width, height, file);
+	}
+}
@@ -4,6 +4,8 @@ import java.awt.Component;
 import java.awt.Graphics2D;
 import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 
 import com.aventura.context.PerspectiveContext;
 import com.aventura.tools.tracing.Tracer;
@@ -41,6 +43,14 @@ import com.aventura.tools.tracing.Tracer;
 *  The implementation of this class is SWING based and specific, but the public methods are generic
 *  and inherited from the abstract GUIView class.
 * 
+*  Pixels are written directly in the int array of the back buffer image (DataBufferInt of a TYPE_INT_RGB image), without the
+*  color model conversion and checks of BufferedImage.setRGB. This array is also given to the Rasterizer (see getPixelBuffer()).
+* 
+*  Images are not reallocated at each frame but recycled in a ring of NB_BUFFERS images: the front buffer (displayed), the back buffer
+*  (being rendered) and a spare one. The back buffer is never the front buffer nor the last image given to the paint side by
+*  getImageView(), so a paint started before a swap never reads an image being rendered. Swap and choice of the back buffer are
+*  synchronized with getImageView().
+* 
 *       Warning! SWING Graphic coords on screen are as follows:
 *    
 *                      |
@@ -58,13 +68,22 @@ public class SwingView extends GUIView {
 	// Swing component to which this GUIView is associated. Used to pro-actively repaint when needed.
 	Component component = null;
 	
+	// Ring of images recycled from frame to frame (front, back and spare)
+	protected static final int NB_BUFFERS = 3;
+	BufferedImage[] buffers = new BufferedImage[NB_BUFFERS];
+	Graphics2D[] graphs = new Graphics2D[NB_BUFFERS];
+	int front = -1; // Index of the front buffer in the ring
+	int painted = -1; // Index of the last image given by getImageView(), possibly still being painted
+	
 	// buffer image #1 to be displayed
 	BufferedImage frontbuffer;
 	Graphics2D frontgraph;
 	
 	// back buffer image #2 to be used while creating the gUIView
+	int back = -1; // Index of the back buffer in the ring
 	BufferedImage backbuffer;
 	Graphics2D backgraph;
+	int[] pixels; // Pixels of the back buffer image, row by row (Y axis down)
 	
 	
 	public SwingView(PerspectiveContext context) {
@@ -118,25 +137,39 @@ public class SwingView extends GUIView {
 		initBack();
 	}
 	
-	protected void initFront() {
-		frontbuffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-		frontgraph = (Graphics2D)frontbuffer.getGraphics();
+	protected synchronized void initFront() {
+		front = 0;
+		initBuffer(front);
+		frontbuffer = buffers[front];
+		frontgraph = graphs[front];
+	}
 	
-        // Translate origin of the graphic
-		frontgraph.translate(width/2, height/2);
+	protected synchronized void initBack() {
+		// Pick the back buffer image #2 in the ring: neither displayed nor possibly being painted
+		back = 0;
+		while (back == front || back == painted) back++;
+		initBuffer(back);
+		backbuffer = buffers[back];
+		backgraph = graphs[back];
+		pixels = ((DataBufferInt)backbuffer.getRaster().getDataBuffer()).getData();
+		
+		// Fill image with background color pixels (white by default as the color of a new Graphics2D)
+		Arrays.fill(pixels, backgroundColor != null ? backgroundColor.getRGB() : Color.WHITE.getRGB());
+		backgraph.setColor(backgroundColor);
 	}
 	
-	protected void initBack() {
-		// Reinitialize the back buffer image #2 - need to define color of the back as per Graphic context definition
-		backbuffer = new BufferedImage(width,height, BufferedImage.TYPE_INT_RGB);
-		backgraph = (Graphics2D)backbuffer.getGraphics();
-		// Fill image with background color pixels
-        backgraph.setColor(backgroundColor);
-        backgraph.fillRect(backbuffer.getMinX(), backbuffer.getMinY(), backbuffer.getWidth(), backbuffer.getHeight());
-
-
+	/**
+	 * Create an image of the ring if not yet created or if the dimensions of the view have changed, otherwise keep it
+	 * @param i the index of the image in the ring
+	 */
+	protected void initBuffer(int i) {
+		if (buffers[i] != null && buffers[i].getWidth() == width && buffers[i].getHeight() == height) return;
+		if (graphs[i] != null) graphs[i].dispose();
+		buffers[i] = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		graphs[i] = (Graphics2D)buffers[i].getGraphics();
+		
         // Translate origin of the graphic
-		backgraph.translate(width/2, height/2);		
+		graphs[i].translate(width/2, height/2);
 	}
 
 
@@ -144,21 +177,26 @@ public class SwingView extends GUIView {
 	public void renderView() {
 		if (Tracer.function) Tracer.traceFunction(this.getClass(), "Render SwingView");
 
-		// Swap : copy the back buffer image #2 into #1 
-		frontbuffer = backbuffer;
-		frontgraph = backgraph;
+		// Swap : the back buffer image #2 becomes the front buffer #1, the previous front buffer will be recycled
+		synchronized (this) {
+			front = back;
+			frontbuffer = backbuffer;
+			frontgraph = backgraph;
+		}
 		
-		// Repaint the component since the buffer has been updated
-		component.repaint();
+		// Repaint the component since the buffer has been updated (if any: the view can be rendered offscreen)
+		if (component != null) component.repaint();
 	}
 	
 	/**
 	 * This method should be called by the UI 'paint component' method to get the latest generated buffered image
 	 * In background, the back buffer is being built.
 	 * The 'paint component' method is triggered by the renderView() method that is called by render engine when gUIView is computed.
+	 * The returned image is not rendered into before the next call of this method (it is kept out of the ring until then).
 	 * @return the Front Buffer image
 	 */
-	public BufferedImage getImageView() {
+	public synchronized BufferedImage getImageView() {
+		painted = front;
 		return frontbuffer;
 	}
 
@@ -191,7 +229,42 @@ public class SwingView extends GUIView {
 	 * @param c the Color of the pixel to draw
 	 */
 	public void drawPixel(int x, int y, Color c) {
-		if (x>=-width/2 && x<width/2 && y<=height/2 && y>-height/2) backbuffer.setRGB(x+width/2, -y+height/2, c.getRGB());
+		drawPixel(x, y, c.getRGB());
+	}
+	
+	/**
+	 * Same as drawPixel(int x, int y, Color c) but using a packed RGB value, written directly in the pixels of the back buffer
+	 * 
+	 * @param x
+	 * @param y (Y axis up)
+	 * @param rgb the packed RGB value of the pixel to draw
+	 */
+	@Override
+	public void drawPixel(int x, int y, int rgb) {
+		if (x>=-width/2 && x<width-width/2 && y<=height/2 && y>height/2-height) pixels[(height/2-y)*width + x+width/2] = rgb;
+	}
+	
+	/**
+	 * Draw a span of pixels of a row, copied directly in the pixels of the back buffer (pixels out of the view are ignored)
+	 */
+	@Override
+	public void drawSpan(int x, int y, int length, int[] rgb, int offset) {
+		if (y>height/2 || y<=height/2-height) return;
+		int start = Math.max(x, -width/2);
+		int end = Math.min(x+length, width-width/2);
+		if (start >= end) return;
+		System.arraycopy(rgb, offset+start-x, pixels, (height/2-y)*width + start+width/2, end-start);
+	}
+	
+	@Override
+	public int[] getPixelBuffer() {
+		return pixels;
+	}
+	
+	@Override
+	public int getPixelIndex(int x, int y) {
+		if (x>=-width/2 && x<width-width/2 && y<=height/2 && y>height/2-height) return (height/2-y)*width + x+width/2;
+		return -1;
 	}
 	
 
@@ -235,12 +308,13 @@ public class SwingView extends GUIView {
 		int minX = map.width < this.width ? map.width : this.width;
 		int minY = map.height < this.height ? map.height : this.height;
 
-		// Loop on x and y on the window defined by the 2 mins
-		for (int x=0; x<minX; x++ ) {
-			for (int y=0; y<minY; y++) {		
-				Color c = new Color(map.get(x,y),  map.get(x,y),  map.get(x,y));
-				//drawPixel(x, y, c);
-				backbuffer.setRGB(x, minY-y-1, c.getRGB());
+		// Loop on y and x on the window defined by the 2 mins, row by row as the map is stored row by row
+		for (int y=0; y<minY; y++) {
+			int row = map.getRowOffset(y);
+			int dst = (minY-y-1)*width;
+			for (int x=0; x<minX; x++ ) {
+				float v = map.get(row + x);
+				pixels[dst + x] = new Color(v, v, v).getRGB();
 			}
 		}
 	}